@@ -0,0 +1,29 @@
+package completo.projeto.completo;
+
+import completo.projeto.completo.dto.PatientDTO;
+import completo.projeto.completo.service.PatientService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/patients")
+public class PatientController {
+
+    private final PatientService patientService;
+
+    public PatientController(PatientService patientService) {
+        this.patientService = patientService;
+    }
+
+    // nunca logar CPF
+    @GetMapping
+    public List<PatientDTO> findByCpf(@RequestParam(name = "cpf") String cpf) {
+        log.debug("api=find_patients_by_cpf action=start");
+        List<PatientDTO> out = patientService.findByCpf(cpf);
+        log.debug("api=find_patients_by_cpf action=success count={}", out.size());
+        return out;
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
@@ -13,6 +14,7 @@ import io.swagger.v3.oas.annotations.info.Info;
 @EnableAspectJAutoProxy
 @OpenAPIDefinition(info = @Info(title = "API", version = "1.0"))
 @EnableCaching
+@EnableScheduling
 public class ProjetoCompletoApplication {
 
 	public static void main(String[] args) {
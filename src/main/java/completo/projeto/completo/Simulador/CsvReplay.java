@@ -0,0 +1,375 @@
+package completo.projeto.completo.Simulador;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Leitura sequencial de CSVs gravados (formato {@code dados_pac*.csv}) direto da memória mapeada.
+ * <p>
+ * O arquivo é mapeado em janelas de até 1 GiB e cada linha é separada em campos apenas por
+ * deslocamentos (vírgulas entre aspas não separam campos); números e horários são convertidos a
+ * partir dos bytes, sem {@code String} por campo nem {@code DateTimeFormatter}. Textos repetidos
+ * (id do paciente, status) passam por um cache de bytes para {@code String}, então só alocam na
+ * primeira ocorrência; nome e CPF só viram {@code String} quando pedidos via {@link #string(int)}.
+ * <p>
+ * Horários aceitos: {@code HH:mm:ss[.f]} (data de hoje, UTC), {@code dd/MM/yyyy HH:mm:ss[.f]} e
+ * {@code yyyy-MM-dd[T ]HH:mm:ss[.f]}, todos interpretados em UTC como o servidor faz por padrão.
+ * Instância não é thread-safe.
+ */
+public class CsvReplay implements Closeable {
+
+    public static final int MISSING_INT = Integer.MIN_VALUE;
+    public static final long MISSING_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final long DEFAULT_WINDOW = 1L << 30;
+    private static final int MAX_FIELDS = 16;
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+    }
+
+    private final Path path;
+    private final long window;
+    private final FileChannel channel;
+    private final long size;
+    private final long todayMillis;
+    private final long dataStart;
+    private final int[] starts = new int[MAX_FIELDS];
+    private final int[] ends = new int[MAX_FIELDS];
+    private final TextCache texts = new TextCache();
+    private MappedByteBuffer buf;
+    private long windowStart;
+    private long position;
+    private int fieldCount;
+    private long lines;
+    private int lastDateKey = -1;
+    private long lastEpochDay;
+
+    private CsvReplay(Path path, long window) throws IOException {
+        this.path = path;
+        this.window = window;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.todayMillis = LocalDate.now(ZoneOffset.UTC).toEpochDay() * 86_400_000L;
+        map(0);
+        this.dataStart = nextLine() ? position : size;
+    }
+
+    /** Abre o arquivo e pula o cabeçalho. */
+    public static CsvReplay open(Path path) throws IOException {
+        return new CsvReplay(path, DEFAULT_WINDOW);
+    }
+
+    static CsvReplay open(Path path, long window) throws IOException {
+        return new CsvReplay(path, window);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /** Linhas de dados lidas desde a abertura (ou o último {@link #rewind()}). */
+    public long lines() {
+        return lines;
+    }
+
+    /** Volta para a primeira linha depois do cabeçalho. */
+    public void rewind() {
+        position = dataStart;
+        lines = 0;
+    }
+
+    /**
+     * Avança para a próxima linha não vazia e separa os campos.
+     *
+     * @return {@code false} no fim do arquivo
+     */
+    public boolean next() throws IOException {
+        while (nextLine()) {
+            if (fieldCount > 1 || ends[0] > starts[0]) {
+                lines++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    public boolean isBlank(int field) {
+        return field >= fieldCount || ends[field] <= starts[field];
+    }
+
+    /** Texto do campo via cache (para valores que se repetem); {@code null} se vazio. */
+    public String text(int field) {
+        if (isBlank(field)) return null;
+        return texts.get(buf, starts[field], ends[field]);
+    }
+
+    /** Texto do campo numa {@code String} nova; {@code null} se vazio. */
+    public String string(int field) {
+        if (isBlank(field)) return null;
+        byte[] bytes = new byte[ends[field] - starts[field]];
+        buf.get(starts[field], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Número do campo arredondado para inteiro, ou {@link #MISSING_INT}. */
+    public int intField(int field) {
+        double v = doubleField(field);
+        return Double.isNaN(v) ? MISSING_INT : (int) Math.round(v);
+    }
+
+    /**
+     * Número do campo, aceitando vírgula decimal e ignorando outros caracteres (ex.: unidades),
+     * ou {@code NaN} se não houver dígitos.
+     */
+    public double doubleField(int field) {
+        if (isBlank(field)) return Double.NaN;
+        long mantissa = 0;
+        int significant = 0;
+        int scale = 0;
+        boolean negative = false;
+        boolean fraction = false;
+        boolean digits = false;
+        for (int i = starts[field], end = ends[field]; i < end; i++) {
+            byte b = buf.get(i);
+            if (b >= '0' && b <= '9') {
+                digits = true;
+                if (significant < 18) {
+                    if (mantissa != 0 || b != '0') significant++;
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (fraction) scale--;
+                } else if (!fraction) {
+                    scale++;
+                }
+            } else if (b == '.' || b == ',') {
+                if (fraction) break;
+                fraction = true;
+            } else if (b == '-' && !digits) {
+                negative = true;
+            }
+        }
+        if (!digits) return Double.NaN;
+        double v = mantissa;
+        if (scale < 0) {
+            v = -scale < POW10.length ? v / POW10[-scale] : v * Math.pow(10, scale);
+        } else if (scale > 0) {
+            v = scale < POW10.length ? v * POW10[scale] : v * Math.pow(10, scale);
+        }
+        return negative ? -v : v;
+    }
+
+    /** Horário do campo em epoch millis (UTC), ou {@link #MISSING_TIMESTAMP} se não reconhecido. */
+    public long epochMillis(int field) {
+        if (isBlank(field)) return MISSING_TIMESTAMP;
+        int s = starts[field];
+        int len = ends[field] - s;
+        if (len >= 8 && buf.get(s + 2) == ':' && buf.get(s + 5) == ':') {
+            long time = timeOfDay(s, len);
+            return time < 0 ? MISSING_TIMESTAMP : todayMillis + time;
+        }
+        int year, month, day;
+        if (len >= 19 && buf.get(s + 2) == '/' && buf.get(s + 5) == '/' && buf.get(s + 10) == ' ') {
+            day = digits(s, 2);
+            month = digits(s + 3, 2);
+            year = digits(s + 6, 4);
+        } else if (len >= 19 && buf.get(s + 4) == '-' && buf.get(s + 7) == '-'
+                && (buf.get(s + 10) == 'T' || buf.get(s + 10) == ' ')) {
+            year = digits(s, 4);
+            month = digits(s + 5, 2);
+            day = digits(s + 8, 2);
+        } else {
+            return MISSING_TIMESTAMP;
+        }
+        long time = timeOfDay(s + 11, len - 11);
+        long epochDay = epochDay(year, month, day);
+        if (time < 0 || epochDay == Long.MIN_VALUE) return MISSING_TIMESTAMP;
+        return epochDay * 86_400_000L + time;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** {@code HH:mm:ss[.fração]} em millis do dia, ou -1. */
+    private long timeOfDay(int s, int len) {
+        if (len < 8 || buf.get(s + 2) != ':' || buf.get(s + 5) != ':') return -1;
+        int hour = digits(s, 2);
+        int minute = digits(s + 3, 2);
+        int second = digits(s + 6, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) return -1;
+        int millis = 0;
+        if (len > 8) {
+            if (buf.get(s + 8) != '.') return -1;
+            int scale = 100;
+            for (int i = s + 9; i < s + len; i++) {
+                byte b = buf.get(i);
+                if (b < '0' || b > '9') return -1;
+                millis += (b - '0') * scale;
+                scale /= 10;
+            }
+        }
+        return hour * 3_600_000L + minute * 60_000L + second * 1000L + millis;
+    }
+
+    /** Dia epoch com cache do último dia visto (sessões gravadas repetem a mesma data). */
+    private long epochDay(int year, int month, int day) {
+        if (year < 0 || month < 0 || day < 0) return Long.MIN_VALUE;
+        int key = year * 10_000 + month * 100 + day;
+        if (key != lastDateKey) {
+            try {
+                lastEpochDay = LocalDate.of(year, month, day).toEpochDay();
+            } catch (DateTimeException e) {
+                return Long.MIN_VALUE;
+            }
+            lastDateKey = key;
+        }
+        return lastEpochDay;
+    }
+
+    private int digits(int from, int count) {
+        int v = 0;
+        for (int i = from; i < from + count; i++) {
+            byte b = buf.get(i);
+            if (b < '0' || b > '9') return -1;
+            v = v * 10 + (b - '0');
+        }
+        return v;
+    }
+
+    /** Lê a linha em {@code position}, remapeando a janela se ela cruzar o fim do trecho mapeado. */
+    private boolean nextLine() throws IOException {
+        if (position >= size) return false;
+        if (position < windowStart || position >= windowStart + buf.limit()) map(position);
+        int from = (int) (position - windowStart);
+        int eol = scanLine(from);
+        if (eol < 0) {
+            if (windowStart + buf.limit() < size) {
+                map(position);
+                from = 0;
+                eol = scanLine(from);
+                if (eol < 0) throw new IOException("linha maior que a janela de mapeamento em " + path);
+            } else {
+                eol = buf.limit();
+            }
+        }
+        int end = eol > from && buf.get(eol - 1) == '\r' ? eol - 1 : eol;
+        split(from, end);
+        position = windowStart + eol + 1;
+        return true;
+    }
+
+    private int scanLine(int from) {
+        for (int i = from, limit = buf.limit(); i < limit; i++) {
+            if (buf.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+
+    private void split(int from, int end) {
+        int count = 0;
+        int fieldStart = from;
+        boolean quoted = false;
+        for (int i = from; i <= end && count < MAX_FIELDS; i++) {
+            byte b = i == end ? 0 : buf.get(i);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (i == end || (b == ',' && !quoted)) {
+                trim(count++, fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        fieldCount = count;
+    }
+
+    private void trim(int field, int s, int e) {
+        while (s < e && buf.get(s) == ' ') s++;
+        while (e > s && buf.get(e - 1) == ' ') e--;
+        if (e - s >= 2 && buf.get(s) == '"' && buf.get(e - 1) == '"') {
+            s++;
+            e--;
+            while (s < e && buf.get(s) == ' ') s++;
+            while (e > s && buf.get(e - 1) == ' ') e--;
+        }
+        starts[field] = s;
+        ends[field] = e;
+    }
+
+    private void map(long from) throws IOException {
+        windowStart = from;
+        buf = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(window, size - from));
+    }
+
+    /** Tabela aberta de bytes para {@code String}; compara direto contra o buffer mapeado. */
+    private static final class TextCache {
+        private byte[][] keys = new byte[256][];
+        private String[] values = new String[256];
+        private int count;
+
+        String get(MappedByteBuffer buf, int start, int end) {
+            int hash = 1;
+            for (int i = start; i < end; i++) hash = 31 * hash + buf.get(i);
+            int mask = keys.length - 1;
+            for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+                byte[] key = keys[slot];
+                if (key == null) break;
+                if (matches(key, buf, start, end)) return values[slot];
+            }
+            byte[] bytes = new byte[end - start];
+            buf.get(start, bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            if (count * 2 >= keys.length) grow();
+            insert(bytes, value, hash);
+            return value;
+        }
+
+        private static boolean matches(byte[] key, MappedByteBuffer buf, int start, int end) {
+            if (key.length != end - start) return false;
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buf.get(start + i)) return false;
+            }
+            return true;
+        }
+
+        private void insert(byte[] key, String value, int hash) {
+            int mask = keys.length - 1;
+            int slot = mix(hash) & mask;
+            while (keys[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = key;
+            values[slot] = value;
+            count++;
+        }
+
+        private void grow() {
+            byte[][] oldKeys = keys;
+            String[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            values = new String[oldKeys.length * 2];
+            count = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null) continue;
+                int hash = 1;
+                for (byte b : oldKeys[i]) hash = 31 * hash + b;
+                insert(oldKeys[i], oldValues[i], hash);
+            }
+        }
+
+        private static int mix(int h) {
+            return h ^ (h >>> 16);
+        }
+    }
+}
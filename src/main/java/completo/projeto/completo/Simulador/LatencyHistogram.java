@@ -0,0 +1,74 @@
+package completo.projeto.completo.Simulador;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma log-linear de latências (nanossegundos) para o gerador de carga.
+ * <p>
+ * Valores abaixo de 128 ficam em baldes exatos; acima disso cada potência de 2 é dividida em 64
+ * baldes, o que limita o erro relativo dos percentis a ~1,6% com tamanho fixo (4096 contadores)
+ * e gravação sem lock a partir das threads de resposta do {@code HttpClient}.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 * HALF + SUB_BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        counts.incrementAndGet(index(v));
+        total.increment();
+        sum.add(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Limite superior do balde que contém o percentil {@code q} (0 a 1), nunca acima do máximo gravado;
+     * 0 para histograma vazio.
+     */
+    public long percentile(double q) {
+        long n = total.sum();
+        if (n == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    static int index(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        int shift = 64 - Long.numberOfLeadingZeros(v) - SUB_BUCKET_BITS;
+        return shift * HALF + (int) (v >>> shift);
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / HALF - 1;
+        long sub = index - (long) shift * HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -1,300 +1,580 @@
 package completo.projeto.completo.Simulador;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileReader;
+import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatterBuilder;
-import java.time.temporal.ChronoField;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga para POST /api/v1/vital-signs, usado para dimensionar os nós de ingestão.
+ * <p>
+ * Os CSVs servem de modelo: os {@code sim.patients} pacientes são sintetizados a partir deles (os
+ * primeiros reaproveitam a identidade do próprio CSV, os demais recebem id {@code SIM000001}... e CPF
+ * fictício) e repetem as leituras do modelo com o horário atual. As requisições são disparadas em
+ * malha aberta na taxa alvo com {@code sendAsync} (HTTP/2 multiplexa na mesma conexão quando o servidor
+ * aceita h2c), limitadas a {@code sim.max-in-flight} em voo. A latência é medida a partir do instante
+ * planejado de envio, então atrasos do próprio servidor não escondem a fila (coordinated omission).
+ * <p>
+ * Com {@code sim.replay} as leituras vêm de sessões gravadas, linha a linha e com o horário gravado,
+ * lidas por {@link CsvReplay} (arquivo mapeado em memória, sem alocação por campo); o JSON é montado
+ * direto num {@code StringBuilder}, para que o gerador não seja o gargalo.
+ * <p>
+ * Parâmetros ({@code -Dsim.<nome>=valor}):
+ * <ul>
+ *   <li>{@code patients} (3): pacientes simulados;</li>
+ *   <li>{@code rate} (5 por paciente): leituras por segundo no total; 0 = o mais rápido possível;</li>
+ *   <li>{@code duration} (0): segundos de carga; 0 = até interromper;</li>
+ *   <li>{@code batch} (1): leituras por requisição; acima de 1 usa {@code /batch};</li>
+ *   <li>{@code max-in-flight} (64), {@code http2} (false), {@code timeout-ms} (8000);</li>
+ *   <li>{@code url}, {@code token}, {@code files} (CSVs modelo separados por vírgula), {@code report-interval} (5 s);</li>
+ *   <li>{@code replay}: CSVs gravados a reenviar em vez dos pacientes sintéticos; {@code loop} (false)
+ *       recomeça do início ao fim dos arquivos.</li>
+ * </ul>
+ * Ao final imprime vazão e os percentis p50/p90/p99/p99.9 de latência.
+ */
 public class MultiPatientSimulator {
 
     private static final Logger log = LoggerFactory.getLogger(MultiPatientSimulator.class);
 
     private static final String BASE_DIR = ".";
 
-    private static final String[] CSV_FILES = {
-            "dados_pac001.csv",
-            "dados_pac002.csv",
-            "dados_pac003.csv"
-    };
-
-    private static final String VITALS_API_URL = "http://localhost:8080/api/v1/vital-signs";
-
-    private static final String BEARER_TOKEN = null;
+    private static final String DEFAULT_CSV_FILES = "dados_pac001.csv,dados_pac002.csv,dados_pac003.csv";
 
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String DEFAULT_VITALS_API_URL = "http://localhost:8080/api/v1/vital-signs";
 
-    // Intervalo entre envios em milissegundos
+    // Intervalo entre leituras de cada paciente na taxa padrão
     private static final long INTERVAL_MS = 200;
 
-    // Se true, roda para sempre, se false, roda apenas uma vez
-    private static final boolean LOOP_FOREVER = true;
+    record Options(int patients, double rate, long durationSeconds, int batch, int maxInFlight, boolean http2,
+                   long timeoutMs, String url, String token, List<String> files, long reportIntervalSeconds,
+                   List<String> replay, boolean loop) {
+
+        static Options fromSystemProperties() {
+            int patients = Integer.getInteger("sim.patients", 3);
+            String token = System.getProperty("sim.token");
+            return new Options(
+                    patients,
+                    Double.parseDouble(System.getProperty("sim.rate", String.valueOf(patients * 1000.0 / INTERVAL_MS))),
+                    Long.getLong("sim.duration", 0),
+                    Math.max(1, Integer.getInteger("sim.batch", 1)),
+                    Math.max(1, Integer.getInteger("sim.max-in-flight", 64)),
+                    Boolean.parseBoolean(System.getProperty("sim.http2", "false")),
+                    Long.getLong("sim.timeout-ms", 8000),
+                    System.getProperty("sim.url", DEFAULT_VITALS_API_URL),
+                    token == null || token.isBlank() ? null : token,
+                    List.of(System.getProperty("sim.files", DEFAULT_CSV_FILES).split(",")),
+                    Math.max(1, Long.getLong("sim.report-interval", 5)),
+                    Arrays.stream(System.getProperty("sim.replay", "").split(",")).filter(f -> !f.isBlank()).toList(),
+                    Boolean.getBoolean("sim.loop"));
+        }
+    }
 
-    private static final long LOOP_PAUSE_MS = 1500;
+    /**
+     * Linha de sinais vitais de um CSV modelo; valores ausentes são {@link CsvReplay#MISSING_INT} ou {@code NaN}.
+     */
+    record Reading(int heartRate, double oxygenSaturation, double systolicPressure, double diastolicPressure,
+                   double temperature, int respiratoryRate, String status) {
+    }
 
-    private static final boolean SEND_NAME_CPF_ONLY_ON_FIRST = true;
+    /** Origem das leituras; chamada só pela thread que dispara as requisições. */
+    interface ReadingSource extends Closeable {
 
-    private static final Set<String> FIRST_SEEN_PATIENTS = ConcurrentHashMap.newKeySet();
+        /** Acrescenta uma leitura em JSON e o paciente correspondente; {@code false} quando acabaram. */
+        boolean next(StringBuilder json, List<Patient> senders) throws IOException;
 
-    public static void main(String[] args) {
-        for (String file : CSV_FILES) {
-            final String path = new File(BASE_DIR, file).getPath();
-            Thread t = new Thread(() -> runForFile(path), "sim-" + file);
-            t.start();
+        @Override
+        default void close() throws IOException {
         }
     }
 
-    private static void runForFile(String csvPath) {
-        do {
-            processFileOnce(csvPath);
-            if (LOOP_FOREVER) {
-                try {
-                    Thread.sleep(LOOP_PAUSE_MS);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    log.warn("[SIM] Thread interrompida durante pausa: {}", ie.getMessage());
-                }
-            }
-        } while (LOOP_FOREVER);
+    /** Leituras de um CSV e a identidade do paciente que aparece nele. */
+    record Template(String patientId, String patientName, String patientCpf, List<Reading> readings) {
     }
 
-    private static void processFileOnce(String csvPath) {
-        File f = new File(csvPath);
-        log.info("[SIM] Abrindo arquivo: {} (exists={})", f.getAbsolutePath(), f.exists());
-        if (!f.exists()) {
-            log.error("[SIM][ERRO] Arquivo não encontrado: {}", f.getAbsolutePath());
-            return;
+    /**
+     * Paciente simulado; envia nome/CPF até a primeira gravação confirmada. Enquanto a requisição que cadastra
+     * o paciente ({@code seed}) está em voo, novas leituras dele ficam estacionadas até ela responder (as dos
+     * demais pacientes seguem no ritmo): duas requisições concorrentes com o primeiro registro do mesmo paciente
+     * disputariam a inserção em {@code patient}.
+     */
+    static final class Patient {
+        final String id;
+        final String name;
+        final String cpf;
+        final List<Reading> readings;
+        int cursor;
+        CompletableFuture<?> seed;
+        volatile boolean seeded;
+
+        Patient(String id, String name, String cpf, List<Reading> readings, int cursor) {
+            this.id = id;
+            this.name = name;
+            this.cpf = cpf;
+            this.readings = readings;
+            this.cursor = cursor;
         }
+    }
 
-        int count = 0;
-        long lastSendMs = 0;
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(f, StandardCharsets.UTF_8))) {
-            String header = reader.readLine();
-            log.info("[SIM] Cabeçalho: {}", header);
+    private final Options options;
+    private final ReadingSource source;
+    private final HttpClient client;
+    private final URI uri;
+    private final Semaphore inFlight;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder requestsOk = new LongAdder();
+    private final LongAdder requestsFailed = new LongAdder();
+    private final LongAdder readingsOk = new LongAdder();
+    private final LongAdder readingsFailed = new LongAdder();
+    private final AtomicLong lastError = new AtomicLong();
+
+    MultiPatientSimulator(Options options, ReadingSource source) {
+        this.options = options;
+        this.source = source;
+        this.uri = URI.create(options.batch() > 1 ? options.url() + "/batch" : options.url());
+        this.inFlight = new Semaphore(options.maxInFlight());
+        // Um único cliente: conexões reaproveitadas (streams HTTP/2 multiplexados) e callbacks em threads virtuais
+        this.client = HttpClient.newBuilder()
+                .version(options.http2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(3))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
 
-            HttpClient client = HttpClient.newBuilder()
-                    .connectTimeout(Duration.ofSeconds(3))
-                    .build();
+    public static void main(String[] args) throws Exception {
+        Options options = Options.fromSystemProperties();
+        try (ReadingSource source = createSource(options)) {
+            log.info("[SIM] Iniciado: taxa={}/s duracao={}s lote={} emVoo={} http2={} url={}",
+                    options.rate(), options.durationSeconds(), options.batch(), options.maxInFlight(),
+                    options.http2(), options.url());
+            new MultiPatientSimulator(options, source).run();
+        }
+    }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                count++;
-                try {
-                    String[] fields = line.split(",", -1);
+    private static ReadingSource createSource(Options options) throws IOException {
+        if (!options.replay().isEmpty()) {
+            log.info("[SIM] Replay: arquivos={} loop={}", options.replay(), options.loop());
+            return ReplaySource.open(options.replay(), options.loop());
+        }
+        List<Template> templates = loadTemplates(options.files());
+        log.info("[SIM] Sintético: pacientes={} modelos={}", options.patients(), templates.size());
+        return new SyntheticSource(synthesize(options.patients(), templates));
+    }
 
-                    String patientId   = safeTrim(fields, 1);
-                    if (isBlank(patientId)) {
-                        log.error("[SIM][{}] #{} SKIP: patientId vazio", f.getName(), count);
-                        continue;
-                    }
+    /**
+     * Dispara as requisições no ritmo {@code rate / batch} por segundo até o fim da duração (ou interrupção),
+     * aguarda as que estão em voo e imprime o relatório.
+     */
+    void run() throws InterruptedException, IOException {
+        long periodNanos = options.rate() > 0 ? (long) (1e9 * options.batch() / options.rate()) : 0;
+        long start = System.nanoTime();
+        long end = options.durationSeconds() > 0 ? start + TimeUnit.SECONDS.toNanos(options.durationSeconds()) : Long.MAX_VALUE;
+        Thread reporter = Thread.ofVirtual().name("sim-report").start(() -> reportLoop(start));
+        Thread shutdownReport = new Thread(() -> report(start, System.nanoTime()));
+        Runtime.getRuntime().addShutdownHook(shutdownReport);
+
+        long sentRequests = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long intended = periodNanos > 0 ? start + sentRequests * periodNanos : System.nanoTime();
+                if (intended >= end) break;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+                inFlight.acquire();
+                if (System.nanoTime() >= end) {
+                    inFlight.release();
+                    break;
+                }
+                if (!send(intended)) break;
+                sentRequests++;
+            }
+            inFlight.tryAcquire(options.maxInFlight(), options.timeoutMs() + 1000, TimeUnit.MILLISECONDS);
+        } finally {
+            reporter.interrupt();
+        }
+        Runtime.getRuntime().removeShutdownHook(shutdownReport);
+        report(start, System.nanoTime());
+    }
 
-                    String patientName = safeTrim(fields, 2);
-                    String patientCpf  = safeTrim(fields, 3);
+    /** Monta e dispara uma requisição; {@code false} quando a origem das leituras acabou. */
+    private boolean send(long intendedNanos) throws IOException {
+        boolean batch = options.batch() > 1;
+        StringBuilder json = new StringBuilder(320 * options.batch());
+        List<Patient> senders = new ArrayList<>(options.batch());
+        boolean more = true;
+        if (batch) json.append('[');
+        while (senders.size() < options.batch()) {
+            int mark = json.length();
+            if (!senders.isEmpty()) json.append(',');
+            if (!source.next(json, senders)) {
+                json.setLength(mark);
+                more = false;
+                break;
+            }
+        }
+        if (senders.isEmpty()) {
+            inFlight.release();
+            return false;
+        }
+        if (batch) json.append(']');
+        HttpRequest request = request(json.toString());
+        List<CompletableFuture<?>> seeds = new ArrayList<>(0);
+        for (Patient p : senders) {
+            if (!p.seeded && p.seed != null && !p.seed.isDone()) seeds.add(p.seed);
+        }
+        CompletableFuture<?> done;
+        if (seeds.isEmpty()) {
+            done = dispatch(request, intendedNanos, senders);
+        } else {
+            // estacionada até o cadastro do paciente responder; o ritmo dos demais pacientes não espera por ela.
+            // A latência conta a partir da liberação, não do instante planejado: a espera é do próprio gerador
+            done = CompletableFuture.allOf(seeds.toArray(CompletableFuture[]::new))
+                    .handle((r, e) -> null)
+                    .thenCompose(x -> dispatch(request, Math.max(intendedNanos, System.nanoTime()), senders));
+        }
+        for (Patient p : senders) {
+            if (!p.seeded && (p.seed == null || p.seed.isDone())) p.seed = done;
+        }
+        return more;
+    }
 
-                    if (count <= 3) {
-                        log.info("[SIM][{}] #{} RAW hr='{}' spo2='{}' pSys='{}' pDia='{}' temp='{}' rFr='{}'",
-                                f.getName(), count,
-                                safeTrim(fields, 4), safeTrim(fields, 5), safeTrim(fields, 6),
-                                safeTrim(fields, 7), safeTrim(fields, 8), safeTrim(fields, 9));
+    private CompletableFuture<HttpResponse<String>> dispatch(HttpRequest request, long fromNanos, List<Patient> senders) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((resp, error) -> {
+                    try {
+                        latency.record(System.nanoTime() - fromNanos);
+                        onResponse(resp, error, senders);
+                    } finally {
+                        inFlight.release();
                     }
+                });
+    }
 
-                    String ts = normalizeTimestamp(safeTrim(fields, 0));
-                    Integer hr = parseIntSafe(safeTrim(fields, 4));
-                    Double spo2 = parseDoubleSafe(safeTrim(fields, 5));
-                    Double pSys = parseDoubleSafe(safeTrim(fields, 6));
-                    Double pDia = parseDoubleSafe(safeTrim(fields, 7));
-                    Double temp = parseDoubleSafe(safeTrim(fields, 8));
-                    Integer rFr = parseIntSafe(safeTrim(fields, 9));
-                    String status = safeTrim(fields, 10);
-
-                    if (count <= 3) {
-                        log.info("[SIM][{}] #{} PARSED hr={} spo2={} pSys={} pDia={} temp={} rFr={}",
-                                f.getName(), count, hr, spo2, pSys, pDia, temp, rFr);
-                    }
+    private void onResponse(HttpResponse<String> resp, Throwable error, List<Patient> senders) {
+        int size = senders.size();
+        if (error == null && resp.statusCode() >= 200 && resp.statusCode() < 300) {
+            requestsOk.increment();
+            readingsOk.add(size);
+            for (Patient p : senders) p.seeded = true;
+            return;
+        }
+        requestsFailed.increment();
+        readingsFailed.add(size);
+        // no máximo um log de erro por segundo para não competir com a carga
+        long now = System.currentTimeMillis();
+        long last = lastError.get();
+        if (now - last >= 1000 && lastError.compareAndSet(last, now)) {
+            if (error != null) {
+                log.error("[SIM] ERRO: {}", error.toString());
+            } else {
+                log.error("[SIM] FAIL {} body={}", resp.statusCode(), resp.body());
+            }
+        }
+    }
 
-                    boolean alreadySeeded = FIRST_SEEN_PATIENTS.contains(patientId);
-                    boolean mustSendNameCpf = !SEND_NAME_CPF_ONLY_ON_FIRST || !alreadySeeded;
+    /** Leitura no formato de {@code VitalSignRecordDTO}; nome/CPF só enquanto o paciente não foi gravado. */
+    static void appendReading(StringBuilder json, Patient p, int heartRate, double oxygenSaturation,
+                              double systolicPressure, double diastolicPressure, double temperature,
+                              int respiratoryRate, String status, long timestampMillis) {
+        json.append("{\"patientId\":");
+        appendString(json, p.id);
+        if (!p.seeded) {
+            json.append(",\"patientName\":");
+            appendString(json, p.name);
+            json.append(",\"patientCpf\":");
+            appendString(json, p.cpf);
+        }
+        json.append(",\"heartRate\":");
+        appendNumber(json, heartRate);
+        json.append(",\"oxygenSaturation\":");
+        appendNumber(json, oxygenSaturation);
+        json.append(",\"systolicPressure\":");
+        appendNumber(json, systolicPressure);
+        json.append(",\"diastolicPressure\":");
+        appendNumber(json, diastolicPressure);
+        json.append(",\"temperature\":");
+        appendNumber(json, temperature);
+        json.append(",\"respiratoryRate\":");
+        appendNumber(json, respiratoryRate);
+        json.append(",\"status\":");
+        appendString(json, status);
+        json.append(",\"timestampMillis\":").append(timestampMillis).append('}');
+    }
 
-                    Map<String, Object> dto = new HashMap<>();
-                    dto.put("patientId", patientId);
+    private static void appendNumber(StringBuilder json, int v) {
+        if (v == CsvReplay.MISSING_INT) json.append("null");
+        else json.append(v);
+    }
 
-                    if (mustSendNameCpf) {
-                        if (isBlank(patientName) || isBlank(patientCpf)) {
-                            log.error("[SIM][{}] #{} SKIP: primeiro registro de {} sem patientName/patientCpf no CSV (evitando 400).",
-                                    f.getName(), count, patientId);
-                            continue;
-                        }
-                        dto.put("patientName", patientName);
-                        dto.put("patientCpf", patientCpf);
-                    }
+    private static void appendNumber(StringBuilder json, double v) {
+        if (Double.isNaN(v) || Double.isInfinite(v)) json.append("null");
+        else json.append(v);
+    }
 
-                    dto.put("heartRate", hr);
-                    dto.put("oxygenSaturation", spo2);
-                    dto.put("systolicPressure", pSys);
-                    dto.put("diastolicPressure", pDia);
-                    dto.put("temperature", temp);
-                    dto.put("respiratoryRate", rFr);
-                    dto.put("status", status);
-                    dto.put("timestamp", ts);
-
-                    if (count <= 3) {
-                        try {
-                            log.debug("[SIM][{}] #{} DEBUG DTO={}", f.getName(), count, objectMapper.writeValueAsString(dto));
-                        } catch (Exception e) {
-                            log.debug("[SIM][{}] #{} Falha ao serializar DTO para debug: {}", f.getName(), count, e.getMessage());
-                        }
-                    }
+    private static void appendString(StringBuilder json, String s) {
+        if (s == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
 
-                    String json = objectMapper.writeValueAsString(dto);
+    /** Pacientes sintetizados dos modelos, em rodízio, sempre com o horário atual. */
+    static final class SyntheticSource implements ReadingSource {
+        private final Patient[] patients;
+        private int nextPatient;
 
-                    HttpRequest.Builder builder = HttpRequest.newBuilder()
-                            .uri(URI.create(VITALS_API_URL))
-                            .header("Content-Type", "application/json")
-                            .header("Accept", "application/json")
-                            .timeout(Duration.ofSeconds(8))
-                            .POST(HttpRequest.BodyPublishers.ofString(json));
+        SyntheticSource(Patient[] patients) {
+            this.patients = patients;
+        }
 
-                    if (BEARER_TOKEN != null && !BEARER_TOKEN.isBlank()) {
-                        builder.header("Authorization", "Bearer " + BEARER_TOKEN);
-                    }
+        @Override
+        public boolean next(StringBuilder json, List<Patient> senders) {
+            if (patients.length == 0) return false;
+            Patient p = patients[nextPatient];
+            nextPatient = (nextPatient + 1) % patients.length;
+            Reading r = p.readings.get(p.cursor);
+            p.cursor = (p.cursor + 1) % p.readings.size();
+            appendReading(json, p, r.heartRate(), r.oxygenSaturation(), r.systolicPressure(), r.diastolicPressure(),
+                    r.temperature(), r.respiratoryRate(), r.status(), System.currentTimeMillis());
+            senders.add(p);
+            return true;
+        }
+    }
 
-                    long now = System.currentTimeMillis();
-                    long due = lastSendMs + INTERVAL_MS;
-                    long sleep = due - now;
-                    if (sleep > 0) {
-                        try {
-                            Thread.sleep(sleep);
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                            log.warn("[SIM] Thread interrompida enquanto aguardava intervalo: {}", ie.getMessage());
-                        }
-                    }
-                    lastSendMs = System.currentTimeMillis();
+    /**
+     * Sessões gravadas, linha a linha, com o paciente e o horário de cada linha (agora, se o horário for
+     * inválido). Linhas sem paciente, ou a primeira de um paciente sem nome/CPF (que daria 400), são puladas.
+     */
+    static final class ReplaySource implements ReadingSource {
+        private final List<CsvReplay> files;
+        private final boolean loop;
+        private final Map<String, Patient> patients = new HashMap<>();
+        private int current;
+        private long sent;
+        private long skipped;
+
+        ReplaySource(List<CsvReplay> files, boolean loop) {
+            this.files = files;
+            this.loop = loop;
+        }
 
-                    HttpResponse<String> resp = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+        static ReplaySource open(List<String> paths, boolean loop) throws IOException {
+            List<CsvReplay> files = new ArrayList<>(paths.size());
+            try {
+                for (String path : paths) {
+                    files.add(CsvReplay.open(Path.of(BASE_DIR, path.trim())));
+                }
+            } catch (IOException e) {
+                for (CsvReplay f : files) f.close();
+                throw e;
+            }
+            return new ReplaySource(files, loop);
+        }
 
-                    if (resp.statusCode() >= 200 && resp.statusCode() < 300) {
-                        log.info("[SIM][{}] #{} OK {}", f.getName(), count, resp.statusCode());
-                        FIRST_SEEN_PATIENTS.add(patientId);
-                    } else {
-                        log.error("[SIM][{}] #{} FAIL {} body={} (patientId={})",
-                                f.getName(), count, resp.statusCode(), resp.body(), patientId);
+        @Override
+        public boolean next(StringBuilder json, List<Patient> senders) throws IOException {
+            while (current < files.size()) {
+                CsvReplay csv = files.get(current);
+                if (!csv.next()) {
+                    log.info("[SIM] Fim do arquivo {} (linhas={})", csv.path().getFileName(), csv.lines());
+                    current++;
+                    if (current == files.size() && loop) {
+                        current = 0;
+                        for (CsvReplay f : files) f.rewind();
                     }
-
-                } catch (Exception e) {
-                    log.error("[SIM][{}] Linha #{} ERRO: {}", f.getName(), count, e.getMessage(), e);
+                    continue;
+                }
+                Patient p = patient(csv);
+                if (p == null) {
+                    skipped++;
+                    continue;
                 }
+                long ts = csv.epochMillis(0);
+                appendReading(json, p, csv.intField(4), csv.doubleField(5), csv.doubleField(6), csv.doubleField(7),
+                        csv.doubleField(8), csv.intField(9), csv.text(10),
+                        ts == CsvReplay.MISSING_TIMESTAMP ? System.currentTimeMillis() : ts);
+                senders.add(p);
+                sent++;
+                return true;
             }
-            log.info("[SIM] Fim do arquivo {} (linhas processadas={})", f.getName(), count);
-        } catch (Exception e) {
-            log.error("[SIM][ERRO] Falha lendo {}: {}", f.getAbsolutePath(), e.getMessage(), e);
+            return false;
         }
-    }
-
-    private static boolean isBlank(String s) {
-        return s == null || s.isBlank();
-    }
 
-    private static String safeTrim(String[] arr, int idx) {
-        if (arr == null || idx < 0 || idx >= arr.length) return null;
-        String s = arr[idx];
-        if (s == null) return null;
-        s = s.trim();
+        private Patient patient(CsvReplay csv) {
+            String id = csv.text(1);
+            if (id == null) return null;
+            Patient p = patients.get(id);
+            if (p == null) {
+                String name = csv.string(2);
+                String cpf = csv.string(3);
+                if (name == null || cpf == null) return null;
+                p = new Patient(id, name, cpf, List.of(), 0);
+                patients.put(id, p);
+            }
+            return p;
+        }
 
-        if (s.length() >= 2 && s.startsWith("\"") && s.endsWith("\"")) {
-            s = s.substring(1, s.length() - 1).trim();
+        @Override
+        public void close() throws IOException {
+            log.info("[SIM] Replay: leituras={} puladas={} pacientes={}", sent, skipped, patients.size());
+            for (CsvReplay f : files) f.close();
         }
-        return s;
     }
 
-    private static String normalizeNum(String s) {
-        if (s == null) return null;
-        String n = s.trim();
-        if (n.isEmpty()) return null;
-        n = n.replace(',', '.').replaceAll("[^0-9+\\-.]", "");
-        return n.isEmpty() ? null : n;
+    private HttpRequest request(String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(uri)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .timeout(Duration.ofMillis(options.timeoutMs()))
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+
+        if (options.token() != null) {
+            builder.header("Authorization", "Bearer " + options.token());
+        }
+        return builder.build();
     }
 
-    private static Integer parseIntSafe(String s) {
+    private void reportLoop(long start) {
+        long previousOk = 0;
+        long previousNanos = start;
         try {
-            String n = normalizeNum(s);
-            if (n == null) return null;
-            if (n.contains(".")) {
-                double d = Double.parseDouble(n);
-                return (int) Math.round(d);
+            while (true) {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(options.reportIntervalSeconds()));
+                long now = System.nanoTime();
+                long ok = readingsOk.sum();
+                log.info("[SIM] leituras ok={} falhas={} vazao={}/s emVoo={} p99={}ms",
+                        ok, readingsFailed.sum(), String.format("%.0f", (ok - previousOk) * 1e9 / (now - previousNanos)),
+                        options.maxInFlight() - inFlight.availablePermits(), millis(latency.percentile(0.99)));
+                previousOk = ok;
+                previousNanos = now;
             }
-            return Integer.parseInt(n);
-        } catch (Exception e) {
-            return null;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    private static Double parseDoubleSafe(String s) {
-        try {
-            String n = normalizeNum(s);
-            if (n == null) return null;
-            return Double.parseDouble(n);
-        } catch (Exception e) {
-            return null;
+    private void report(long startNanos, long endNanos) {
+        double seconds = Math.max(1e-9, (endNanos - startNanos) / 1e9);
+        long requests = requestsOk.sum() + requestsFailed.sum();
+        log.info("[SIM] Relatório: duracao={}s requisicoes={} (ok={} falhas={}) leituras ok={} falhas={}",
+                String.format("%.1f", seconds), requests, requestsOk.sum(), requestsFailed.sum(),
+                readingsOk.sum(), readingsFailed.sum());
+        log.info("[SIM] Vazão: {} req/s, {} leituras/s (alvo {} leituras/s)",
+                String.format("%.1f", requests / seconds), String.format("%.1f", readingsOk.sum() / seconds),
+                options.rate() > 0 ? String.format("%.1f", options.rate()) : "máx");
+        log.info("[SIM] Latência (ms): média={} p50={} p90={} p99={} p99.9={} max={}",
+                millis((long) latency.mean()), millis(latency.percentile(0.50)), millis(latency.percentile(0.90)),
+                millis(latency.percentile(0.99)), millis(latency.percentile(0.999)), millis(latency.max()));
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+
+    /**
+     * Pacientes simulados: o i-ésimo usa o modelo {@code i % modelos} com deslocamento próprio nas leituras,
+     * para que os pacientes não enviem a mesma série em fase. Sem CSV legível, as leituras são aleatórias.
+     */
+    static Patient[] synthesize(int count, List<Template> templates) {
+        List<Template> sources = templates.isEmpty() ? List.of(randomTemplate()) : templates;
+        Patient[] out = new Patient[count];
+        for (int i = 0; i < count; i++) {
+            Template t = sources.get(i % sources.size());
+            int offset = (int) ((i * 7919L) % t.readings().size());
+            if (i < templates.size() && t.patientId() != null && t.patientName() != null && t.patientCpf() != null) {
+                out[i] = new Patient(t.patientId(), t.patientName(), t.patientCpf(), t.readings(), offset);
+            } else {
+                int n = i + 1;
+                out[i] = new Patient(String.format("SIM%06d", n), "Paciente Simulado " + n,
+                        String.format("%011d", 10_000_000_000L + n), t.readings(), offset);
+            }
         }
+        return out;
     }
 
-    private static String normalizeTimestamp(String raw) {
-        String s = raw == null ? "" : raw.trim();
-        if (s.isEmpty()) return LocalDateTime.now().toString();
-
-        if (s.matches("^\\d{2}:\\d{2}:\\d{2}(\\.\\d+)?$")) {
-            var timeOnly = new DateTimeFormatterBuilder()
-                    .appendPattern("HH:mm:ss")
-                    .optionalStart().appendLiteral('.').appendFraction(ChronoField.NANO_OF_SECOND, 1, 9, false).optionalEnd()
-                    .toFormatter();
-            LocalTime t = LocalTime.parse(s, timeOnly);
-            return LocalDateTime.of(LocalDate.now(), t).toString();
+    private static Template randomTemplate() {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        List<Reading> readings = new ArrayList<>(256);
+        for (int i = 0; i < 256; i++) {
+            readings.add(new Reading(60 + rnd.nextInt(40), 94 + rnd.nextDouble(5), 110 + rnd.nextDouble(20),
+                    70 + rnd.nextDouble(15), 36 + rnd.nextDouble(1.5), 12 + rnd.nextInt(8), "NORMAL"));
         }
+        return new Template(null, null, null, readings);
+    }
 
-        try {
-            var br = new DateTimeFormatterBuilder()
-                    .appendPattern("dd/MM/uuuu HH:mm:ss")
-                    .optionalStart().appendLiteral('.').appendFraction(ChronoField.NANO_OF_SECOND, 1, 9, false).optionalEnd()
-                    .toFormatter();
-            return LocalDateTime.parse(s, br).toString();
-        } catch (Exception ignore) {}
+    static List<Template> loadTemplates(List<String> files) {
+        List<Template> templates = new ArrayList<>();
+        for (String file : files) {
+            if (isBlank(file)) continue;
+            Template t = loadTemplate(new File(BASE_DIR, file.trim()));
+            if (t != null) templates.add(t);
+        }
+        return templates;
+    }
 
-        try {
-            var isoT = new DateTimeFormatterBuilder()
-                    .appendPattern("uuuu-MM-dd'T'HH:mm:ss")
-                    .optionalStart().appendLiteral('.').appendFraction(ChronoField.NANO_OF_SECOND, 1, 9, false).optionalEnd()
-                    .toFormatter();
-            return LocalDateTime.parse(s, isoT).toString();
-        } catch (Exception ignore) {}
+    private static Template loadTemplate(File f) {
+        if (!f.exists()) {
+            log.warn("[SIM] Modelo não encontrado: {}", f.getAbsolutePath());
+            return null;
+        }
+        String patientId = null;
+        String patientName = null;
+        String patientCpf = null;
+        List<Reading> readings = new ArrayList<>();
+        try (CsvReplay csv = CsvReplay.open(f.toPath())) {
+            while (csv.next()) {
+                if (patientId == null) patientId = csv.text(1);
+                if (patientName == null) patientName = csv.string(2);
+                if (patientCpf == null) patientCpf = csv.string(3);
+                readings.add(new Reading(csv.intField(4), csv.doubleField(5), csv.doubleField(6),
+                        csv.doubleField(7), csv.doubleField(8), csv.intField(9), csv.text(10)));
+            }
+        } catch (IOException e) {
+            log.error("[SIM][ERRO] Falha lendo {}: {}", f.getAbsolutePath(), e.getMessage(), e);
+            return null;
+        }
+        if (readings.isEmpty()) {
+            log.warn("[SIM] Modelo sem leituras: {}", f.getAbsolutePath());
+            return null;
+        }
+        log.info("[SIM] Modelo {}: paciente={} leituras={}", f.getName(), patientId, readings.size());
+        return new Template(patientId, patientName, patientCpf, List.copyOf(readings));
+    }
 
-        try {
-            var isoSpace = new DateTimeFormatterBuilder()
-                    .appendPattern("uuuu-MM-dd HH:mm:ss")
-                    .optionalStart().appendLiteral('.').appendFraction(ChronoField.NANO_OF_SECOND, 1, 9, false).optionalEnd()
-                    .toFormatter();
-            return LocalDateTime.parse(s, isoSpace).toString();
-        } catch (Exception ignore) {}
-
-        log.warn("[SIM] timestamp inválido no CSV: '{}', usando agora()", s);
-        return LocalDateTime.now().toString();
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
     }
 }
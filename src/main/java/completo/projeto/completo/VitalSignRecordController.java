@@ -1,15 +1,33 @@
 package completo.projeto.completo;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import completo.projeto.completo.dto.VitalSignBatchResultDTO;
+import completo.projeto.completo.dto.VitalSignHistoryPageDTO;
+import completo.projeto.completo.dto.VitalSignImportResultDTO;
 import completo.projeto.completo.dto.VitalSignRecordDTO;
+import completo.projeto.completo.dto.VitalSignSeriesDTO;
+import completo.projeto.completo.service.VitalSignImportService;
 import completo.projeto.completo.service.VitalSignRecordService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 @Slf4j
 @Validated
@@ -18,49 +36,169 @@ import java.util.List;
 public class VitalSignRecordController {
 
     private final VitalSignRecordService service;
+    private final VitalSignImportService importService;
+    private final ObjectWriter ndjsonWriter;
 
-    public VitalSignRecordController(VitalSignRecordService service) {
+    public VitalSignRecordController(VitalSignRecordService service, VitalSignImportService importService,
+                                     ObjectMapper objectMapper) {
         this.service = service;
+        this.importService = importService;
+        this.ndjsonWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @PostMapping
     public ResponseEntity<VitalSignRecordDTO> create(@Valid @RequestBody VitalSignRecordDTO in) {
-        log.info("api=create_vital_signs action=start patientId={}", in.patientId());
+        log.debug("api=create_vital_signs action=start patientId={}", in.patientId());
         VitalSignRecordDTO saved = service.create(in);
-        log.info("api=create_vital_signs action=success patientId={} status=CREATED", saved.patientId());
-        return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+        HttpStatus status = service.isWriteBehind() ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+        log.debug("api=create_vital_signs action=success patientId={} status={}", saved.patientId(), status);
+        return ResponseEntity.status(status).body(saved);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<VitalSignBatchResultDTO> createBatch(@RequestBody List<VitalSignRecordDTO> in) {
+        log.debug("api=create_vital_signs_batch action=start size={}", in.size());
+        VitalSignBatchResultDTO result = service.createBatch(in);
+        HttpStatus status = result.saved() > 0 ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST;
+        log.debug("api=create_vital_signs_batch action=success saved={} failed={} status={}",
+                result.saved(), result.failed(), status);
+        return ResponseEntity.status(status).body(result);
+    }
+
+    /** Importa um CSV no formato {@code dados_pac*.csv} enviado como corpo ({@code text/csv}). */
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<VitalSignImportResultDTO> importCsv(HttpServletRequest request,
+                                                              @RequestParam(required = false) String date) throws IOException {
+        return importFrom(request.getInputStream(), date);
+    }
+
+    /** Mesmo que {@link #importCsv}, com o arquivo no campo {@code file} de um formulário multipart. */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<VitalSignImportResultDTO> importCsvFile(@RequestParam("file") MultipartFile file,
+                                                                  @RequestParam(required = false) String date) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return importFrom(in, date);
+        }
+    }
+
+    private ResponseEntity<VitalSignImportResultDTO> importFrom(InputStream in, String date) throws IOException {
+        log.debug("api=import_vital_signs action=start date={}", date);
+        VitalSignImportResultDTO result = importService.importCsv(in, date);
+        HttpStatus status = result.imported() > 0 ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST;
+        log.debug("api=import_vital_signs action=success imported={} rejected={} status={}",
+                result.imported(), result.rejected(), status);
+        return ResponseEntity.status(status).body(result);
+    }
+
+    @GetMapping("/patient/{id}")
+    public List<VitalSignRecordDTO> getRangeByPatient(
+            @PathVariable("id") String patientId,
+            @RequestParam(name = "from", required = false) String from,
+            @RequestParam(name = "to", required = false) String to,
+            @RequestParam(name = "limit", defaultValue = "500") int limit) {
+        log.debug("api=get_range_by_patient action=start patientId={} from={} to={} limit={}", patientId, from, to, limit);
+        List<VitalSignRecordDTO> out = service.getRangeByPatientId(patientId, from, to, limit);
+        log.debug("api=get_range_by_patient action=success patientId={} count={}", patientId, out.size());
+        return out;
+    }
+
+    @GetMapping("/patient/{id}/series")
+    public VitalSignSeriesDTO getSeriesByPatient(
+            @PathVariable("id") String patientId,
+            @RequestParam(name = "from", required = false) String from,
+            @RequestParam(name = "to", required = false) String to,
+            @RequestParam(name = "bucket", defaultValue = "1m") String bucket,
+            @RequestParam(name = "metric", required = false) String metric) {
+        log.debug("api=get_series_by_patient action=start patientId={} from={} to={} bucket={} metric={}",
+                patientId, from, to, bucket, metric);
+        VitalSignSeriesDTO out = service.getSeriesByPatientId(patientId, from, to, bucket, metric);
+        log.debug("api=get_series_by_patient action=success patientId={} buckets={}", patientId, out.buckets().size());
+        return out;
     }
 
     @GetMapping("/patient/{id}/latest")
     public List<VitalSignRecordDTO> getLatestByPatient(@PathVariable("id") String patientId) {
-        log.info("api=get_latest_by_patient action=start patientId={}", patientId);
+        log.debug("api=get_latest_by_patient action=start patientId={}", patientId);
         List<VitalSignRecordDTO> out = service.getLatestByPatientId(patientId);
-        log.info("api=get_latest_by_patient action=success patientId={} count={}", patientId, out.size());
+        log.debug("api=get_latest_by_patient action=success patientId={} count={}", patientId, out.size());
         return out;
     }
 
     @GetMapping("/patient/{id}/history")
     public List<VitalSignRecordDTO> getHistoryByPatient(@PathVariable("id") String patientId) {
-        log.info("api=get_history_by_patient action=start patientId={}", patientId);
+        log.debug("api=get_history_by_patient action=start patientId={}", patientId);
         List<VitalSignRecordDTO> out = service.getHistoryByPatientId(patientId);
-        log.info("api=get_history_by_patient action=success patientId={} count={}", patientId, out.size());
+        log.debug("api=get_history_by_patient action=success patientId={} count={}", patientId, out.size());
+        return out;
+    }
+
+    @GetMapping(value = "/patient/{id}/history/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamHistoryByPatient(@PathVariable("id") String patientId) {
+        log.debug("api=stream_history_by_patient action=start patientId={}", patientId);
+        return ndjson(sink -> service.streamHistoryByPatientId(patientId, sink));
+    }
+
+    @GetMapping("/patient/{id}/history/page")
+    public VitalSignHistoryPageDTO getHistoryPageByPatient(
+            @PathVariable("id") String patientId,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        log.debug("api=get_history_page_by_patient action=start patientId={} after={} limit={}", patientId, after, limit);
+        VitalSignHistoryPageDTO out = service.getHistoryPageByPatientId(patientId, after, limit);
+        log.debug("api=get_history_page_by_patient action=success patientId={} count={}", patientId, out.items().size());
         return out;
     }
 
     @GetMapping("/latest")
     public List<VitalSignRecordDTO> getLatestAll(
             @RequestParam(name = "limit", defaultValue = "50") int limit) {
-        log.info("api=get_latest_all action=start limit={}", limit);
+        log.debug("api=get_latest_all action=start limit={}", limit);
         List<VitalSignRecordDTO> out = service.getLatestAll(limit);
-        log.info("api=get_latest_all action=success limit={} count={}", limit, out.size());
+        log.debug("api=get_latest_all action=success limit={} count={}", limit, out.size());
         return out;
     }
 
     @GetMapping("/history")
     public List<VitalSignRecordDTO> getHistoryAll() {
-        log.info("api=get_history_all action=start");
+        log.debug("api=get_history_all action=start");
         List<VitalSignRecordDTO> out = service.getHistoryAll();
-        log.info("api=get_history_all action=success count={}", out.size());
+        log.debug("api=get_history_all action=success count={}", out.size());
         return out;
     }
+
+    @GetMapping(value = "/history/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamHistoryAll() {
+        log.debug("api=stream_history_all action=start");
+        return ndjson(service::streamHistoryAll);
+    }
+
+    @GetMapping("/history/page")
+    public VitalSignHistoryPageDTO getHistoryPage(
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        log.debug("api=get_history_page action=start after={} limit={}", after, limit);
+        VitalSignHistoryPageDTO out = service.getHistoryPage(after, limit);
+        log.debug("api=get_history_page action=success count={}", out.items().size());
+        return out;
+    }
+
+    /**
+     * Escreve cada DTO como uma linha JSON (NDJSON) diretamente na resposta, sem acumular em memória.
+     */
+    private ResponseEntity<StreamingResponseBody> ndjson(ToLongFunction<Consumer<VitalSignRecordDTO>> export) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator gen = ndjsonWriter.createGenerator(out)) {
+                long count = export.applyAsLong(dto -> {
+                    try {
+                        ndjsonWriter.writeValue(gen, dto);
+                        gen.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                log.debug("api=stream_history action=success count={}", count);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
 }
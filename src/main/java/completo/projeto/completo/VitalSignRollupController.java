@@ -0,0 +1,44 @@
+package completo.projeto.completo;
+
+import completo.projeto.completo.dto.RollupCheckResultDTO;
+import completo.projeto.completo.dto.RollupRebuildResultDTO;
+import completo.projeto.completo.mapper.TimestampCodec;
+import completo.projeto.completo.service.VitalSignRollupService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/vital-signs/rollups")
+public class VitalSignRollupController {
+
+    private final VitalSignRollupService rollupService;
+    private final TimestampCodec timestampCodec;
+
+    public VitalSignRollupController(VitalSignRollupService rollupService, TimestampCodec timestampCodec) {
+        this.rollupService = rollupService;
+        this.timestampCodec = timestampCodec;
+    }
+
+    @PostMapping("/rebuild")
+    public RollupRebuildResultDTO rebuild(
+            @RequestParam(name = "patientId", required = false) String patientId,
+            @RequestParam(name = "from") String from,
+            @RequestParam(name = "to") String to) {
+        log.info("api=rebuild_rollups action=start patientId={} from={} to={}", patientId, from, to);
+        RollupRebuildResultDTO out = rollupService.rebuild(patientId, timestampCodec.parse(from), timestampCodec.parse(to));
+        log.info("api=rebuild_rollups action=success patientId={} rollupRows={}", patientId, out.rollupRows());
+        return out;
+    }
+
+    @GetMapping("/check")
+    public RollupCheckResultDTO check(
+            @RequestParam(name = "patientId", required = false) String patientId,
+            @RequestParam(name = "from") String from,
+            @RequestParam(name = "to") String to) {
+        log.info("api=check_rollups action=start patientId={} from={} to={}", patientId, from, to);
+        RollupCheckResultDTO out = rollupService.check(patientId, timestampCodec.parse(from), timestampCodec.parse(to));
+        log.info("api=check_rollups action=success patientId={} mismatches={}", patientId, out.mismatches());
+        return out;
+    }
+}
@@ -0,0 +1,131 @@
+package completo.projeto.completo.config;
+
+import completo.projeto.completo.service.IngestWriteAheadLog;
+import completo.projeto.completo.service.LatestReadingsBuffer;
+import completo.projeto.completo.service.PatientIdentityCache;
+import completo.projeto.completo.service.VitalSignRetentionService;
+import completo.projeto.completo.service.VitalSignRollupService;
+import completo.projeto.completo.service.WriteBehindIngestQueue;
+import completo.projeto.completo.websocket.BroadcastDispatcher;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gauges e contadores lidos dos componentes em memória (cache de identidade, buffer das últimas
+ * leituras, deltas de rollup, fila de gravação write-behind, fila de broadcast e retenção) no momento da coleta, sem custo no caminho quente.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder identityCacheMetrics(PatientIdentityCache cache) {
+        return registry -> {
+            Gauge.builder("vital_signs.identity_cache.size", cache, PatientIdentityCache::size)
+                    .description("Pacientes no cache de identidade")
+                    .register(registry);
+            FunctionCounter.builder("vital_signs.identity_cache.requests", cache, PatientIdentityCache::hits)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("vital_signs.identity_cache.requests", cache, PatientIdentityCache::misses)
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("vital_signs.identity_cache.evictions", cache, PatientIdentityCache::evictions)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder bufferMetrics(LatestReadingsBuffer latestBuffer, VitalSignRollupService rollupService) {
+        return registry -> {
+            Gauge.builder("vital_signs.latest_buffer.patients", latestBuffer, LatestReadingsBuffer::size)
+                    .description("Pacientes acompanhados pelo buffer das últimas leituras")
+                    .register(registry);
+            Gauge.builder("vital_signs.rollup.pending", rollupService, VitalSignRollupService::pendingSize)
+                    .description("Chaves de rollup aguardando o próximo flush")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder writeBehindMetrics(WriteBehindIngestQueue queue, IngestWriteAheadLog wal) {
+        return registry -> {
+            Gauge.builder("vital_signs.write_behind.queue_depth", queue, WriteBehindIngestQueue::queueDepth)
+                    .description("Leituras aceitas aguardando gravação")
+                    .register(registry);
+            FunctionCounter.builder("vital_signs.write_behind.readings", queue, WriteBehindIngestQueue::written)
+                    .tag("outcome", "written")
+                    .register(registry);
+            FunctionCounter.builder("vital_signs.write_behind.readings", queue, WriteBehindIngestQueue::failed)
+                    .tag("outcome", "failed")
+                    .register(registry);
+            FunctionCounter.builder("vital_signs.write_behind.readings", queue, WriteBehindIngestQueue::throttled)
+                    .tag("outcome", "throttled")
+                    .register(registry);
+            FunctionCounter.builder("vital_signs.write_behind.flushes", queue, WriteBehindIngestQueue::flushes)
+                    .description("Transações de grupo executadas pelo escritor")
+                    .register(registry);
+            FunctionTimer.builder("vital_signs.write_behind.lag", queue,
+                            WriteBehindIngestQueue::written, WriteBehindIngestQueue::lagNanosTotal, TimeUnit.NANOSECONDS)
+                    .description("Tempo entre aceitar a leitura e o commit do grupo")
+                    .register(registry);
+            Gauge.builder("vital_signs.wal.segments", wal, IngestWriteAheadLog::segmentCount)
+                    .description("Segmentos do WAL ainda com leituras não gravadas no banco")
+                    .register(registry);
+            FunctionCounter.builder("vital_signs.wal.appends", wal, IngestWriteAheadLog::appends)
+                    .register(registry);
+            FunctionTimer.builder("vital_signs.wal.fsync", wal,
+                            IngestWriteAheadLog::syncs, IngestWriteAheadLog::syncNanosTotal, TimeUnit.NANOSECONDS)
+                    .description("fsync em grupo do segmento ativo")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder retentionMetrics(VitalSignRetentionService retention) {
+        return registry -> {
+            FunctionCounter.builder("vital_signs.retention.purged", retention, VitalSignRetentionService::purgedRaw)
+                    .tag("table", "raw")
+                    .description("Linhas apagadas pela retenção")
+                    .register(registry);
+            FunctionCounter.builder("vital_signs.retention.purged", retention, VitalSignRetentionService::purgedRollups)
+                    .tag("table", "rollup")
+                    .description("Linhas apagadas pela retenção")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder broadcastMetrics(BroadcastDispatcher dispatcher) {
+        return registry -> {
+            Gauge.builder("vital_signs.broadcast.queue_depth", dispatcher, BroadcastDispatcher::queueDepth)
+                    .description("Frames STOMP aguardando envio")
+                    .register(registry);
+            FunctionCounter.builder("vital_signs.broadcast.frames", dispatcher, BroadcastDispatcher::sent)
+                    .tag("outcome", "sent")
+                    .register(registry);
+            FunctionCounter.builder("vital_signs.broadcast.frames", dispatcher, BroadcastDispatcher::failed)
+                    .tag("outcome", "failed")
+                    .register(registry);
+            FunctionCounter.builder("vital_signs.broadcast.frames", dispatcher, BroadcastDispatcher::dropped)
+                    .tag("outcome", "dropped")
+                    .register(registry);
+            FunctionCounter.builder("vital_signs.broadcast.frames", dispatcher, BroadcastDispatcher::coalesced)
+                    .tag("outcome", "coalesced")
+                    .register(registry);
+            FunctionTimer.builder("vital_signs.broadcast.send", dispatcher,
+                            d -> d.sent() + d.failed(), BroadcastDispatcher::sendNanosTotal, TimeUnit.NANOSECONDS)
+                    .description("Tempo em convertAndSend")
+                    .register(registry);
+            FunctionTimer.builder("vital_signs.broadcast.queue_wait", dispatcher,
+                            d -> d.sent() + d.failed(), BroadcastDispatcher::queueWaitNanosTotal, TimeUnit.NANOSECONDS)
+                    .description("Tempo dos frames na fila antes do envio")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,92 @@
+package completo.projeto.completo.config;
+
+import completo.projeto.completo.security.CryptoUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Migra bancos criados antes da tabela {@code patient}: quando {@code vital_sign_record} ainda tem
+ * as colunas de identidade, copia a identidade da leitura mais recente de cada paciente para
+ * {@code patient}, calcula o índice cego que faltar (um decrypt por paciente) e remove as colunas
+ * antigas. Em bancos novos não faz nada.
+ * <p>
+ * Roda na criação do bean, antes do EntityManagerFactory ({@link SchemaMigrationConfig}): só com JDBC e
+ * transações do próprio DataSource, criando {@code patient} se o Hibernate ainda não o fez.
+ */
+@Slf4j
+@Component
+public class PatientNormalizationMigration implements InitializingBean {
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final CryptoUtil cryptoUtil;
+
+    public PatientNormalizationMigration(DataSource dataSource, CryptoUtil cryptoUtil) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        // o JpaTransactionManager depende do EntityManagerFactory, que ainda não existe
+        this.tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.cryptoUtil = cryptoUtil;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        run();
+    }
+
+    public void run() {
+        if (!hasLegacyColumn("PATIENT_NAME")) return;
+        long start = System.nanoTime();
+        boolean hasHash = hasLegacyColumn("PATIENT_CPF_HASH");
+
+        Integer patients = tx.execute(status -> {
+            // mesmo esquema que o Hibernate gera para Patient; o índice por cpf_hash ele acrescenta depois
+            jdbc.execute("CREATE TABLE IF NOT EXISTS patient (patient_id VARCHAR(255) NOT NULL PRIMARY KEY, " +
+                    "name VARCHAR(255) NOT NULL, encrypted_cpf VARCHAR(255) NOT NULL, cpf_hash VARCHAR(255), version BIGINT)");
+            int copied = jdbc.update(
+                    "MERGE INTO patient (patient_id, name, encrypted_cpf, cpf_hash, version) KEY (patient_id) " +
+                    "SELECT r.patient_id, r.patient_name, r.patient_cpf, " +
+                    (hasHash ? "r.patient_cpf_hash" : "NULL") + ", 0 " +
+                    "FROM vital_sign_record r " +
+                    "WHERE r.timestamp = (SELECT MAX(r2.timestamp) FROM vital_sign_record r2 " +
+                    "WHERE r2.patient_id = r.patient_id)");
+            jdbc.execute("DROP INDEX IF EXISTS idx_vital_sign_cpf_hash");
+            jdbc.execute("ALTER TABLE vital_sign_record DROP COLUMN IF EXISTS patient_name");
+            jdbc.execute("ALTER TABLE vital_sign_record DROP COLUMN IF EXISTS patient_cpf");
+            jdbc.execute("ALTER TABLE vital_sign_record DROP COLUMN IF EXISTS patient_cpf_hash");
+            return copied;
+        });
+
+        int[] hashed = {0};
+        int[] failed = {0};
+        // em transação: no perfil high-ingest o pool entrega conexões com auto-commit desligado
+        tx.executeWithoutResult(status -> {
+            List<Map<String, Object>> withoutHash = jdbc.queryForList(
+                    "SELECT patient_id, encrypted_cpf FROM patient WHERE cpf_hash IS NULL");
+            for (Map<String, Object> row : withoutHash) {
+                try {
+                    String hash = cryptoUtil.blindIndex(cryptoUtil.decrypt((String) row.get("ENCRYPTED_CPF")));
+                    hashed[0] += jdbc.update("UPDATE patient SET cpf_hash = ? WHERE patient_id = ?", hash, row.get("PATIENT_ID"));
+                } catch (RuntimeException e) {
+                    failed[0]++;
+                }
+            }
+        });
+        log.info("domain=patient event=normalize_migration_ok patients={} cpfHashFilled={} cpfHashFailed={} elapsedMs={}",
+                patients, hashed[0], failed[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private boolean hasLegacyColumn(String column) {
+        Integer count = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_NAME = 'VITAL_SIGN_RECORD' AND COLUMN_NAME = ?", Integer.class, column);
+        return count != null && count > 0;
+    }
+}
@@ -0,0 +1,46 @@
+package completo.projeto.completo.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Deixa passar, em média, 1 de cada {@code rate} eventos INFO dos loggers configurados
+ * (prefixo do nome); WARN/ERROR e os demais loggers não são afetados.
+ * <p>
+ * Como é um {@link TurboFilter}, a decisão acontece antes de o evento ser criado e a mensagem
+ * formatada: os eventos descartados custam só um número aleatório. Usado no perfil
+ * {@code fast-logging} (ver {@code logback-spring.xml}).
+ */
+public class SampledInfoTurboFilter extends TurboFilter {
+
+    private final List<String> sampledLoggers = new ArrayList<>();
+    private int rate = 1;
+
+    public void addSampledLogger(String prefix) {
+        sampledLoggers.add(prefix.trim());
+    }
+
+    public void setRate(int rate) {
+        this.rate = Math.max(1, rate);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (rate == 1 || level != Level.INFO || !isSampled(logger.getName())) return FilterReply.NEUTRAL;
+        return ThreadLocalRandom.current().nextInt(rate) == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private boolean isSampled(String loggerName) {
+        for (String prefix : sampledLoggers) {
+            if (loggerName.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+}
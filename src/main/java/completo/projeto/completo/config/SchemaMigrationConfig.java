@@ -0,0 +1,19 @@
+package completo.projeto.completo.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * As migrações de esquema rodam antes do EntityManagerFactory, portanto antes do {@code ddl-auto}, do replay
+ * do WAL, dos jobs agendados e do Tomcat aceitar requisições: nada lê nem grava no esquema antigo.
+ */
+@Configuration
+public class SchemaMigrationConfig {
+
+    @Bean
+    static EntityManagerFactoryDependsOnPostProcessor entityManagerFactoryDependsOnSchemaMigrations() {
+        return new EntityManagerFactoryDependsOnPostProcessor(
+                PatientNormalizationMigration.class, TimestampColumnMigration.class);
+    }
+}
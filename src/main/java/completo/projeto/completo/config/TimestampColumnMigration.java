@@ -0,0 +1,70 @@
+package completo.projeto.completo.config;
+
+import completo.projeto.completo.mapper.TimestampCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Migra bancos criados quando os instantes eram {@code LocalDateTime} (coluna {@code TIMESTAMP}
+ * sem fuso) para {@code TIMESTAMP WITH TIME ZONE}. Os valores antigos são interpretados no fuso
+ * padrão ({@code vital-signs.time.default-zone}), o mesmo usado para timestamps sem offset na API.
+ * Em bancos novos não faz nada. Roda na criação do bean, antes do EntityManagerFactory
+ * ({@link SchemaMigrationConfig}).
+ */
+@Slf4j
+@Component
+public class TimestampColumnMigration implements InitializingBean {
+
+    private static final List<String[]> COLUMNS = List.of(
+            new String[]{"VITAL_SIGN_RECORD", "TIMESTAMP"},
+            new String[]{"VITAL_SIGN_ROLLUP", "BUCKET_START"});
+
+    private final JdbcTemplate jdbc;
+    private final TimestampCodec timestampCodec;
+
+    public TimestampColumnMigration(DataSource dataSource, TimestampCodec timestampCodec) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.timestampCodec = timestampCodec;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        run();
+    }
+
+    public void run() {
+        for (String[] column : COLUMNS) {
+            if (!isZonelessTimestamp(column[0], column[1])) continue;
+            long start = System.nanoTime();
+            // SET TIME ZONE vale para a sessão: conversão e reset na mesma conexão
+            jdbc.execute((ConnectionCallback<Void>) con -> {
+                try (Statement st = con.createStatement()) {
+                    st.execute("SET TIME ZONE '" + timestampCodec.defaultZone().getId() + "'");
+                    try {
+                        st.execute("ALTER TABLE " + column[0] + " ALTER COLUMN \"" + column[1] +
+                                "\" SET DATA TYPE TIMESTAMP(6) WITH TIME ZONE");
+                    } finally {
+                        st.execute("SET TIME ZONE LOCAL");
+                    }
+                }
+                return null;
+            });
+            log.info("domain=vital_sign event=timestamp_migration_ok table={} column={} zone={} elapsedMs={}",
+                    column[0], column[1], timestampCodec.defaultZone(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private boolean isZonelessTimestamp(String table, String column) {
+        List<String> types = jdbc.queryForList(
+                "SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = ? AND COLUMN_NAME = ?",
+                String.class, table, column);
+        return !types.isEmpty() && "TIMESTAMP".equals(types.get(0));
+    }
+}
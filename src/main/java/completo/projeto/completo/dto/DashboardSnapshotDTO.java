@@ -0,0 +1,10 @@
+package completo.projeto.completo.dto;
+
+import java.util.List;
+
+
+public record DashboardSnapshotDTO(
+        long sequence,
+        String generatedAt,
+        List<VitalSignRecordDTO> readings
+) {}
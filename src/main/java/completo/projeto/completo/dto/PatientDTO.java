@@ -0,0 +1,8 @@
+package completo.projeto.completo.dto;
+
+
+public record PatientDTO(
+        String patientId,
+        String patientName,
+        String patientCpf
+) {}
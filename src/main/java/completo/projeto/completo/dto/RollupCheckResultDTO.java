@@ -0,0 +1,13 @@
+package completo.projeto.completo.dto;
+
+import java.util.List;
+
+
+public record RollupCheckResultDTO(
+        String patientId,
+        String from,
+        String to,
+        long bucketsChecked,
+        long mismatches,
+        List<RollupMismatchDTO> samples
+) {}
@@ -0,0 +1,11 @@
+package completo.projeto.completo.dto;
+
+
+public record RollupMismatchDTO(
+        String patientId,
+        String resolution,
+        String metric,
+        String bucketStart,
+        VitalSignStatsDTO expected,
+        VitalSignStatsDTO actual
+) {}
@@ -0,0 +1,10 @@
+package completo.projeto.completo.dto;
+
+
+public record RollupRebuildResultDTO(
+        String patientId,
+        String from,
+        String to,
+        long rawRows,
+        long rollupRows
+) {}
@@ -0,0 +1,8 @@
+package completo.projeto.completo.dto;
+
+
+public record VitalSignBatchErrorDTO(
+        int index,
+        String patientId,
+        String message
+) {}
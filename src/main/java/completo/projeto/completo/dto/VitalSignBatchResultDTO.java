@@ -0,0 +1,11 @@
+package completo.projeto.completo.dto;
+
+import java.util.List;
+
+
+public record VitalSignBatchResultDTO(
+        int received,
+        int saved,
+        int failed,
+        List<VitalSignBatchErrorDTO> errors
+) {}
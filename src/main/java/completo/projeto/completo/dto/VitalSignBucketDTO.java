@@ -0,0 +1,9 @@
+package completo.projeto.completo.dto;
+
+import java.util.Map;
+
+
+public record VitalSignBucketDTO(
+        String start,
+        Map<String, VitalSignStatsDTO> metrics
+) {}
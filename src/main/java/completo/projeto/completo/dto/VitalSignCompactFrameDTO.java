@@ -0,0 +1,30 @@
+package completo.projeto.completo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+
+/**
+ * Frame compacto de sinais vitais (tópicos {@code /topic/patient/{id}/compact}).
+ * <p>
+ * {@code k=1} marca um quadro-chave, com identidade ({@code n}, {@code c}) e todos os valores;
+ * os demais trazem apenas os campos que mudaram desde o frame anterior (campo ausente = sem mudança;
+ * um valor que passa a null sempre chega num quadro-chave, onde ausente = null). {@code s} é a sequência
+ * por paciente (um salto indica frame perdido: aguarde o próximo quadro-chave ou assine de novo
+ * {@code /app/patient/{id}/compact}) e {@code t} o timestamp em epoch millis (UTC).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record VitalSignCompactFrameDTO(
+        String p,
+        long s,
+        Long t,
+        Integer k,
+        String n,
+        String c,
+        Integer hr,
+        Double spo2,
+        Double sys,
+        Double dia,
+        Double temp,
+        Double rr,
+        String st
+) {}
@@ -0,0 +1,9 @@
+package completo.projeto.completo.dto;
+
+import java.util.List;
+
+
+public record VitalSignHistoryPageDTO(
+        List<VitalSignRecordDTO> items,
+        String nextCursor
+) {}
@@ -0,0 +1,16 @@
+package completo.projeto.completo.dto;
+
+import java.util.List;
+
+/**
+ * Resumo de POST /api/v1/vital-signs/import; {@code errors} traz no máximo as primeiras 100 linhas
+ * recusadas, com {@code index} = número da linha no arquivo (cabeçalho = 1).
+ */
+public record VitalSignImportResultDTO(
+        long rows,
+        long imported,
+        long rejected,
+        int patients,
+        long elapsedMs,
+        List<VitalSignBatchErrorDTO> errors
+) {}
@@ -1,7 +1,16 @@
 package completo.projeto.completo.dto;
 
 
+import java.util.UUID;
+
+/**
+ * {@code id} é atribuído pelo servidor quando a leitura é aceita (também na resposta 202 do write-behind)
+ * e é ignorado na entrada.
+ * {@code timestamp} é ISO-8601 (na saída sempre UTC, ex.: {@code 2025-08-09T12:00:00.000Z});
+ * {@code timestampMillis} é o mesmo instante em epoch millis e, na entrada, tem precedência.
+ */
 public record VitalSignRecordDTO(
+        UUID id,
         String patientId,
         String patientName,
         String patientCpf,
@@ -12,5 +21,22 @@ public record VitalSignRecordDTO(
         Double temperature,
         Double respiratoryRate,
         String status,
-        String timestamp
-) {}
+        String timestamp,
+        Long timestampMillis
+) {
+
+    public VitalSignRecordDTO(String patientId, String patientName, String patientCpf, Integer heartRate,
+                              Double oxygenSaturation, Double systolicPressure, Double diastolicPressure,
+                              Double temperature, Double respiratoryRate, String status, String timestamp,
+                              Long timestampMillis) {
+        this(null, patientId, patientName, patientCpf, heartRate, oxygenSaturation, systolicPressure,
+                diastolicPressure, temperature, respiratoryRate, status, timestamp, timestampMillis);
+    }
+
+    public VitalSignRecordDTO(String patientId, String patientName, String patientCpf, Integer heartRate,
+                              Double oxygenSaturation, Double systolicPressure, Double diastolicPressure,
+                              Double temperature, Double respiratoryRate, String status, String timestamp) {
+        this(patientId, patientName, patientCpf, heartRate, oxygenSaturation, systolicPressure,
+                diastolicPressure, temperature, respiratoryRate, status, timestamp, null);
+    }
+}
@@ -0,0 +1,13 @@
+package completo.projeto.completo.dto;
+
+import java.util.List;
+
+
+public record VitalSignSeriesDTO(
+        String patientId,
+        String from,
+        String to,
+        String bucket,
+        List<String> metrics,
+        List<VitalSignBucketDTO> buckets
+) {}
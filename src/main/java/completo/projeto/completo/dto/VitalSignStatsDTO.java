@@ -0,0 +1,9 @@
+package completo.projeto.completo.dto;
+
+
+public record VitalSignStatsDTO(
+        Double min,
+        Double max,
+        Double avg,
+        long count
+) {}
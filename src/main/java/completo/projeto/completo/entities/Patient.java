@@ -0,0 +1,38 @@
+package completo.projeto.completo.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Identidade do paciente, gravada uma única vez; as leituras ({@link VitalSignRecord})
+ * referenciam o paciente apenas por {@code patientId}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(indexes = {
+        // busca de paciente por CPF (GET /api/v1/patients?cpf=)
+        @Index(name = "idx_patient_cpf_hash", columnList = "cpfHash")
+})
+public class Patient {
+
+    @Id
+    private String patientId;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false)
+    private String encryptedCpf;        // AES-GCM, nunca logar
+
+    private String cpfHash;             // HMAC do CPF (índice cego), ver CryptoUtil.blindIndex
+
+    // null em pacientes novos: o Spring Data usa persist (sem SELECT prévio) e, nas alterações, lock otimista
+    @Version
+    private Long version;
+}
@@ -0,0 +1,28 @@
+package completo.projeto.completo.entities;
+
+import java.time.Instant;
+
+public enum RollupResolution {
+
+    MINUTE(60),
+    HOUR(3600);
+
+    private final long seconds;
+
+    RollupResolution(long seconds) {
+        this.seconds = seconds;
+    }
+
+    public long seconds() {
+        return seconds;
+    }
+
+    public Instant floor(Instant ts) {
+        return Instant.ofEpochSecond(Math.floorDiv(ts.getEpochSecond(), seconds) * seconds);
+    }
+
+    public Instant ceil(Instant ts) {
+        Instant floor = floor(ts);
+        return floor.equals(ts) ? floor : floor.plusSeconds(seconds);
+    }
+}
@@ -0,0 +1,51 @@
+package completo.projeto.completo.entities;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gera UUIDv7 monotônicos: {@code unix_ts_ms} (48 bits) | versão | contador de 12 bits | variante |
+ * 62 bits aleatórios. O contador começa num valor aleatório da metade inferior a cada milissegundo e
+ * é incrementado dentro dele; se estourar, ou se o relógio voltar, o instante avança 1 ms
+ * (RFC 9562, §6.2, método 1), de modo que cada chave é maior que a anterior neste processo.
+ * <p>
+ * O id de uma leitura é atribuído quando ela é aceita ({@code VitalSignRecordService}), antes de ir para a
+ * fila do write-behind e o WAL; {@link VitalSignRecord} só gera um quando a entidade chega sem id, e a
+ * importação via JDBC usa {@link #next()} diretamente. Com os 48 bits iniciais sendo o instante em ms,
+ * chaves novas entram sempre no fim do índice da chave primária.
+ * <p>
+ * Migração: o tipo da coluna não muda (UUID), então não há DDL. Linhas já gravadas mantêm o UUIDv4
+ * aleatório; as novas recebem v7. A mistura não afeta consultas: o id é só o desempate do cursor
+ * {@code <timestamp>,<id>}, e cursores emitidos antes da troca seguem válidos. Reescrever os ids antigos
+ * não é necessário; o ganho vem das inserções novas, que deixam de espalhar páginas pelo índice.
+ */
+public final class TimeOrderedUuidGenerator {
+
+    // (ms << 12) | contador da última chave emitida
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private TimeOrderedUuidGenerator() {
+    }
+
+    public static UUID next() {
+        long now = System.currentTimeMillis();
+        long prev;
+        long next;
+        do {
+            prev = LAST.get();
+            next = now > prev >>> 12
+                    ? now << 12 | ThreadLocalRandom.current().nextInt(1 << 11)
+                    : prev + 1;
+        } while (!LAST.compareAndSet(prev, next));
+
+        long msb = (next >>> 12) << 16 | 0x7000L | (next & 0xFFFL);
+        long lsb = ThreadLocalRandom.current().nextLong() >>> 2 | 0x8000_0000_0000_0000L;
+        return new UUID(msb, lsb);
+    }
+
+    /** Instante (ms) embutido numa chave gerada aqui. */
+    public static long timestampMillis(UUID id) {
+        return id.getMostSignificantBits() >>> 16;
+    }
+}
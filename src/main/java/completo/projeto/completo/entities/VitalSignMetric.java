@@ -0,0 +1,26 @@
+package completo.projeto.completo.entities;
+
+import java.util.function.Function;
+
+/**
+ * Sinais vitais numéricos agregáveis; o nome de cada constante é o mesmo campo do DTO.
+ */
+public enum VitalSignMetric {
+
+    heartRate(VitalSignRecord::getHeartRate),
+    oxygenSaturation(VitalSignRecord::getOxygenSaturation),
+    systolicPressure(VitalSignRecord::getSystolicPressure),
+    diastolicPressure(VitalSignRecord::getDiastolicPressure),
+    temperature(VitalSignRecord::getTemperature),
+    respiratoryRate(VitalSignRecord::getRespiratoryRate);
+
+    private final Function<VitalSignRecord, Number> accessor;
+
+    VitalSignMetric(Function<VitalSignRecord, Number> accessor) {
+        this.accessor = accessor;
+    }
+
+    public Number valueOf(VitalSignRecord r) {
+        return accessor.apply(r);
+    }
+}
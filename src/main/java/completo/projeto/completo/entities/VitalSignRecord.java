@@ -4,9 +4,13 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+import org.springframework.data.domain.Persistable;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
 import java.util.UUID;
 
 @Data
@@ -14,19 +18,24 @@ import java.util.UUID;
 @AllArgsConstructor
 @Builder
 @Entity
-public class VitalSignRecord {
+// leituras só são inseridas: o Hibernate não guarda snapshot nem faz dirty-checking delas no flush
+@Immutable
+@Table(indexes = {
+        // latest/history/range por paciente e paginação por keyset (timestamp, id)
+        @Index(name = "idx_vital_sign_patient_ts", columnList = "patientId, timestamp DESC, id DESC"),
+        // consultas globais ordenadas por timestamp (/latest, /history)
+        @Index(name = "idx_vital_sign_ts", columnList = "timestamp DESC, id DESC")
+})
+public class VitalSignRecord implements Persistable<UUID> {
 
+    // UUIDv7 (ordenado pelo tempo) atribuído na aceitação da leitura; linhas antigas mantêm o UUIDv4
+    // aleatório, ver TimeOrderedUuidGenerator
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
     private UUID id;
 
-    private String patientId;
-
+    // referência ao Patient (nome/CPF ficam só lá)
     @Column(nullable = false)
-    private String patientName;
-
-    @Column(nullable = false)
-    private String patientCpf;
+    private String patientId;
 
     private Integer heartRate;           // bpm
     private Double oxygenSaturation;    // SpO2 (%)
@@ -36,5 +45,28 @@ public class VitalSignRecord {
     private Double respiratoryRate;     // rpm
     private String status;               // NORMAL / ALERT
 
-    private LocalDateTime timestamp;
+    // instante UTC da leitura (TIMESTAMP WITH TIME ZONE)
+    private Instant timestamp;
+
+    // o id já vem preenchido: sem isto o save() do Spring Data faria merge (um SELECT por leitura)
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean persisted;
+
+    @PrePersist
+    void assignId() {
+        if (id == null) id = TimeOrderedUuidGenerator.next();
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
 }
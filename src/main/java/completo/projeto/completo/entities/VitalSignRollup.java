@@ -0,0 +1,50 @@
+package completo.projeto.completo.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Agregado (min/max/soma/contagem) de uma métrica de um paciente em um bucket de 1 minuto ou 1 hora.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_rollup_patient_res_metric_bucket",
+                columnNames = {"patientId", "resolution", "metric", "bucketStart"}),
+        indexes = @Index(name = "idx_rollup_res_bucket", columnList = "resolution, bucketStart")
+)
+public class VitalSignRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @Column(nullable = false)
+    private String patientId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private RollupResolution resolution;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private VitalSignMetric metric;
+
+    @Column(nullable = false)
+    private Instant bucketStart;
+
+    private double minValue;
+    private double maxValue;
+    private double sumValue;
+    private long sampleCount;
+}
@@ -4,10 +4,15 @@ import java.time.LocalDateTime;
 
 import javax.management.relation.RelationNotFoundException;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.servlet.NoHandlerFoundException;
 
 @RestControllerAdvice
@@ -25,6 +30,33 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(erro);
     }
 
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<ErroPadrao> handleResponseStatusException(ResponseStatusException ex) {
+        HttpStatus status = HttpStatus.valueOf(ex.getStatusCode().value());
+        ErroPadrao erro = new ErroPadrao(LocalDateTime.now(), status.value(), status.getReasonPhrase(), ex.getReason());
+        return ResponseEntity.status(status).body(erro);
+    }
+
+    @ExceptionHandler({MethodArgumentTypeMismatchException.class, MissingServletRequestParameterException.class})
+    public ResponseEntity<ErroPadrao> handleInvalidParameter(Exception ex) {
+        ErroPadrao erro = new ErroPadrao(LocalDateTime.now(), HttpStatus.BAD_REQUEST.value(), "Parâmetro inválido", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(erro);
+    }
+
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<ErroPadrao> handleMaxUploadSize(MaxUploadSizeExceededException ex) {
+        ErroPadrao erro = new ErroPadrao(LocalDateTime.now(), HttpStatus.PAYLOAD_TOO_LARGE.value(), "Arquivo muito grande",
+                "upload excede vital-signs.import.max-size; envie o CSV como corpo text/csv");
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(erro);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErroPadrao> handleOptimisticLocking(OptimisticLockingFailureException ex) {
+        ErroPadrao erro = new ErroPadrao(LocalDateTime.now(), HttpStatus.CONFLICT.value(), "Conflito de atualização",
+                "o registro foi alterado por outra requisição; tente novamente");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(erro);
+    }
+
     @ExceptionHandler(RelationNotFoundException.class)
     public ResponseEntity<ErroPadrao> handleRelationNotFoundException(RelationNotFoundException ex) {
         ErroPadrao erro = new ErroPadrao(LocalDateTime.now(), HttpStatus.NOT_FOUND.value(), "Recurso não encontrado", ex.getMessage());
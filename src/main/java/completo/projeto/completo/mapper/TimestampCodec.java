@@ -0,0 +1,224 @@
+package completo.projeto.completo.mapper;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * Conversão entre texto e {@link Instant} no caminho quente (ingestão e leitura).
+ * <p>
+ * O formato comum — {@code yyyy-MM-ddTHH:mm[:ss[.fração]]} com {@code Z}/offset opcional — é lido
+ * caractere a caractere, sem {@code DateTimeFormatter} nem objetos intermediários; demais formatos
+ * ISO-8601 caem no parser do JDK. Texto só com dígitos é tratado como epoch millis. Datas sem
+ * offset são interpretadas em {@code vital-signs.time.default-zone}.
+ * <p>
+ * A saída é sempre UTC com milissegundos ({@code 2025-08-09T12:00:00.000Z}), que ordena
+ * lexicograficamente na mesma ordem do tempo.
+ */
+@Component
+public class TimestampCodec {
+
+    private static final long DAYS_0000_TO_1970 = 719_468;
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private final ZoneId defaultZone;
+    private final ZoneOffset fixedDefaultOffset;
+
+    public TimestampCodec(@Value("${vital-signs.time.default-zone:UTC}") ZoneId defaultZone) {
+        this.defaultZone = defaultZone;
+        this.fixedDefaultOffset = defaultZone.getRules().isFixedOffset()
+                ? defaultZone.getRules().getOffset(Instant.EPOCH)
+                : null;
+    }
+
+    public ZoneId defaultZone() {
+        return defaultZone;
+    }
+
+    /**
+     * @throws IllegalArgumentException se o texto não for ISO-8601 nem epoch millis
+     */
+    public Instant parse(CharSequence text) {
+        Instant fast = parseFast(text);
+        if (fast != null) return fast;
+        try {
+            TemporalAccessor parsed = DateTimeFormatter.ISO_DATE_TIME.parseBest(text,
+                    OffsetDateTime::from, LocalDateTime::from);
+            if (parsed instanceof OffsetDateTime odt) return odt.toInstant();
+            return ((LocalDateTime) parsed).atZone(defaultZone).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("timestamp em formato inválido (use ISO-8601 ou epoch millis)", e);
+        }
+    }
+
+    public static String format(Instant ts) {
+        return ts == null ? null : formatMillis(ts.toEpochMilli());
+    }
+
+    public static String formatMillis(long epochMillis) {
+        long epochSecond = Math.floorDiv(epochMillis, 1000);
+        int millis = Math.floorMod(epochMillis, 1000);
+        long epochDay = Math.floorDiv(epochSecond, 86_400);
+        int secondOfDay = Math.floorMod(epochSecond, 86_400);
+
+        // civil_from_days (H. Hinnant)
+        long z = epochDay + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(z, 146_097);
+        long doe = z - era * 146_097;
+        long yoe = (doe - doe / 1460 + doe / 36_524 - doe / 146_096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            return DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(epochMillis));
+        }
+
+        char[] out = new char[24];
+        put4(out, 0, (int) year);
+        out[4] = '-';
+        put2(out, 5, month);
+        out[7] = '-';
+        put2(out, 8, day);
+        out[10] = 'T';
+        put2(out, 11, secondOfDay / 3600);
+        out[13] = ':';
+        put2(out, 14, secondOfDay / 60 % 60);
+        out[16] = ':';
+        put2(out, 17, secondOfDay % 60);
+        out[19] = '.';
+        out[20] = (char) ('0' + millis / 100);
+        out[21] = (char) ('0' + millis / 10 % 10);
+        out[22] = (char) ('0' + millis % 10);
+        out[23] = 'Z';
+        return new String(out);
+    }
+
+    /** Formato comum sem alocação intermediária; {@code null} quando precisa do parser do JDK. */
+    private Instant parseFast(CharSequence s) {
+        int len = s.length();
+        if (len == 0) return null;
+        if (allDigits(s, len)) {
+            return len <= 18 ? Instant.ofEpochMilli(Long.parseLong(s, 0, len, 10)) : null;
+        }
+        if (len < 16 || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != 'T' || s.charAt(13) != ':') {
+            return null;
+        }
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 2);
+        int day = digits(s, 8, 2);
+        int hour = digits(s, 11, 2);
+        int minute = digits(s, 14, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return null;
+        }
+
+        int pos = 16;
+        int second = 0;
+        int nanos = 0;
+        if (pos < len && s.charAt(pos) == ':') {
+            if (pos + 3 > len) return null;
+            second = digits(s, pos + 1, 2);
+            if (second < 0 || second > 59) return null;
+            pos += 3;
+            if (pos < len && s.charAt(pos) == '.') {
+                int start = ++pos;
+                while (pos < len && pos - start < 9 && isDigit(s.charAt(pos))) {
+                    nanos = nanos * 10 + (s.charAt(pos) - '0');
+                    pos++;
+                }
+                if (pos == start || (pos < len && isDigit(s.charAt(pos)))) return null;
+                for (int i = pos - start; i < 9; i++) nanos *= 10;
+            }
+        }
+
+        long localSeconds = daysFromCivil(year, month, day) * 86_400L + hour * 3600L + minute * 60L + second;
+        if (pos == len) {
+            if (fixedDefaultOffset != null) {
+                return Instant.ofEpochSecond(localSeconds - fixedDefaultOffset.getTotalSeconds(), nanos);
+            }
+            return LocalDateTime.ofEpochSecond(localSeconds, nanos, ZoneOffset.UTC).atZone(defaultZone).toInstant();
+        }
+
+        char c = s.charAt(pos);
+        if ((c == 'Z' || c == 'z') && pos + 1 == len) {
+            return Instant.ofEpochSecond(localSeconds, nanos);
+        }
+        if (c != '+' && c != '-') return null;
+        int offsetSeconds;
+        int rest = len - pos - 1;
+        if (rest == 5 && s.charAt(pos + 3) == ':') {
+            offsetSeconds = offset(digits(s, pos + 1, 2), digits(s, pos + 4, 2));
+        } else if (rest == 4) {
+            offsetSeconds = offset(digits(s, pos + 1, 2), digits(s, pos + 3, 2));
+        } else if (rest == 2) {
+            offsetSeconds = offset(digits(s, pos + 1, 2), 0);
+        } else {
+            return null;
+        }
+        if (offsetSeconds < 0) return null;
+        return Instant.ofEpochSecond(localSeconds - (c == '-' ? -offsetSeconds : offsetSeconds), nanos);
+    }
+
+    private static int offset(int hours, int minutes) {
+        if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59) return -1;
+        return hours * 3600 + minutes * 60;
+    }
+
+    // days_from_civil (H. Hinnant)
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097 + doe - DAYS_0000_TO_1970;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2 && (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0))) return 29;
+        return DAYS_IN_MONTH[month - 1];
+    }
+
+    /** Valor de {@code count} dígitos a partir de {@code from}, ou -1 se houver não dígito. */
+    private static int digits(CharSequence s, int from, int count) {
+        int v = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    private static boolean allDigits(CharSequence s, int len) {
+        for (int i = 0; i < len; i++) {
+            if (!isDigit(s.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static void put2(char[] out, int at, int v) {
+        out[at] = (char) ('0' + v / 10);
+        out[at + 1] = (char) ('0' + v % 10);
+    }
+
+    private static void put4(char[] out, int at, int v) {
+        put2(out, at, v / 100);
+        put2(out, at + 2, v % 100);
+    }
+}
@@ -7,14 +7,22 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 
-@Mapper(componentModel = "spring")
+@Mapper(componentModel = "spring", imports = TimestampCodec.class)
 public interface VitalSignRecordMapper {
 
     VitalSignRecordMapper INSTANCE = Mappers.getMapper(VitalSignRecordMapper.class);
 
+    // identidade (nome/CPF) vem de Patient
+    @Mapping(target = "patientName", ignore = true)
+    @Mapping(target = "patientCpf", ignore = true)
+    @Mapping(target = "timestamp", expression = "java(TimestampCodec.format(entity.getTimestamp()))")
+    @Mapping(target = "timestampMillis", expression = "java(entity.getTimestamp() != null ? entity.getTimestamp().toEpochMilli() : null)")
     VitalSignRecordDTO toDTO(VitalSignRecord entity);
 
-    @Mapping(target = "patientCpf", ignore = true) //
+    // o instante depende do fuso padrão (TimestampCodec) e é resolvido no serviço; o id é sempre do servidor
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "timestamp", ignore = true)
+    @Mapping(target = "persisted", ignore = true)
     VitalSignRecord toEntity(VitalSignRecordDTO dto);
 }
 
@@ -0,0 +1,11 @@
+package completo.projeto.completo.repository;
+
+import completo.projeto.completo.entities.Patient;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface PatientRepository extends JpaRepository<Patient, String> {
+
+    List<Patient> findByCpfHash(String cpfHash);
+}
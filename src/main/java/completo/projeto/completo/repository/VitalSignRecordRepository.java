@@ -1,13 +1,23 @@
 package completo.projeto.completo.repository;
 
 import completo.projeto.completo.entities.VitalSignRecord;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface VitalSignRecordRepository extends JpaRepository<VitalSignRecord, UUID> {
 
@@ -16,9 +26,66 @@ public interface VitalSignRecordRepository extends JpaRepository<VitalSignRecord
 
     List<VitalSignRecord> findByPatientId(String patientId);
 
+    // replay do WAL: quais leituras do grupo já foram gravadas antes da queda
+    @Query("select r.id from VitalSignRecord r where r.id in :ids")
+    Set<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
     Page<VitalSignRecord> findAllByOrderByTimestampDesc(Pageable pageable);
 
     List<VitalSignRecord> findAllByOrderByTimestampDesc();
 
-    Optional<VitalSignRecord> findTopByPatientIdOrderByTimestampDesc(String patientId);
+    List<VitalSignRecord> findByPatientIdAndTimestampBetweenOrderByTimestampDesc(String patientId,
+                                                                                 Instant from,
+                                                                                 Instant to,
+                                                                                 Pageable pageable);
+
+    // Exportação em streaming: cursor JDBC, entidades somente leitura (o chamador deve desanexá-las).
+    // No H2 o fetch size só vale com LAZY_QUERY_EXECUTION=TRUE na URL (application*.properties); sem ele o
+    // resultado inteiro é materializado no heap
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select r from VitalSignRecord r order by r.timestamp desc, r.id desc")
+    Stream<VitalSignRecord> streamAllByOrderByTimestampDesc();
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select r from VitalSignRecord r where r.patientId = :patientId order by r.timestamp desc, r.id desc")
+    Stream<VitalSignRecord> streamByPatientIdOrderByTimestampDesc(@Param("patientId") String patientId);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select r from VitalSignRecord r " +
+            "where r.patientId = :patientId and r.timestamp >= :from and r.timestamp < :to " +
+            "order by r.timestamp asc")
+    Stream<VitalSignRecord> streamRangeByPatientId(@Param("patientId") String patientId,
+                                                   @Param("from") Instant from,
+                                                   @Param("to") Instant to);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select r from VitalSignRecord r " +
+            "where (:patientId is null or r.patientId = :patientId) " +
+            "and r.timestamp >= :from and r.timestamp < :to")
+    Stream<VitalSignRecord> streamWindow(@Param("patientId") String patientId,
+                                         @Param("from") Instant from,
+                                         @Param("to") Instant to);
+
+    // Paginação por keyset (timestamp, id), sem OFFSET
+
+    List<VitalSignRecord> findAllByOrderByTimestampDescIdDesc(Pageable pageable);
+
+    @Query("select r from VitalSignRecord r " +
+            "where r.timestamp < :ts or (r.timestamp = :ts and r.id < :id) " +
+            "order by r.timestamp desc, r.id desc")
+    List<VitalSignRecord> findPageAfter(@Param("ts") Instant ts,
+                                        @Param("id") UUID id,
+                                        Pageable pageable);
+
+    List<VitalSignRecord> findByPatientIdOrderByTimestampDescIdDesc(String patientId, Pageable pageable);
+
+    @Query("select r from VitalSignRecord r " +
+            "where r.patientId = :patientId " +
+            "and (r.timestamp < :ts or (r.timestamp = :ts and r.id < :id)) " +
+            "order by r.timestamp desc, r.id desc")
+    List<VitalSignRecord> findPageByPatientIdAfter(@Param("patientId") String patientId,
+                                                   @Param("ts") Instant ts,
+                                                   @Param("id") UUID id,
+                                                   Pageable pageable);
 }
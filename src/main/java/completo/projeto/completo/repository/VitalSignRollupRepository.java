@@ -0,0 +1,49 @@
+package completo.projeto.completo.repository;
+
+import completo.projeto.completo.entities.RollupResolution;
+import completo.projeto.completo.entities.VitalSignRollup;
+import completo.projeto.completo.entities.VitalSignMetric;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface VitalSignRollupRepository extends JpaRepository<VitalSignRollup, UUID> {
+
+    List<VitalSignRollup> findByResolutionAndBucketStartIn(RollupResolution resolution,
+                                                           Collection<Instant> bucketStarts);
+
+    List<VitalSignRollup> findByResolutionAndBucketStartInAndPatientIdIn(RollupResolution resolution,
+                                                                         Collection<Instant> bucketStarts,
+                                                                         Collection<String> patientIds);
+
+    @Query("select r from VitalSignRollup r " +
+            "where r.patientId = :patientId and r.resolution = :resolution and r.metric in :metrics " +
+            "and r.bucketStart >= :from and r.bucketStart < :to " +
+            "order by r.bucketStart asc")
+    List<VitalSignRollup> findRange(@Param("patientId") String patientId,
+                                    @Param("resolution") RollupResolution resolution,
+                                    @Param("metrics") Collection<VitalSignMetric> metrics,
+                                    @Param("from") Instant from,
+                                    @Param("to") Instant to);
+
+    @Query("select r from VitalSignRollup r " +
+            "where (:patientId is null or r.patientId = :patientId) " +
+            "and r.bucketStart >= :from and r.bucketStart < :to")
+    List<VitalSignRollup> findWindow(@Param("patientId") String patientId,
+                                     @Param("from") Instant from,
+                                     @Param("to") Instant to);
+
+    @Modifying
+    @Query("delete from VitalSignRollup r " +
+            "where (:patientId is null or r.patientId = :patientId) " +
+            "and r.bucketStart >= :from and r.bucketStart < :to")
+    int deleteWindow(@Param("patientId") String patientId,
+                     @Param("from") Instant from,
+                     @Param("to") Instant to);
+}
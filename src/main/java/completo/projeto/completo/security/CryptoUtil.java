@@ -4,25 +4,58 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.UnaryOperator;
 
+/**
+ * AES-GCM dos dados sensíveis (CPF).
+ * <p>
+ * Instâncias de {@link Cipher} e o gerador de IV ficam num pool sem bloqueio: cada operação pega
+ * um par, reinicializa o cipher com o IV novo e o devolve ao final. Isso evita o
+ * {@code Cipher.getInstance} por chamada e a disputa pelo {@link SecureRandom} compartilhado,
+ * sem prender estado a threads (funciona igual com threads virtuais). Cada par tem o seu DRBG,
+ * que, ao contrário do NativePRNG padrão, não serializa as chamadas num lock global.
+ * <p>
+ * {@link #blindIndex} gera o token determinístico (HMAC-SHA256 com chave própria) usado para
+ * buscar pacientes por CPF sem descriptografar nada.
+ */
 @Component
 public class CryptoUtil {
 
     private static final int GCM_TAG_BITS = 128;
     private static final int IV_BYTES = 12;
+    private static final int PARALLEL_THRESHOLD = 256;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final class Worker {
+        private final Cipher cipher;
+        private final SecureRandom random;
+
+        Worker(String algorithm) throws Exception {
+            this.cipher = Cipher.getInstance(algorithm);
+            this.random = SecureRandom.getInstance("DRBG");
+        }
+    }
 
     private final String algorithm;
     private final SecretKeySpec keySpec;
-    private final SecureRandom random = new SecureRandom();
+    private final Queue<Worker> pool = new ConcurrentLinkedQueue<>();
+    private final SecretKeySpec blindIndexKey;
+    private final Queue<Mac> macPool = new ConcurrentLinkedQueue<>();
 
     public CryptoUtil(
             @Value("${crypto.algorithm:AES/GCM/NoPadding}") String algorithm,
-            @Value("${crypto.key}") String base64Key
+            @Value("${crypto.key}") String base64Key,
+            @Value("${crypto.blind-index-key}") String base64BlindIndexKey
     ) {
         this.algorithm = algorithm;
         byte[] key = Base64.getDecoder().decode(base64Key);
@@ -30,20 +63,29 @@ public class CryptoUtil {
             throw new IllegalArgumentException("crypto.key inválida: tamanho deve ser 16/24/32 bytes");
         }
         this.keySpec = new SecretKeySpec(key, "AES");
+        byte[] indexKey = Base64.getDecoder().decode(base64BlindIndexKey);
+        if (indexKey.length < 32) {
+            throw new IllegalArgumentException("crypto.blind-index-key inválida: mínimo 32 bytes");
+        }
+        if (Arrays.equals(key, indexKey)) {
+            throw new IllegalArgumentException("crypto.blind-index-key deve ser diferente de crypto.key");
+        }
+        this.blindIndexKey = new SecretKeySpec(indexKey, HMAC_ALGORITHM);
     }
 
     public String encrypt(String plain) {
         try {
+            Worker w = acquire();
             byte[] iv = new byte[IV_BYTES];
-            random.nextBytes(iv);
+            w.random.nextBytes(iv);
 
-            Cipher cipher = Cipher.getInstance(algorithm);
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec, new GCMParameterSpec(GCM_TAG_BITS, iv));
-            byte[] ct = cipher.doFinal(plain.getBytes(StandardCharsets.UTF_8));
-
-            byte[] out = new byte[iv.length + ct.length];
-            System.arraycopy(iv, 0, out, 0, iv.length);
-            System.arraycopy(ct, 0, out, iv.length, ct.length);
+            w.cipher.init(Cipher.ENCRYPT_MODE, keySpec, new GCMParameterSpec(GCM_TAG_BITS, iv));
+            byte[] pt = plain.getBytes(StandardCharsets.UTF_8);
+            byte[] out = new byte[IV_BYTES + w.cipher.getOutputSize(pt.length)];
+            System.arraycopy(iv, 0, out, 0, IV_BYTES);
+            w.cipher.doFinal(pt, 0, pt.length, out, IV_BYTES);
+            // só volta ao pool se a operação terminou bem: um cipher com falha é descartado
+            pool.offer(w);
             return Base64.getEncoder().encodeToString(out);
         } catch (Exception e) {
             throw new RuntimeException("Erro ao criptografar", e);
@@ -55,17 +97,57 @@ public class CryptoUtil {
             byte[] all = Base64.getDecoder().decode(base64IvAndCiphertext);
             if (all.length < IV_BYTES + 1) throw new IllegalArgumentException("ciphertext inválido");
 
-            byte[] iv = new byte[IV_BYTES];
-            byte[] ct = new byte[all.length - IV_BYTES];
-            System.arraycopy(all, 0, iv, 0, IV_BYTES);
-            System.arraycopy(all, IV_BYTES, ct, 0, ct.length);
-
-            Cipher cipher = Cipher.getInstance(algorithm);
-            cipher.init(Cipher.DECRYPT_MODE, keySpec, new GCMParameterSpec(GCM_TAG_BITS, iv));
-            byte[] pt = cipher.doFinal(ct);
+            Worker w = acquire();
+            w.cipher.init(Cipher.DECRYPT_MODE, keySpec, new GCMParameterSpec(GCM_TAG_BITS, all, 0, IV_BYTES));
+            byte[] pt = w.cipher.doFinal(all, IV_BYTES, all.length - IV_BYTES);
+            pool.offer(w);
             return new String(pt, StandardCharsets.UTF_8);
         } catch (Exception e) {
             throw new RuntimeException("Erro ao descriptografar", e);
         }
     }
+
+    /**
+     * Token determinístico (HMAC-SHA256, base64url sem padding) do valor, para busca por igualdade.
+     * O mesmo valor sempre gera o mesmo token; sem a chave não é possível derivar o valor.
+     */
+    public String blindIndex(String plain) {
+        try {
+            Mac mac = macPool.poll();
+            if (mac == null) {
+                mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(blindIndexKey);
+            }
+            byte[] digest = mac.doFinal(plain.getBytes(StandardCharsets.UTF_8));
+            macPool.offer(mac);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (Exception e) {
+            throw new RuntimeException("Erro ao gerar índice cego", e);
+        }
+    }
+
+    /**
+     * Criptografa todos os valores preservando a ordem. Listas grandes são divididas entre os
+     * núcleos disponíveis (ForkJoin comum).
+     */
+    public List<String> encryptAll(List<String> plains) {
+        return mapAll(plains, this::encrypt);
+    }
+
+    /** Descriptografa todos os valores preservando a ordem; ver {@link #encryptAll}. */
+    public List<String> decryptAll(List<String> ciphertexts) {
+        return mapAll(ciphertexts, this::decrypt);
+    }
+
+    private static List<String> mapAll(List<String> in, UnaryOperator<String> op) {
+        if (in.size() < PARALLEL_THRESHOLD) {
+            return in.stream().map(op).toList();
+        }
+        return in.parallelStream().map(op).toList();
+    }
+
+    private Worker acquire() throws Exception {
+        Worker w = pool.poll();
+        return w != null ? w : new Worker(algorithm);
+    }
 }
@@ -0,0 +1,445 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.entities.VitalSignRecord;
+import completo.projeto.completo.service.PatientIdentityCache.PatientIdentity;
+import completo.projeto.completo.service.WriteBehindIngestQueue.PendingReading;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Log de escrita antecipada (WAL) do write-behind, ligado com {@code vital-signs.ingest.wal.enabled}.
+ * <p>
+ * Cada leitura aceita é anexada ao segmento ativo ({@code wal-<lsn inicial>.log}) antes do 202; com
+ * {@code fsync=true} a resposta espera o {@code force} do arquivo, feito em grupo: quem chega enquanto
+ * outro fsync está em curso aproveita o próximo, que cobre todas as entradas já anexadas.
+ * Um segmento é apagado quando está selado e todas as suas leituras foram gravadas no banco
+ * ({@link #release}). Na inicialização as entradas restantes são reaplicadas ({@link #replay}).
+ * <p>
+ * Entrada: {@code [int tamanho][int crc32c][long lsn][leitura]}; a leitura começa pelo id atribuído na
+ * aceitação, que o replay usa para saber o que já foi gravado. Uma entrada truncada ou com CRC
+ * inválido no fim do segmento (queda no meio da escrita) encerra a leitura do segmento.
+ * O CPF só aparece criptografado, como no banco.
+ */
+@Slf4j
+@Component
+public class IngestWriteAheadLog {
+
+    private static final int HEADER = 4 + 4 + 8;
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+
+    private static final class Segment {
+        final Path path;
+        final FileChannel channel;
+        final long firstLsn;
+        long size;
+        long appended;
+        long released;
+        boolean sealed;
+
+        Segment(Path path, FileChannel channel, long firstLsn, long size) {
+            this.path = path;
+            this.channel = channel;
+            this.firstLsn = firstLsn;
+            this.size = size;
+        }
+    }
+
+    private final boolean enabled;
+    private final Path dir;
+    private final long segmentSize;
+    private final boolean fsync;
+
+    // ReentrantLock em vez de synchronized: as duas seções fazem I/O bloqueante e rodam em threads de
+    // requisição, que podem ser virtuais
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private long nextLsn = 1;
+    private final AtomicLong durableLsn = new AtomicLong();
+
+    private final LongAdder appends = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder syncNanosTotal = new LongAdder();
+
+    public IngestWriteAheadLog(
+            @Value("${vital-signs.ingest.wal.enabled:false}") boolean enabled,
+            @Value("${vital-signs.ingest.wal.dir:./data/wal}") Path dir,
+            @Value("${vital-signs.ingest.wal.segment-size:64MB}") DataSize segmentSize,
+            @Value("${vital-signs.ingest.wal.fsync:true}") boolean fsync
+    ) {
+        if (segmentSize.toBytes() < HEADER) {
+            throw new IllegalArgumentException("vital-signs.ingest.wal.segment-size muito pequeno");
+        }
+        this.enabled = enabled;
+        this.dir = dir;
+        this.segmentSize = segmentSize.toBytes();
+        this.fsync = fsync;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Lê os segmentos deixados pela execução anterior e entrega as leituras, em ordem de LSN, em grupos
+     * de até {@code groupSize}. As entradas reaplicadas continuam no log até serem liberadas.
+     */
+    public long replay(int groupSize, Consumer<List<PendingReading>> sink) throws IOException {
+        if (!enabled) return 0;
+        Files.createDirectories(dir);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(p -> p.getFileName().toString().startsWith(PREFIX)
+                            && p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        long replayed = 0;
+        List<PendingReading> group = new ArrayList<>(groupSize);
+        List<Segment> replayedSegments = new ArrayList<>(files.size());
+        for (Path file : files) {
+            // registrado antes de entregar as leituras, para que release() as encontre; só é selado
+            // depois de lido por inteiro
+            Segment segment = openSegment(file);
+            appendLock.lock();
+            try {
+                segments.put(segment.firstLsn, segment);
+            } finally {
+                appendLock.unlock();
+            }
+            readSegment(segment, group, groupSize, sink);
+            replayed += segment.appended;
+            replayedSegments.add(segment);
+            appendLock.lock();
+            try {
+                nextLsn = Math.max(nextLsn, segment.firstLsn + segment.appended);
+                segment.sealed = true;
+            } finally {
+                appendLock.unlock();
+            }
+        }
+        if (!group.isEmpty()) sink.accept(group);
+        appendLock.lock();
+        try {
+            replayedSegments.forEach(this::deleteIfDone);
+        } finally {
+            appendLock.unlock();
+        }
+        durableLsn.set(nextLsn - 1);
+        if (!files.isEmpty()) {
+            log.info("domain=ingest event=wal_replay segments={} readings={} nextLsn={}", files.size(), replayed, nextLsn);
+        }
+        return replayed;
+    }
+
+    private static Segment openSegment(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        long firstLsn = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(file, channel, firstLsn, 0);
+    }
+
+    private void readSegment(Segment segment, List<PendingReading> group, int groupSize,
+                             Consumer<List<PendingReading>> sink) throws IOException {
+        long fileSize = segment.channel.size();
+        ByteBuffer data = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        long firstLsn = segment.firstLsn;
+        CRC32C crc = new CRC32C();
+        while (data.remaining() >= HEADER) {
+            int start = data.position();
+            int length = data.getInt();
+            int checksum = data.getInt();
+            long lsn = data.getLong();
+            if (length < 0 || length > data.remaining()) {
+                data.position(start);
+                break;
+            }
+            byte[] payload = new byte[length];
+            data.get(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum || lsn != firstLsn + segment.appended) {
+                data.position(start);
+                break;
+            }
+            group.add(decode(lsn, payload));
+            appendLock.lock();
+            try {
+                segment.appended++;
+            } finally {
+                appendLock.unlock();
+            }
+            if (group.size() >= groupSize) {
+                sink.accept(new ArrayList<>(group));
+                group.clear();
+            }
+        }
+        segment.size = data.position();
+        if (segment.size < fileSize) {
+            log.warn("domain=ingest event=wal_torn_tail file={} validBytes={} fileBytes={}",
+                    segment.path.getFileName(), segment.size, fileSize);
+            segment.channel.truncate(segment.size);
+        }
+    }
+
+    /**
+     * Anexa a leitura ao segmento ativo e, com {@code fsync=true}, espera que ela esteja em disco.
+     * Devolve a leitura com o LSN atribuído.
+     */
+    public PendingReading append(PendingReading reading) throws IOException {
+        byte[] payload = encode(reading);
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        ByteBuffer entry = ByteBuffer.allocate(HEADER + payload.length);
+        long lsn;
+        appendLock.lock();
+        try {
+            if (active == null || active.size + entry.capacity() > segmentSize) rotate();
+            lsn = nextLsn++;
+            entry.putInt(payload.length).putInt((int) crc.getValue()).putLong(lsn).put(payload).flip();
+            while (entry.hasRemaining()) active.size += active.channel.write(entry);
+            active.appended++;
+        } finally {
+            appendLock.unlock();
+        }
+        appends.increment();
+        if (fsync) awaitDurable(lsn);
+        return reading.withLsn(lsn);
+    }
+
+    private void awaitDurable(long lsn) throws IOException {
+        if (durableLsn.get() >= lsn) return;
+        syncLock.lock();
+        try {
+            if (durableLsn.get() >= lsn) return;
+            FileChannel channel;
+            long target;
+            appendLock.lock();
+            try {
+                channel = active.channel;
+                target = nextLsn - 1;
+            } finally {
+                appendLock.unlock();
+            }
+            long start = System.nanoTime();
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // segmento selado entre a cópia da referência e o force: a rotação já o sincronizou
+            }
+            syncNanosTotal.add(System.nanoTime() - start);
+            syncs.increment();
+            durableLsn.accumulateAndGet(target, Math::max);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /** Sela o segmento ativo (sincronizado) e abre o próximo; chamado com {@code appendLock}. */
+    private void rotate() throws IOException {
+        if (active != null) {
+            active.channel.force(false);
+            durableLsn.accumulateAndGet(nextLsn - 1, Math::max);
+            active.sealed = true;
+            deleteIfDone(active);
+        }
+        Files.createDirectories(dir);
+        Path path = dir.resolve(String.format("%s%020d%s", PREFIX, nextLsn, SUFFIX));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        active = new Segment(path, channel, nextLsn, 0);
+        segments.put(active.firstLsn, active);
+    }
+
+    /** A leitura já está no banco (ou falhou de vez): a entrada não precisa mais ser reaplicada. */
+    public void release(List<PendingReading> readings) {
+        if (!enabled) return;
+        appendLock.lock();
+        try {
+            for (PendingReading r : readings) {
+                if (r.lsn() <= 0) continue;
+                Map.Entry<Long, Segment> e = segments.floorEntry(r.lsn());
+                if (e == null) continue;
+                Segment segment = e.getValue();
+                segment.released++;
+                deleteIfDone(segment);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void deleteIfDone(Segment segment) {
+        if (!segment.sealed || segment.released < segment.appended) return;
+        segments.remove(segment.firstLsn);
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.debug("domain=ingest event=wal_segment_deleted file={} readings={}",
+                segment.path.getFileName(), segment.appended);
+    }
+
+    /** Sela o segmento ativo e apaga os segmentos já liberados; os demais ficam para o próximo replay. */
+    public void close() {
+        if (!enabled) return;
+        appendLock.lock();
+        try {
+            if (active != null) {
+                active.channel.force(false);
+                active.sealed = true;
+                active = null;
+            }
+            for (Segment segment : List.copyOf(segments.values())) {
+                segment.sealed = true;
+                deleteIfDone(segment);
+            }
+            for (Segment segment : segments.values()) segment.channel.close();
+            log.info("domain=ingest event=wal_close appends={} syncs={} segmentsLeft={}",
+                    appends(), syncs(), segments.size());
+            segments.clear();
+        } catch (IOException e) {
+            log.error("domain=ingest event=wal_close_fail err='{}'", e.getMessage(), e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public long appends() {
+        return appends.sum();
+    }
+
+    public long syncs() {
+        return syncs.sum();
+    }
+
+    /** Tempo total em {@code FileChannel.force}, em nanossegundos. */
+    public long syncNanosTotal() {
+        return syncNanosTotal.sum();
+    }
+
+    public int segmentCount() {
+        appendLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private static byte[] encode(PendingReading reading) throws IOException {
+        VitalSignRecord r = reading.record();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(192);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(r.getId().getMostSignificantBits());
+        out.writeLong(r.getId().getLeastSignificantBits());
+        writeString(out, r.getPatientId());
+        writeNumber(out, r.getHeartRate());
+        writeNumber(out, r.getOxygenSaturation());
+        writeNumber(out, r.getSystolicPressure());
+        writeNumber(out, r.getDiastolicPressure());
+        writeNumber(out, r.getTemperature());
+        writeNumber(out, r.getRespiratoryRate());
+        writeString(out, r.getStatus());
+        out.writeBoolean(r.getTimestamp() != null);
+        if (r.getTimestamp() != null) {
+            out.writeLong(r.getTimestamp().getEpochSecond());
+            out.writeInt(r.getTimestamp().getNano());
+        }
+        writeIdentity(out, reading.identity());
+        out.writeBoolean(reading.before().isPresent());
+        if (reading.before().isPresent()) writeIdentity(out, reading.before().get());
+        return bytes.toByteArray();
+    }
+
+    private static PendingReading decode(long lsn, byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        VitalSignRecord r = new VitalSignRecord();
+        r.setId(new UUID(in.readLong(), in.readLong()));
+        r.setPatientId(readString(in));
+        r.setHeartRate(in.readBoolean() ? in.readInt() : null);
+        r.setOxygenSaturation(readDouble(in));
+        r.setSystolicPressure(readDouble(in));
+        r.setDiastolicPressure(readDouble(in));
+        r.setTemperature(readDouble(in));
+        r.setRespiratoryRate(readDouble(in));
+        r.setStatus(readString(in));
+        if (in.readBoolean()) r.setTimestamp(Instant.ofEpochSecond(in.readLong(), in.readInt()));
+        PatientIdentity identity = readIdentity(in);
+        Optional<PatientIdentity> before = in.readBoolean() ? Optional.of(readIdentity(in)) : Optional.empty();
+        return new PendingReading(r, identity, before, System.nanoTime(), lsn);
+    }
+
+    private static void writeIdentity(DataOutputStream out, PatientIdentity identity) throws IOException {
+        writeString(out, identity.patientName());
+        writeString(out, identity.encryptedCpf());
+        writeString(out, identity.cpfHash());
+    }
+
+    private static PatientIdentity readIdentity(DataInputStream in) throws IOException {
+        return new PatientIdentity(readString(in), readString(in), readString(in));
+    }
+
+    // tamanho (-1 = null) + bytes UTF-8: writeUTF recusa textos acima de 64 KB, que o caminho síncrono aceita
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) return null;
+        byte[] utf8 = new byte[len];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeNumber(DataOutputStream out, Number n) throws IOException {
+        out.writeBoolean(n != null);
+        if (n instanceof Integer i) out.writeInt(i);
+        else if (n != null) out.writeDouble(n.doubleValue());
+    }
+
+    private static Double readDouble(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+}
@@ -0,0 +1,183 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.dto.VitalSignRecordDTO;
+import completo.projeto.completo.entities.VitalSignRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Buffer em memória com as últimas {@link #SIZE} leituras de cada paciente consultado,
+ * ordenadas por timestamp (mais recente primeiro).
+ * <p>
+ * Um paciente só passa a ser acompanhado depois da primeira consulta: a leitura registra o
+ * interesse, o serviço carrega o banco uma única vez ({@link #seed}) e, a partir daí, as gravações
+ * mantêm o buffer atualizado. Enquanto o banco é lido o paciente fica à parte, em {@code loading}:
+ * só entra no buffer se tiver leituras, então ids inexistentes não ocupam vaga nem expulsam pacientes.
+ * Pacientes sem consultas por mais de {@code idle-ttl} são descartados; acima de {@code max-patients}
+ * os menos lidos saem em lote.
+ */
+@Slf4j
+@Component
+public class LatestReadingsBuffer {
+
+    public static final int SIZE = 10;
+
+    private record Slot(UUID id, Instant timestamp, VitalSignRecordDTO dto) {}
+
+    private static final class Ring {
+        private final Slot[] slots = new Slot[SIZE];
+        private int count;
+        private boolean seeded;
+        private volatile long lastReadNanos = System.nanoTime();
+
+        synchronized void add(Slot s) {
+            for (int i = 0; i < count; i++) {
+                if (s.id() != null && s.id().equals(slots[i].id())) return;
+            }
+            int pos = 0;
+            while (pos < count && !isNewer(s, slots[pos])) pos++;
+            if (pos >= SIZE) return;
+            int toShift = Math.min(count, SIZE - 1) - pos;
+            if (toShift > 0) System.arraycopy(slots, pos, slots, pos + 1, toShift);
+            slots[pos] = s;
+            if (count < SIZE) count++;
+        }
+
+        synchronized Optional<List<VitalSignRecordDTO>> snapshotIfSeeded() {
+            lastReadNanos = System.nanoTime();
+            if (!seeded) return Optional.empty();
+            List<VitalSignRecordDTO> out = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) out.add(slots[i].dto());
+            return Optional.of(Collections.unmodifiableList(out));
+        }
+
+        synchronized void markSeeded() {
+            seeded = true;
+        }
+
+        synchronized boolean isEmpty() {
+            return count == 0;
+        }
+
+        private static boolean isNewer(Slot a, Slot b) {
+            if (a.timestamp() == null) return false;
+            if (b.timestamp() == null) return true;
+            return !a.timestamp().isBefore(b.timestamp());
+        }
+    }
+
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+    // pacientes com o banco sendo lido: recebem as gravações do meio da carga, mas ainda não ocupam vaga
+    private final Map<String, Ring> loading = new ConcurrentHashMap<>();
+    private final int maxPatients;
+    // ao passar de maxPatients, remove os menos lidos até aqui: uma ordenação a cada lote, não a cada paciente novo
+    private final int evictTo;
+    private final long idleTtlNanos;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    public LatestReadingsBuffer(
+            @Value("${vital-signs.latest-buffer.max-patients:5000}") int maxPatients,
+            @Value("${vital-signs.latest-buffer.idle-ttl:10m}") Duration idleTtl
+    ) {
+        this.maxPatients = maxPatients;
+        this.evictTo = Math.max(1, maxPatients - Math.max(1, maxPatients / 10));
+        this.idleTtlNanos = idleTtl.toNanos();
+    }
+
+    /**
+     * Retorna as últimas leituras em memória; vazio quando o paciente ainda não foi carregado
+     * (o chamador deve consultar o banco e chamar {@link #seed}).
+     */
+    public Optional<List<VitalSignRecordDTO>> latest(String patientId) {
+        Ring ring = rings.get(patientId);
+        if (ring == null) {
+            loading.computeIfAbsent(patientId, id -> new Ring());
+            return Optional.empty();
+        }
+        return ring.snapshotIfSeeded();
+    }
+
+    /**
+     * Completa a carga iniciada por {@link #latest}. O paciente só passa a ser acompanhado se o banco
+     * trouxe leituras ou se alguma foi gravada durante a carga.
+     */
+    public void seed(String patientId,
+                     List<VitalSignRecord> fromDb,
+                     Function<VitalSignRecord, VitalSignRecordDTO> toDto) {
+        Ring ring = loading.remove(patientId);
+        if (ring == null) return;
+        for (VitalSignRecord r : fromDb) {
+            ring.add(new Slot(r.getId(), r.getTimestamp(), toDto.apply(r)));
+        }
+        if (ring.isEmpty()) return;
+        ring.markSeeded();
+        rings.put(patientId, ring);
+        if (rings.size() > maxPatients) evictLeastRecentlyRead();
+    }
+
+    public void append(VitalSignRecord saved, VitalSignRecordDTO dto) {
+        Slot slot = new Slot(saved.getId(), saved.getTimestamp(), dto);
+        Ring ring = rings.get(saved.getPatientId());
+        if (ring != null) ring.add(slot);
+        Ring pending = loading.get(saved.getPatientId());
+        if (pending != null) pending.add(slot);
+    }
+
+    /** Descarta as leituras em memória do paciente; a próxima consulta recarrega do banco. */
+    public void invalidate(String patientId) {
+        rings.remove(patientId);
+        loading.remove(patientId);
+    }
+
+    public int size() {
+        return rings.size();
+    }
+
+    @Scheduled(fixedDelayString = "${vital-signs.latest-buffer.sweep-interval:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        int before = rings.size();
+        rings.values().removeIf(r -> now - r.lastReadNanos > idleTtlNanos);
+        // cargas que nunca chegaram ao seed (consulta ao banco falhou)
+        loading.values().removeIf(r -> now - r.lastReadNanos > idleTtlNanos);
+        int evicted = before - rings.size();
+        if (evicted > 0) {
+            log.debug("domain=latest_buffer event=evict_idle evicted={} remaining={}", evicted, rings.size());
+        }
+    }
+
+    private void evictLeastRecentlyRead() {
+        // outra thread já está liberando espaço
+        if (!evictionLock.tryLock()) return;
+        try {
+            int excess = rings.size() - evictTo;
+            if (excess <= 0) return;
+            // instante lido uma vez por paciente: as consultas o atualizam durante a ordenação
+            record Candidate(String patientId, Ring ring, long lastReadNanos) {}
+            rings.entrySet().stream()
+                    .map(e -> new Candidate(e.getKey(), e.getValue(), e.getValue().lastReadNanos))
+                    .sorted(Comparator.comparingLong(Candidate::lastReadNanos))
+                    .limit(excess)
+                    .toList()
+                    .forEach(c -> rings.remove(c.patientId(), c.ring()));
+            log.debug("domain=latest_buffer event=evict_lru evicted={} remaining={}", excess, rings.size());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+}
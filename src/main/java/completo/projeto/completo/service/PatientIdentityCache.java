@@ -0,0 +1,144 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.entities.Patient;
+import completo.projeto.completo.repository.PatientRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache LRU/TTL da identidade (nome e CPF criptografado) de cada paciente.
+ * Evita consultar a tabela de pacientes a cada leitura recebida ou devolvida.
+ */
+@Slf4j
+@Component
+public class PatientIdentityCache {
+
+    public record PatientIdentity(String patientName, String encryptedCpf, String cpfHash) {
+        public static PatientIdentity of(Patient p) {
+            return new PatientIdentity(p.getName(), p.getEncryptedCpf(), p.getCpfHash());
+        }
+    }
+
+    private record Entry(PatientIdentity identity, long loadedAtNanos) {}
+
+    private final PatientRepository repository;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final boolean warmUp;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public PatientIdentityCache(
+            PatientRepository repository,
+            @Value("${vital-signs.identity-cache.max-size:10000}") int maxSize,
+            @Value("${vital-signs.identity-cache.ttl:30m}") Duration ttl,
+            @Value("${vital-signs.identity-cache.warm-up:true}") boolean warmUp
+    ) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("vital-signs.identity-cache.max-size deve ser >= 1");
+        }
+        this.repository = repository;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.warmUp = warmUp;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > PatientIdentityCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Optional<PatientIdentity> get(String patientId) {
+        lock.lock();
+        try {
+            Entry e = entries.get(patientId);
+            if (e != null && System.nanoTime() - e.loadedAtNanos() > ttlNanos) {
+                entries.remove(patientId);
+                evictions.incrementAndGet();
+                e = null;
+            }
+            if (e == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            hits.incrementAndGet();
+            return Optional.of(e.identity());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(String patientId, PatientIdentity identity) {
+        if (patientId == null || identity == null) return;
+        lock.lock();
+        try {
+            entries.put(patientId, new Entry(identity, System.nanoTime()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!warmUp) return;
+        long start = System.nanoTime();
+        int loaded = 0;
+        for (Patient p : repository.findAll(PageRequest.of(0, maxSize))) {
+            put(p.getPatientId(), PatientIdentity.of(p));
+            loaded++;
+        }
+        log.info("domain=identity_cache event=warm_up_ok loaded={} elapsedMs={}",
+                loaded, Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+}
@@ -0,0 +1,39 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.dto.PatientDTO;
+import completo.projeto.completo.repository.PatientRepository;
+import completo.projeto.completo.security.CryptoUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@Slf4j
+@Service
+public class PatientService {
+
+    private final PatientRepository repository;
+    private final CryptoUtil cryptoUtil;
+
+    public PatientService(PatientRepository repository, CryptoUtil cryptoUtil) {
+        this.repository = repository;
+        this.cryptoUtil = cryptoUtil;
+    }
+
+    /** Busca por igualdade no índice cego do CPF; nenhum CPF é descriptografado. */
+    public List<PatientDTO> findByCpf(String cpf) {
+        String digitsOnly = cpf == null ? "" : cpf.replaceAll("\\D", "");
+        if (digitsOnly.isEmpty()) {
+            log.warn("domain=patient validation=fail reason=missing_cpf");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cpf é obrigatório");
+        }
+        List<PatientDTO> out = repository.findByCpfHash(cryptoUtil.blindIndex(digitsOnly))
+                .stream()
+                .map(p -> new PatientDTO(p.getPatientId(), p.getName(), p.getEncryptedCpf()))
+                .toList();
+        log.info("domain=patient query=by_cpf success count={}", out.size());
+        return out;
+    }
+}
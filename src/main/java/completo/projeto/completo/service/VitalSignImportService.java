@@ -0,0 +1,384 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.dto.VitalSignBatchErrorDTO;
+import completo.projeto.completo.dto.VitalSignImportResultDTO;
+import completo.projeto.completo.entities.Patient;
+import completo.projeto.completo.entities.TimeOrderedUuidGenerator;
+import completo.projeto.completo.entities.VitalSignRecord;
+import completo.projeto.completo.mapper.TimestampCodec;
+import completo.projeto.completo.repository.PatientRepository;
+import completo.projeto.completo.security.CryptoUtil;
+import completo.projeto.completo.service.PatientIdentityCache.PatientIdentity;
+import completo.projeto.completo.service.VitalSignMetrics.Stage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Importação de exportações históricas dos monitores no formato {@code dados_pac*.csv}
+ * ({@code timestamp,paciente_id,paciente_nome,paciente_cpf,hr,spo2,pressao_sys,pressao_dia,temp,resp_freq,status}).
+ * <p>
+ * O arquivo é lido linha a linha e gravado em blocos de {@code vital-signs.import.chunk-size} leituras,
+ * cada bloco em uma transação com um único {@code batchUpdate} JDBC; a memória usada não depende do
+ * tamanho do arquivo. O CPF é criptografado uma vez por paciente (linhas seguintes com o mesmo CPF
+ * reaproveitam o resultado) e os pacientes novos ou alterados são gravados junto do bloco.
+ * <p>
+ * As leituras importadas entram nos rollups; o buffer das últimas leituras dos pacientes afetados é
+ * descartado e não há broadcast WebSocket (dados históricos). Blocos já gravados permanecem se um
+ * bloco posterior falhar.
+ */
+@Slf4j
+@Service
+public class VitalSignImportService {
+
+    static final String INSERT_SQL = "INSERT INTO vital_sign_record (id, patient_id, heart_rate, oxygen_saturation, " +
+            "systolic_pressure, diastolic_pressure, temperature, respiratory_rate, status, timestamp) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int MAX_ERRORS = 100;
+    private static final List<String> HEADER = List.of("timestamp", "paciente_id", "paciente_nome", "paciente_cpf", "hr",
+            "spo2", "pressao_sys", "pressao_dia", "temp", "resp_freq", "status");
+    private static final int FIELDS = HEADER.size();
+    // deltas de rollup acumulados antes de forçar um flush durante a importação
+    private static final int MAX_PENDING_ROLLUPS = 50_000;
+
+    /** Estado de um paciente durante a importação. */
+    private static final class ImportPatient {
+        Optional<PatientIdentity> stored;
+        PatientIdentity identity;
+        String lastCpf;
+
+        ImportPatient(Optional<PatientIdentity> stored) {
+            this.stored = stored;
+            this.identity = stored.orElse(null);
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final PatientRepository patientRepository;
+    private final CryptoUtil cryptoUtil;
+    private final PatientIdentityCache identityCache;
+    private final LatestReadingsBuffer latestBuffer;
+    private final VitalSignRollupService rollupService;
+    private final TimestampCodec timestampCodec;
+    private final VitalSignMetrics metrics;
+    private final int chunkSize;
+
+    public VitalSignImportService(JdbcTemplate jdbc,
+                                  PlatformTransactionManager transactionManager,
+                                  PatientRepository patientRepository,
+                                  CryptoUtil cryptoUtil,
+                                  PatientIdentityCache identityCache,
+                                  LatestReadingsBuffer latestBuffer,
+                                  VitalSignRollupService rollupService,
+                                  TimestampCodec timestampCodec,
+                                  VitalSignMetrics metrics,
+                                  @Value("${vital-signs.import.chunk-size:1000}") int chunkSize) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.patientRepository = patientRepository;
+        this.cryptoUtil = cryptoUtil;
+        this.identityCache = identityCache;
+        this.latestBuffer = latestBuffer;
+        this.rollupService = rollupService;
+        this.timestampCodec = timestampCodec;
+        this.metrics = metrics;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * @param date data usada nas linhas que só têm horário ({@code HH:mm:ss.SS}); {@code null} = hoje
+     *             no fuso padrão. Horários sem offset seguem {@code vital-signs.time.default-zone}.
+     */
+    public VitalSignImportResultDTO importCsv(InputStream in, String date) throws IOException {
+        String day = resolveDate(date);
+        long start = System.nanoTime();
+        log.info("domain=vital_sign event=import_start date={} chunkSize={}", day, chunkSize);
+
+        Map<String, ImportPatient> patients = new HashMap<>();
+        Map<String, ImportPatient> dirty = new HashMap<>();
+        List<VitalSignRecord> chunk = new ArrayList<>(chunkSize);
+        List<VitalSignBatchErrorDTO> errors = new ArrayList<>();
+        String[] fields = new String[FIELDS];
+        long rows = 0;
+        long imported = 0;
+        long rejected = 0;
+        long lineNumber = 1;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "arquivo CSV vazio");
+            }
+            requireHeader(header);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                rows++;
+                split(line, fields);
+                try {
+                    chunk.add(toRecord(fields, day, patients, dirty));
+                } catch (ResponseStatusException e) {
+                    rejected++;
+                    if (errors.size() < MAX_ERRORS) {
+                        errors.add(new VitalSignBatchErrorDTO((int) Math.min(lineNumber, Integer.MAX_VALUE),
+                                fields[1], e.getReason()));
+                    }
+                    continue;
+                }
+                if (chunk.size() >= chunkSize) {
+                    imported += flush(chunk, dirty);
+                }
+            }
+            imported += flush(chunk, dirty);
+        } catch (RuntimeException e) {
+            log.error("domain=vital_sign event=import_fail rows={} imported={} line={} err='{}'",
+                    rows, imported, lineNumber, e.getMessage());
+            throw e;
+        } finally {
+            patients.keySet().forEach(latestBuffer::invalidate);
+        }
+
+        metrics.rejected((int) Math.min(rejected, Integer.MAX_VALUE));
+        int importedPatients = (int) patients.values().stream().filter(p -> p.identity != null).count();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("domain=vital_sign event=import_ok rows={} imported={} rejected={} patients={} elapsedMs={}",
+                rows, imported, rejected, importedPatients, elapsedMs);
+        return new VitalSignImportResultDTO(rows, imported, rejected, importedPatients, elapsedMs, errors);
+    }
+
+    /** Grava o bloco (pacientes alterados + leituras) numa transação e atualiza caches e rollups após o commit. */
+    private int flush(List<VitalSignRecord> chunk, Map<String, ImportPatient> dirty) {
+        if (chunk.isEmpty()) return 0;
+        long dbStart = System.nanoTime();
+        tx.executeWithoutResult(status -> {
+            dirty.forEach(this::savePatient);
+            jdbc.batchUpdate(INSERT_SQL, chunk, chunk.size(), (ps, r) -> {
+                ps.setObject(1, r.getId());
+                ps.setString(2, r.getPatientId());
+                setNullable(ps, 3, r.getHeartRate(), Types.INTEGER);
+                setNullable(ps, 4, r.getOxygenSaturation(), Types.DOUBLE);
+                setNullable(ps, 5, r.getSystolicPressure(), Types.DOUBLE);
+                setNullable(ps, 6, r.getDiastolicPressure(), Types.DOUBLE);
+                setNullable(ps, 7, r.getTemperature(), Types.DOUBLE);
+                setNullable(ps, 8, r.getRespiratoryRate(), Types.DOUBLE);
+                ps.setString(9, r.getStatus());
+                ps.setObject(10, OffsetDateTime.ofInstant(r.getTimestamp(), ZoneOffset.UTC));
+            });
+        });
+        metrics.record(Stage.DB_SAVE, System.nanoTime() - dbStart);
+
+        dirty.forEach((id, p) -> {
+            p.stored = Optional.of(p.identity);
+            identityCache.put(id, p.identity);
+        });
+        dirty.clear();
+        chunk.forEach(rollupService::record);
+        if (rollupService.pendingSize() > MAX_PENDING_ROLLUPS) rollupService.flush();
+        int saved = chunk.size();
+        metrics.imported(saved);
+        chunk.clear();
+        return saved;
+    }
+
+    private VitalSignRecord toRecord(String[] f, String day, Map<String, ImportPatient> patients,
+                                     Map<String, ImportPatient> dirty) {
+        String patientId = f[1];
+        if (patientId == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "paciente_id é obrigatório");
+        }
+        VitalSignRecord r = VitalSignRecord.builder()
+                .id(TimeOrderedUuidGenerator.next())
+                .patientId(patientId)
+                .timestamp(parseTimestamp(f[0], day))
+                .heartRate(toInteger(f[4], "hr"))
+                .oxygenSaturation(toDouble(f[5], "spo2"))
+                .systolicPressure(toDouble(f[6], "pressao_sys"))
+                .diastolicPressure(toDouble(f[7], "pressao_dia"))
+                .temperature(toDouble(f[8], "temp"))
+                .respiratoryRate(toDouble(f[9], "resp_freq"))
+                .status(f[10])
+                .build();
+        ImportPatient patient = patients.get(patientId);
+        if (patient == null) {
+            patient = new ImportPatient(resolveKnownIdentity(patientId));
+            patients.put(patientId, patient);
+        }
+        if (updateIdentity(patientId, patient, f[2], f[3])) {
+            dirty.put(patientId, patient);
+        }
+        return r;
+    }
+
+    /**
+     * Aplica nome/CPF da linha à identidade do paciente. O CPF só é processado quando muda em relação
+     * à linha anterior do mesmo paciente; se o índice cego bater com o gravado, o ciphertext é reaproveitado.
+     *
+     * @return {@code true} se a identidade passou a diferir da gravada
+     */
+    private boolean updateIdentity(String patientId, ImportPatient p, String name, String cpf) {
+        PatientIdentity current = p.identity;
+        String newName = name != null ? name : current != null ? current.patientName() : null;
+        String encryptedCpf = current != null ? current.encryptedCpf() : null;
+        String cpfHash = current != null ? current.cpfHash() : null;
+
+        if (cpf != null && !cpf.equals(p.lastCpf)) {
+            String digitsOnly = cpf.replaceAll("\\D", "");
+            String blindIndex = cryptoUtil.blindIndex(digitsOnly);
+            if (!blindIndex.equals(cpfHash)) {
+                encryptedCpf = metrics.time(Stage.ENCRYPTION, () -> cryptoUtil.encrypt(digitsOnly)); // nunca logar CPF
+                cpfHash = blindIndex;
+            }
+        }
+        if (newName == null || encryptedCpf == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "paciente_nome e paciente_cpf são obrigatórios no primeiro registro do paciente " + patientId);
+        }
+        if (cpf != null) p.lastCpf = cpf;
+        PatientIdentity updated = new PatientIdentity(newName, encryptedCpf, cpfHash);
+        if (updated.equals(current)) return false;
+        p.identity = updated;
+        return !p.stored.equals(Optional.of(updated));
+    }
+
+    private Optional<PatientIdentity> resolveKnownIdentity(String patientId) {
+        return metrics.time(Stage.IDENTITY_LOOKUP, () -> {
+            Optional<PatientIdentity> cached = identityCache.get(patientId);
+            if (cached.isPresent()) return cached;
+            return patientRepository.findById(patientId).map(PatientIdentity::of);
+        });
+    }
+
+    private void savePatient(String patientId, ImportPatient p) {
+        Patient patient = patientRepository.findById(patientId)
+                .orElseGet(() -> Patient.builder().patientId(patientId).build());
+        patient.setName(p.identity.patientName());
+        patient.setEncryptedCpf(p.identity.encryptedCpf());
+        patient.setCpfHash(p.identity.cpfHash());
+        patientRepository.save(patient);
+        log.info("domain=patient event={} patientId={} source=import",
+                p.stored.isEmpty() ? "create_ok" : "update_ok", patientId);
+    }
+
+    /**
+     * Aceita os formatos das exportações: {@code HH:mm:ss[.f]} (com {@code day}), {@code dd/MM/yyyy HH:mm:ss[.f]},
+     * {@code yyyy-MM-dd HH:mm:ss[.f]} e o que o {@link TimestampCodec} aceitar (ISO-8601, epoch millis).
+     */
+    private Instant parseTimestamp(String s, String day) {
+        if (s == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "timestamp é obrigatório");
+        }
+        String iso = s;
+        if (s.length() >= 8 && s.charAt(2) == ':') {
+            iso = day + 'T' + s;
+        } else if (s.length() >= 19 && s.charAt(2) == '/' && s.charAt(5) == '/') {
+            iso = s.substring(6, 10) + '-' + s.substring(3, 5) + '-' + s.substring(0, 2) + 'T' + s.substring(11);
+        } else if (s.length() >= 19 && s.charAt(10) == ' ') {
+            iso = s.substring(0, 10) + 'T' + s.substring(11);
+        }
+        try {
+            return timestampCodec.parse(iso);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "timestamp em formato inválido: " + s);
+        }
+    }
+
+    private String resolveDate(String date) {
+        if (date == null || date.isBlank()) return LocalDate.now(timestampCodec.defaultZone()).toString();
+        try {
+            return LocalDate.parse(date.trim()).toString();
+        } catch (DateTimeParseException e) {
+            log.warn("domain=vital_sign validation=invalid_import_date value='{}'", date);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "date inválida (use yyyy-MM-dd)");
+        }
+    }
+
+    private static Integer toInteger(String s, String field) {
+        Double d = toDouble(s, field);
+        return d == null ? null : (int) Math.round(d);
+    }
+
+    private static Double toDouble(String s, String field) {
+        if (s == null) return null;
+        try {
+            return Double.parseDouble(s.indexOf(',') >= 0 ? s.replace(',', '.') : s);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + " inválido: " + s);
+        }
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, Number value, int sqlType) throws SQLException {
+        if (value == null) ps.setNull(index, sqlType);
+        else ps.setObject(index, value, sqlType);
+    }
+
+    /**
+     * Colunas fora de ordem ou ausentes gravariam valores nos campos errados (ou falhariam linha a linha
+     * com erros enganosos): o arquivo inteiro é recusado antes da primeira leitura.
+     */
+    private static void requireHeader(String header) {
+        String cleaned = header.startsWith("\uFEFF") ? header.substring(1) : header;
+        List<String> columns = Arrays.stream(cleaned.split(",", -1))
+                .map(c -> c.strip().toLowerCase(Locale.ROOT))
+                .toList();
+        if (!columns.equals(HEADER)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "cabeçalho do CSV inválido: esperado " + String.join(",", HEADER));
+        }
+    }
+
+    /** Separa a linha em {@code out} (campos vazios viram {@code null}); vírgulas entre aspas não separam campos. */
+    static void split(String line, String[] out) {
+        int field = 0;
+        int start = 0;
+        boolean quoted = false;
+        for (int i = 0; i <= line.length() && field < out.length; i++) {
+            char c = i < line.length() ? line.charAt(i) : ',';
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                out[field++] = clean(line, start, i);
+                start = i + 1;
+            }
+        }
+        while (field < out.length) out[field++] = null;
+    }
+
+    private static String clean(String line, int start, int end) {
+        while (start < end && Character.isWhitespace(line.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(line.charAt(end - 1))) end--;
+        if (end - start >= 2 && line.charAt(start) == '"' && line.charAt(end - 1) == '"') {
+            start++;
+            end--;
+        }
+        return start == end ? null : line.substring(start, end);
+    }
+}
@@ -0,0 +1,115 @@
+package completo.projeto.completo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Métricas do caminho quente de ingestão e das consultas, expostas em {@code /actuator/prometheus}.
+ * <ul>
+ *   <li>{@code vital_signs.create} (timer, tag {@code stage}): latência total da gravação e de cada etapa.</li>
+ *   <li>{@code vital_signs.ingested} (counter, tag {@code mode}: single, batch, import): leituras gravadas; {@code vital_signs.rejected}, recusadas.</li>
+ *   <li>{@code vital_signs.query} (timer com histograma, tag {@code query}): tempo de serviço das consultas.</li>
+ * </ul>
+ * Os tamanhos de cache, buffers e filas são registrados como gauges em {@code MetricsConfig}.
+ */
+@Component
+public class VitalSignMetrics {
+
+    public enum Stage {
+        TOTAL, IDENTITY_LOOKUP, ENCRYPTION, DB_SAVE, BROADCAST;
+
+        private final String tag = name().toLowerCase();
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Timer> stages = new EnumMap<>(Stage.class);
+    private final Map<String, Timer> queries = new ConcurrentHashMap<>();
+    private final Counter ingestedSingle;
+    private final Counter ingestedBatch;
+    private final Counter ingestedImport;
+    private final Counter rejected;
+
+    public VitalSignMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, Timer.builder("vital_signs.create")
+                    .description("Latência da gravação de leituras por etapa")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        this.ingestedSingle = ingested("single");
+        this.ingestedBatch = ingested("batch");
+        this.ingestedImport = ingested("import");
+        this.rejected = Counter.builder("vital_signs.rejected")
+                .description("Leituras recusadas na validação")
+                .register(registry);
+    }
+
+    public <T> T time(Stage stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(stage, System.nanoTime() - start);
+        }
+    }
+
+    public void time(Stage stage, Runnable work) {
+        long start = System.nanoTime();
+        try {
+            work.run();
+        } finally {
+            record(stage, System.nanoTime() - start);
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        stages.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> T query(String query, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            recordQuery(query, System.nanoTime() - start);
+        }
+    }
+
+    public void recordQuery(String query, long nanos) {
+        queries.computeIfAbsent(query, q -> Timer.builder("vital_signs.query")
+                        .description("Tempo de serviço das consultas de sinais vitais")
+                        .tag("query", q)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void ingested(int count, boolean batch) {
+        (batch ? ingestedBatch : ingestedSingle).increment(count);
+    }
+
+    public void imported(int count) {
+        ingestedImport.increment(count);
+    }
+
+    public void rejected(int count) {
+        rejected.increment(count);
+    }
+
+    private Counter ingested(String mode) {
+        return Counter.builder("vital_signs.ingested")
+                .description("Leituras gravadas")
+                .tag("mode", mode)
+                .register(registry);
+    }
+}
@@ -1,57 +1,481 @@
 package completo.projeto.completo.service;
 
 import completo.projeto.completo.security.CryptoUtil;
+import completo.projeto.completo.dto.VitalSignBatchErrorDTO;
+import completo.projeto.completo.dto.VitalSignBatchResultDTO;
+import completo.projeto.completo.dto.VitalSignHistoryPageDTO;
 import completo.projeto.completo.dto.VitalSignRecordDTO;
+import completo.projeto.completo.dto.VitalSignSeriesDTO;
+import completo.projeto.completo.entities.Patient;
+import completo.projeto.completo.entities.RollupResolution;
+import completo.projeto.completo.entities.TimeOrderedUuidGenerator;
+import completo.projeto.completo.entities.VitalSignMetric;
 import completo.projeto.completo.entities.VitalSignRecord;
+import completo.projeto.completo.mapper.TimestampCodec;
+import completo.projeto.completo.repository.PatientRepository;
 import completo.projeto.completo.repository.VitalSignRecordRepository;
+import completo.projeto.completo.service.PatientIdentityCache.PatientIdentity;
+import completo.projeto.completo.service.VitalSignMetrics.Stage;
+import completo.projeto.completo.service.WriteBehindIngestQueue.PendingReading;
 import completo.projeto.completo.websocket.VitalSignWebSocketService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 public class VitalSignRecordService {
 
+    private static final PatientIdentity UNKNOWN_PATIENT = new PatientIdentity(null, null, null);
+
     @Value("${vital-signs.limit.max:500}")
     private int maxLimit;
 
     @Value("${vital-signs.limit.min:1}")
     private int minLimit;
 
+    @Value("${vital-signs.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${vital-signs.series.max-buckets:5000}")
+    private int maxSeriesBuckets;
+
     private final VitalSignRecordRepository repository;
+    private final PatientRepository patientRepository;
     private final CryptoUtil cryptoUtil;
     private final VitalSignWebSocketService webSocketService;
+    private final PatientIdentityCache identityCache;
+    private final LatestReadingsBuffer latestBuffer;
+    private final VitalSignRollupService rollupService;
+    private final TimestampCodec timestampCodec;
+    private final VitalSignMetrics metrics;
+    private final WriteBehindIngestQueue writeBehind;
+    // create() síncrono: sem @Transactional no método, que no modo write-behind só enfileira
+    private final TransactionTemplate tx;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     public VitalSignRecordService(VitalSignRecordRepository repository,
+                                  PatientRepository patientRepository,
                                   CryptoUtil cryptoUtil,
-                                  VitalSignWebSocketService webSocketService) {
+                                  VitalSignWebSocketService webSocketService,
+                                  PatientIdentityCache identityCache,
+                                  LatestReadingsBuffer latestBuffer,
+                                  VitalSignRollupService rollupService,
+                                  TimestampCodec timestampCodec,
+                                  VitalSignMetrics metrics,
+                                  WriteBehindIngestQueue writeBehind,
+                                  PlatformTransactionManager transactionManager) {
         this.repository = repository;
+        this.patientRepository = patientRepository;
         this.cryptoUtil = cryptoUtil;
         this.webSocketService = webSocketService;
+        this.identityCache = identityCache;
+        this.latestBuffer = latestBuffer;
+        this.rollupService = rollupService;
+        this.timestampCodec = timestampCodec;
+        this.metrics = metrics;
+        this.writeBehind = writeBehind;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void startWriteBehind() {
+        writeBehind.start(this::writeGroup, this::replayGroup);
+    }
+
+    // aqui e não no próprio WriteBehindIngestQueue: este serviço é destruído antes das suas dependências,
+    // então a fila é descarregada antes do flush final dos rollups
+    @PreDestroy
+    void stopWriteBehind() {
+        writeBehind.shutdown();
+    }
+
+    /** Com {@code vital-signs.ingest.mode=write-behind}, {@link #create} só enfileira a leitura (202). */
+    public boolean isWriteBehind() {
+        return writeBehind.isEnabled();
     }
 
     public VitalSignRecordDTO create(VitalSignRecordDTO in) {
+        long start = System.nanoTime();
+        Optional<PatientIdentity> known;
+        PatientIdentity identity;
+        VitalSignRecord entity;
+        try {
+            requirePatientId(in);
+            known = resolveKnownIdentity(in.patientId());
+            identity = resolveIdentity(in, known);
+            entity = buildEntity(in);
+        } catch (ResponseStatusException e) {
+            if (e.getStatusCode().is4xxClientError()) metrics.rejected(1);
+            throw e;
+        }
+
+        if (writeBehind.isEnabled()) {
+            writeBehind.offer(new PendingReading(entity, identity, known, System.nanoTime()));
+            log.debug("domain=vital_sign event=save_queued patientId={} ts={}", in.patientId(), entity.getTimestamp());
+            metrics.record(Stage.TOTAL, System.nanoTime() - start);
+            return toSafeDTO(entity, identity);
+        }
+
+        long dbStart = System.nanoTime();
+        VitalSignRecord saved;
+        PatientIdentity stored;
+        Optional<PatientIdentity> previous;
+        try {
+            saved = tx.execute(status -> saveWithPatient(entity, identity, known));
+            stored = identity;
+            previous = known;
+        } catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+            // outra requisição gravou o paciente primeiro (primeira leitura em paralelo ou identidade alterada):
+            // refaz a transação sobre o paciente relido. CPF igual não é recriptografado, então quem traz a
+            // mesma identidade não reescreve o paciente; um segundo conflito vira 409
+            log.debug("domain=vital_sign event=save_retry patientId={} reason={}", in.patientId(), e.getClass().getSimpleName());
+            Optional<PatientIdentity> current = patientRepository.findById(in.patientId()).map(PatientIdentity::of);
+            PatientIdentity retried = resolveIdentity(in, current);
+            try {
+                saved = tx.execute(status -> saveWithPatient(entity, retried, current));
+            } catch (DataIntegrityViolationException | OptimisticLockingFailureException again) {
+                throw conflict(in.patientId(), again);
+            }
+            stored = retried;
+            previous = current;
+        }
+        metrics.record(Stage.DB_SAVE, System.nanoTime() - dbStart);
+        log.info("domain=vital_sign event=save_ok patientId={} recordId={} ts={}",
+                saved.getPatientId(), saved.getId(), saved.getTimestamp());
+
+        invalidateIfIdentityChanged(saved.getPatientId(), previous, stored);
+        VitalSignRecordDTO out = onPersisted(saved, stored);
+        metrics.ingested(1, false);
+        metrics.record(Stage.TOTAL, System.nanoTime() - start);
+        return out;
+    }
+
+    /**
+     * Persiste um lote de leituras em uma única transação.
+     * A identidade é resolvida uma vez por paciente distinto do lote; leituras seguintes
+     * do mesmo paciente herdam nome/CPF do item anterior. Itens inválidos são reportados por índice
+     * sem impedir a gravação dos demais. Se outra requisição gravar um paciente do lote ao mesmo tempo,
+     * o lote é refeito uma vez sobre os pacientes relidos; um segundo conflito vira 409.
+     */
+    public VitalSignBatchResultDTO createBatch(List<VitalSignRecordDTO> items) {
+        if (items == null || items.isEmpty()) {
+            log.warn("domain=vital_sign create_batch=fail reason=empty_batch");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "lote de leituras vazio");
+        }
+        if (items.size() > maxBatchSize) {
+            log.warn("domain=vital_sign create_batch=fail reason=batch_too_large size={} max={}", items.size(), maxBatchSize);
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "lote excede o tamanho máximo de " + maxBatchSize + " leituras"
+            );
+        }
+
+        BatchPlan first = planBatch(items, this::resolveKnownIdentity);
+        long dbStart = System.nanoTime();
+        BatchPlan plan = first;
+        List<VitalSignRecord> saved;
+        try {
+            saved = tx.execute(status -> saveBatch(first));
+        } catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+            log.debug("domain=vital_sign event=save_batch_retry reason={}", e.getClass().getSimpleName());
+            BatchPlan retried = planBatch(items, patientId -> patientRepository.findById(patientId).map(PatientIdentity::of));
+            try {
+                saved = tx.execute(status -> saveBatch(retried));
+            } catch (DataIntegrityViolationException | OptimisticLockingFailureException again) {
+                throw conflict(String.join(",", retried.identities().keySet()), again);
+            }
+            plan = retried;
+        }
+        metrics.record(Stage.DB_SAVE, System.nanoTime() - dbStart);
+        metrics.ingested(saved.size(), true);
+        metrics.rejected(plan.errors().size());
+        log.info("domain=vital_sign event=save_batch_ok received={} saved={} failed={} patients={}",
+                items.size(), saved.size(), plan.errors().size(), plan.knownByPatient().size());
+
+        onPersisted(saved, plan.identities(), plan.knownByPatient());
+
+        return new VitalSignBatchResultDTO(items.size(), saved.size(), plan.errors().size(), plan.errors());
+    }
+
+    /** Leituras de um lote já validadas, com a identidade conhecida antes do lote e a vigente após ele. */
+    private record BatchPlan(Map<String, Optional<PatientIdentity>> knownByPatient,
+                             Map<String, PatientIdentity> identities,
+                             List<VitalSignRecord> toSave,
+                             List<VitalSignBatchErrorDTO> errors) {
+    }
+
+    private BatchPlan planBatch(List<VitalSignRecordDTO> items, Function<String, Optional<PatientIdentity>> lookup) {
+        Map<String, Optional<PatientIdentity>> knownByPatient = new HashMap<>();
+        Map<String, PatientIdentity> identities = new HashMap<>();
+        List<VitalSignRecord> toSave = new ArrayList<>(items.size());
+        List<VitalSignBatchErrorDTO> errors = new ArrayList<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            VitalSignRecordDTO in = items.get(i);
+            try {
+                requirePatientId(in);
+                Optional<PatientIdentity> known = identities.containsKey(in.patientId())
+                        ? Optional.of(identities.get(in.patientId()))
+                        : knownByPatient.computeIfAbsent(in.patientId(), lookup);
+
+                PatientIdentity identity = resolveIdentity(in, known);
+                toSave.add(buildEntity(in));
+                identities.put(in.patientId(), identity);
+            } catch (ResponseStatusException e) {
+                errors.add(new VitalSignBatchErrorDTO(i, in != null ? in.patientId() : null, e.getReason()));
+            }
+        }
+        return new BatchPlan(knownByPatient, identities, toSave, errors);
+    }
+
+    private List<VitalSignRecord> saveBatch(BatchPlan plan) {
+        plan.identities().forEach((patientId, identity) -> {
+            Optional<PatientIdentity> before = plan.knownByPatient().get(patientId);
+            if (!before.equals(Optional.of(identity))) savePatient(patientId, identity, before.isEmpty());
+        });
+        return repository.saveAll(plan.toSave());
+    }
+
+    private ResponseStatusException conflict(String patientIds, RuntimeException e) {
+        log.warn("domain=vital_sign event=save_conflict patientId={} reason={}", patientIds, e.getClass().getSimpleName());
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                "o paciente foi alterado por outra requisição; tente novamente");
+    }
+
+    /**
+     * Grava um grupo do write-behind na transação aberta pela fila. A identidade gravada é a da
+     * última leitura de cada paciente; o cache, o buffer e o broadcast só são atualizados após o commit.
+     */
+    private void writeGroup(List<PendingReading> group) {
+        long dbStart = System.nanoTime();
+        Map<String, Optional<PatientIdentity>> before = new HashMap<>();
+        Map<String, PatientIdentity> identities = new HashMap<>();
+        List<VitalSignRecord> records = new ArrayList<>(group.size());
+        for (PendingReading p : group) {
+            VitalSignRecord r = p.record();
+            before.putIfAbsent(r.getPatientId(), p.before());
+            identities.put(r.getPatientId(), p.identity());
+            records.add(r);
+        }
+        // o paciente pode ter sido criado por outro grupo depois que a leitura foi aceita: sempre busca antes
+        identities.forEach((patientId, identity) -> {
+            if (!before.get(patientId).equals(Optional.of(identity))) savePatient(patientId, identity, false);
+        });
+        List<VitalSignRecord> saved = repository.saveAll(records);
+        metrics.record(Stage.DB_SAVE, System.nanoTime() - dbStart);
+        metrics.ingested(saved.size(), false);
+        log.debug("domain=vital_sign event=save_group_ok saved={} patients={}", saved.size(), identities.size());
+
+        afterCommit(saved, identities, before);
+    }
+
+    /**
+     * Grupo reaplicado do WAL na inicialização: com banco em arquivo parte dele pode já ter sido gravada
+     * antes da queda, então leituras cujo id já está na tabela são ignoradas (uma consulta por grupo).
+     * Com banco em memória os pacientes também se perderam: a identidade é sempre regravada.
+     */
+    private void replayGroup(List<PendingReading> group) {
+        Set<UUID> stored = repository.findExistingIds(group.stream().map(p -> p.record().getId()).toList());
+        List<PendingReading> missing = group.stream()
+                .filter(p -> !stored.contains(p.record().getId()))
+                .map(p -> new PendingReading(p.record(), p.identity(), Optional.empty(), p.enqueuedNanos(), p.lsn()))
+                .toList();
+        log.info("domain=vital_sign event=wal_replay_group size={} skipped={}", group.size(), group.size() - missing.size());
+        if (!missing.isEmpty()) writeGroup(missing);
+    }
+
+    private void requirePatientId(VitalSignRecordDTO in) {
         if (in == null || isBlank(in.patientId())) {
             log.warn("domain=vital_sign create=fail reason=missing_patientId");
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "patientId é obrigatório");
         }
+    }
+
+    /**
+     * Exporta todo o histórico, do mais recente ao mais antigo, sem materializar a lista:
+     * as linhas vêm de um cursor JDBC e cada entidade é desanexada após ser entregue ao {@code sink}.
+     */
+    @Transactional(readOnly = true)
+    public long streamHistoryAll(Consumer<VitalSignRecordDTO> sink) {
+        log.debug("domain=vital_sign query=history_all_stream start");
+        long count;
+        try (Stream<VitalSignRecord> rows = repository.streamAllByOrderByTimestampDesc()) {
+            count = metrics.query("history_all_stream", () -> drain(rows, sink));
+        }
+        log.info("domain=vital_sign query=history_all_stream success count={}", count);
+        return count;
+    }
+
+    @Transactional(readOnly = true)
+    public long streamHistoryByPatientId(String patientId, Consumer<VitalSignRecordDTO> sink) {
+        log.debug("domain=vital_sign query=history_by_patient_stream start patientId={}", patientId);
+        long count;
+        try (Stream<VitalSignRecord> rows = repository.streamByPatientIdOrderByTimestampDesc(patientId)) {
+            count = metrics.query("history_by_patient_stream", () -> drain(rows, sink));
+        }
+        log.info("domain=vital_sign query=history_by_patient_stream success patientId={} count={}", patientId, count);
+        return count;
+    }
+
+    /**
+     * Página do histórico geral por keyset: {@code after} é o {@code nextCursor} da página anterior
+     * ({@code <timestamp>,<id>}) ou vazio para a primeira página.
+     */
+    public VitalSignHistoryPageDTO getHistoryPage(String after, int limit) {
+        int safeLimit = Math.max(minLimit, Math.min(maxLimit, limit));
+        HistoryCursor cursor = HistoryCursor.parse(after, timestampCodec);
+        log.debug("domain=vital_sign query=history_page start after={} safeLimit={}", after, safeLimit);
+        PageRequest page = PageRequest.of(0, safeLimit);
+        List<VitalSignRecord> rows = metrics.query("history_page", () -> cursor == null
+                ? repository.findAllByOrderByTimestampDescIdDesc(page)
+                : repository.findPageAfter(cursor.timestamp(), cursor.id(), page));
+        VitalSignHistoryPageDTO out = toPage(rows, safeLimit);
+        log.info("domain=vital_sign query=history_page success count={}", out.items().size());
+        return out;
+    }
+
+    public VitalSignHistoryPageDTO getHistoryPageByPatientId(String patientId, String after, int limit) {
+        int safeLimit = Math.max(minLimit, Math.min(maxLimit, limit));
+        HistoryCursor cursor = HistoryCursor.parse(after, timestampCodec);
+        log.debug("domain=vital_sign query=history_page_by_patient start patientId={} after={} safeLimit={}",
+                patientId, after, safeLimit);
+        PageRequest page = PageRequest.of(0, safeLimit);
+        List<VitalSignRecord> rows = metrics.query("history_page_by_patient", () -> cursor == null
+                ? repository.findByPatientIdOrderByTimestampDescIdDesc(patientId, page)
+                : repository.findPageByPatientIdAfter(patientId, cursor.timestamp(), cursor.id(), page));
+        VitalSignHistoryPageDTO out = toPage(rows, safeLimit);
+        log.info("domain=vital_sign query=history_page_by_patient success patientId={} count={}",
+                patientId, out.items().size());
+        return out;
+    }
+
+    private long drain(Stream<VitalSignRecord> rows, Consumer<VitalSignRecordDTO> sink) {
+        long count = 0;
+        for (var it = rows.iterator(); it.hasNext(); ) {
+            VitalSignRecord r = it.next();
+            sink.accept(toSafeDTO(r, identityFor(r.getPatientId())));
+            entityManager.detach(r);
+            count++;
+        }
+        return count;
+    }
+
+    private VitalSignHistoryPageDTO toPage(List<VitalSignRecord> rows, int limit) {
+        String nextCursor = null;
+        if (rows.size() == limit) {
+            VitalSignRecord last = rows.get(rows.size() - 1);
+            nextCursor = new HistoryCursor(last.getTimestamp(), last.getId()).format();
+        }
+        return new VitalSignHistoryPageDTO(toSafeDTOs(rows), nextCursor);
+    }
+
+    /** {@code <instante ISO-8601>,<id>}; o instante mantém a precisão total para não pular linhas. */
+    private record HistoryCursor(Instant timestamp, UUID id) {
+
+        static HistoryCursor parse(String raw, TimestampCodec codec) {
+            if (raw == null || raw.isBlank()) return null;
+            int comma = raw.lastIndexOf(',');
+            try {
+                if (comma < 0) throw new IllegalArgumentException("separador ausente");
+                return new HistoryCursor(
+                        codec.parse(raw.substring(0, comma).trim()),
+                        UUID.fromString(raw.substring(comma + 1).trim()));
+            } catch (RuntimeException ex) {
+                log.warn("domain=vital_sign validation=invalid_cursor value='{}'", raw);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cursor inválido (use <timestamp>,<id>)");
+            }
+        }
+
+        String format() {
+            return timestamp + "," + id;
+        }
+    }
+
+    /** Busca de identidade na ingestão, medida em {@code stage=identity_lookup}; leituras usam {@link #identityFor}. */
+    private Optional<PatientIdentity> resolveKnownIdentity(String patientId) {
+        return metrics.time(Stage.IDENTITY_LOOKUP, () -> lookupKnownIdentity(patientId));
+    }
+
+    private Optional<PatientIdentity> lookupKnownIdentity(String patientId) {
+        Optional<PatientIdentity> queued = writeBehind.pendingIdentity(patientId);
+        if (queued.isPresent()) return queued;
+
+        Optional<PatientIdentity> cached = identityCache.get(patientId);
+        if (cached.isPresent()) return cached;
+
+        Optional<PatientIdentity> fromDb = patientRepository.findById(patientId)
+                .map(PatientIdentity::of);
+        fromDb.ifPresent(identity -> identityCache.put(patientId, identity));
+        return fromDb;
+    }
 
-        Optional<VitalSignRecord> lastOpt =
-                repository.findTopByPatientIdOrderByTimestampDesc(in.patientId());
+    /**
+     * Identidade vigente do paciente após esta leitura: campos ausentes no payload são herdados
+     * da identidade conhecida.
+     */
+    private PatientIdentity resolveIdentity(VitalSignRecordDTO in, Optional<PatientIdentity> known) {
+        EncryptedCpf cpf = metrics.time(Stage.ENCRYPTION, () -> resolveEncryptedCpf(in, known)); // nunca logar CPF
+        PatientIdentity identity = new PatientIdentity(resolvePatientName(in, known), cpf.ciphertext(), cpf.blindIndex());
+        validateFirstRecordRequireds(in.patientId(), identity, known.isEmpty());
+        return identity;
+    }
+
+    /** Paciente (se a identidade mudou) e leitura na mesma transação: uma falha não deixa um sem o outro. */
+    private VitalSignRecord saveWithPatient(VitalSignRecord entity, PatientIdentity identity,
+                                            Optional<PatientIdentity> known) {
+        if (!known.equals(Optional.of(identity))) savePatient(entity.getPatientId(), identity, known.isEmpty());
+        return repository.save(entity);
+    }
+
+    private void savePatient(String patientId, PatientIdentity identity, boolean isNew) {
+        Patient patient = isNew
+                ? Patient.builder().patientId(patientId).build()
+                : patientRepository.findById(patientId).orElseGet(() -> Patient.builder().patientId(patientId).build());
+        patient.setName(identity.patientName());
+        patient.setEncryptedCpf(identity.encryptedCpf());
+        patient.setCpfHash(identity.cpfHash());
+        patientRepository.save(patient);
+        log.info("domain=patient event={} patientId={}", isNew ? "create_ok" : "update_ok", patientId);
+    }
 
+    private VitalSignRecord buildEntity(VitalSignRecordDTO in) {
         VitalSignRecord entity = new VitalSignRecord();
+        // id atribuído na aceitação: a resposta 202 do write-behind já o traz, e o WAL o guarda para o replay
+        entity.setId(TimeOrderedUuidGenerator.next());
         entity.setPatientId(in.patientId());
-        entity.setPatientName(resolvePatientName(in, lastOpt));
-        entity.setPatientCpf(resolveEncryptedCpf(in, lastOpt)); // nunca logar CPF
 
         entity.setHeartRate(in.heartRate());
         entity.setOxygenSaturation(in.oxygenSaturation());
@@ -60,126 +484,312 @@ public class VitalSignRecordService {
         entity.setTemperature(in.temperature());
         entity.setRespiratoryRate(in.respiratoryRate());
         entity.setStatus(in.status());
-        entity.setTimestamp(resolveTimestamp(in.timestamp()));
-
-        validateFirstRecordRequireds(entity, lastOpt.isEmpty());
-
-        VitalSignRecord saved = repository.save(entity);
-        log.info("domain=vital_sign event=save_ok patientId={} recordId={} ts={}",
-                saved.getPatientId(), saved.getId(), saved.getTimestamp());
-
-        VitalSignRecordDTO safeDto = toSafeDTO(saved);
+        entity.setTimestamp(in.timestampMillis() != null
+                ? Instant.ofEpochMilli(in.timestampMillis())
+                : resolveTimestamp(in.timestamp()));
+        return entity;
+    }
 
+    private void broadcast(VitalSignRecord saved, VitalSignRecordDTO safeDto) {
         try {
             webSocketService.sendToDashboard(safeDto);
             webSocketService.sendToPatient(safeDto.patientId(), safeDto);
-            log.info("domain=vital_sign event=broadcast_ok patientId={} recordId={}",
+            log.debug("domain=vital_sign event=broadcast_queued patientId={} recordId={}",
                     saved.getPatientId(), saved.getId());
         } catch (Exception e) {
             log.error("domain=vital_sign event=broadcast_fail patientId={} recordId={} err='{}'",
                     saved.getPatientId(), saved.getId(), e.getMessage(), e);
         }
+    }
+
+    private void afterCommit(List<VitalSignRecord> saved, Map<String, PatientIdentity> identities,
+                             Map<String, Optional<PatientIdentity>> before) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onPersisted(saved, identities, before);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                onPersisted(saved, identities, before);
+            }
+        });
+    }
+
+    private void onPersisted(List<VitalSignRecord> saved, Map<String, PatientIdentity> identities,
+                             Map<String, Optional<PatientIdentity>> before) {
+        identities.forEach((patientId, identity) ->
+                invalidateIfIdentityChanged(patientId, before.getOrDefault(patientId, Optional.empty()), identity));
+        saved.forEach(r -> onPersisted(r, identities.get(r.getPatientId())));
+    }
+
+    /**
+     * O buffer guarda as leituras já renderizadas com nome/CPF: com a identidade alterada, as anteriores
+     * trariam a antiga. Descarta o paciente para a próxima consulta recarregar do banco com a nova.
+     */
+    private void invalidateIfIdentityChanged(String patientId, Optional<PatientIdentity> before, PatientIdentity after) {
+        if (before.isPresent() && !before.get().equals(after)) latestBuffer.invalidate(patientId);
+    }
 
+    private VitalSignRecordDTO onPersisted(VitalSignRecord saved, PatientIdentity identity) {
+        identityCache.put(saved.getPatientId(), identity);
+        VitalSignRecordDTO safeDto = toSafeDTO(saved, identity);
+        latestBuffer.append(saved, safeDto);
+        rollupService.record(saved);
+        metrics.time(Stage.BROADCAST, () -> broadcast(saved, safeDto));
         return safeDto;
     }
 
     public List<VitalSignRecordDTO> getLatestByPatientId(String patientId) {
-        log.info("domain=vital_sign query=latest_by_patient start patientId={}", patientId);
-        List<VitalSignRecordDTO> out = repository.findTop10ByPatientIdOrderByTimestampDesc(patientId)
-                .stream()
-                .map(this::toSafeDTO)
+        log.debug("domain=vital_sign query=latest_by_patient start patientId={}", patientId);
+        Optional<List<VitalSignRecordDTO>> buffered = latestBuffer.latest(patientId);
+        if (buffered.isPresent()) {
+            log.info("domain=vital_sign query=latest_by_patient success source=buffer patientId={} count={}",
+                    patientId, buffered.get().size());
+            return buffered.get();
+        }
+
+        List<VitalSignRecord> fromDb = metrics.query("latest_by_patient",
+                () -> repository.findTop10ByPatientIdOrderByTimestampDesc(patientId));
+        PatientIdentity identity = identityFor(patientId);
+        latestBuffer.seed(patientId, fromDb, r -> toSafeDTO(r, identity));
+        List<VitalSignRecordDTO> out = fromDb.stream()
+                .map(r -> toSafeDTO(r, identity))
                 .toList();
-        log.info("domain=vital_sign query=latest_by_patient success patientId={} count={}", patientId, out.size());
+        log.info("domain=vital_sign query=latest_by_patient success source=db patientId={} count={}", patientId, out.size());
         return out;
     }
 
     public List<VitalSignRecordDTO> getHistoryByPatientId(String patientId) {
-        log.info("domain=vital_sign query=history_by_patient start patientId={}", patientId);
-        List<VitalSignRecordDTO> out = repository.findByPatientId(patientId)
-                .stream()
-                .map(this::toSafeDTO)
-                .toList();
+        log.debug("domain=vital_sign query=history_by_patient start patientId={}", patientId);
+        List<VitalSignRecordDTO> out = toSafeDTOs(metrics.query("history_by_patient",
+                () -> repository.findByPatientId(patientId)));
         log.info("domain=vital_sign query=history_by_patient success patientId={} count={}", patientId, out.size());
         return out;
     }
 
+    /**
+     * Leituras do paciente no intervalo [from, to], mais recentes primeiro.
+     * Sem {@code to} usa o instante atual; sem {@code from}, as últimas 24h antes de {@code to}.
+     */
+    public List<VitalSignRecordDTO> getRangeByPatientId(String patientId, String from, String to, int limit) {
+        int safeLimit = Math.max(minLimit, Math.min(maxLimit, limit));
+        Instant end = isBlank(to) ? Instant.now() : resolveTimestamp(to);
+        Instant start = isBlank(from) ? end.minus(Duration.ofHours(24)) : resolveTimestamp(from);
+        if (start.isAfter(end)) {
+            log.warn("domain=vital_sign validation=invalid_range patientId={} from={} to={}", patientId, start, end);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from deve ser anterior ou igual a to");
+        }
+        log.debug("domain=vital_sign query=range_by_patient start patientId={} from={} to={} safeLimit={}",
+                patientId, start, end, safeLimit);
+        List<VitalSignRecordDTO> out = toSafeDTOs(metrics.query("range_by_patient", () -> repository
+                .findByPatientIdAndTimestampBetweenOrderByTimestampDesc(patientId, start, end, PageRequest.of(0, safeLimit))));
+        log.info("domain=vital_sign query=range_by_patient success patientId={} count={}", patientId, out.size());
+        return out;
+    }
+
+    /**
+     * Série temporal agregada do paciente: min/max/avg/count por bucket para cada métrica pedida.
+     * As leituras do intervalo [from, to) são percorridas em streaming, então o tamanho da resposta
+     * depende só do número de buckets. Quando o bucket é múltiplo de 1 minuto ou 1 hora, o trecho
+     * alinhado do intervalo é lido das tabelas de rollup e só as bordas vêm dos dados brutos.
+     */
+    @Transactional(readOnly = true)
+    public VitalSignSeriesDTO getSeriesByPatientId(String patientId, String from, String to, String bucket, String metric) {
+        Instant end = isBlank(to) ? Instant.now() : resolveTimestamp(to);
+        Instant start = isBlank(from) ? end.minus(Duration.ofHours(24)) : resolveTimestamp(from);
+        if (!start.isBefore(end)) {
+            log.warn("domain=vital_sign validation=invalid_range patientId={} from={} to={}", patientId, start, end);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from deve ser anterior a to");
+        }
+        Duration bucketSize = resolveBucket(bucket);
+        long buckets = Duration.between(start, end).toSeconds() / bucketSize.toSeconds();
+        if (buckets > maxSeriesBuckets) {
+            log.warn("domain=vital_sign validation=too_many_buckets patientId={} buckets={} max={}",
+                    patientId, buckets, maxSeriesBuckets);
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "intervalo gera mais de " + maxSeriesBuckets + " buckets; aumente o bucket"
+            );
+        }
+        List<VitalSignMetric> requestedMetrics = resolveMetrics(metric);
+
+        log.debug("domain=vital_sign query=series_by_patient start patientId={} from={} to={} bucket={} metrics={}",
+                patientId, start, end, bucketSize, requestedMetrics);
+        long queryStart = System.nanoTime();
+        VitalSignSeriesAggregator aggregator = new VitalSignSeriesAggregator(bucketSize, requestedMetrics);
+        long rows;
+        RollupResolution resolution = rollupService.resolutionFor(bucketSize, start);
+        Instant alignedStart = resolution != null ? resolution.ceil(start) : end;
+        Instant alignedEnd = resolution != null ? resolution.floor(end) : end;
+        if (alignedStart.isBefore(alignedEnd)) {
+            rows = aggregateRaw(aggregator, patientId, start, alignedStart);
+            rollupService.feed(aggregator, patientId, resolution, alignedStart, alignedEnd, requestedMetrics);
+            rows += aggregateRaw(aggregator, patientId, alignedEnd, end);
+        } else {
+            rows = aggregateRaw(aggregator, patientId, start, end);
+        }
+        VitalSignSeriesDTO out = new VitalSignSeriesDTO(
+                patientId, TimestampCodec.format(start), TimestampCodec.format(end), bucketSize.toString(),
+                requestedMetrics.stream().map(Enum::name).toList(), aggregator.finish());
+        metrics.recordQuery("series_by_patient", System.nanoTime() - queryStart);
+        log.info("domain=vital_sign query=series_by_patient success patientId={} rows={} buckets={}",
+                patientId, rows, out.buckets().size());
+        return out;
+    }
+
+    private long aggregateRaw(VitalSignSeriesAggregator aggregator, String patientId,
+                              Instant from, Instant to) {
+        if (!from.isBefore(to)) return 0;
+        long rows = 0;
+        try (Stream<VitalSignRecord> stream = repository.streamRangeByPatientId(patientId, from, to)) {
+            for (var it = stream.iterator(); it.hasNext(); ) {
+                VitalSignRecord r = it.next();
+                aggregator.accept(r);
+                entityManager.detach(r);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
     public List<VitalSignRecordDTO> getLatestAll(int limit) {
         int safeLimit = Math.max(minLimit, Math.min(maxLimit, limit));
-        log.info("domain=vital_sign query=latest_all start limit={} safeLimit={}", limit, safeLimit);
-        List<VitalSignRecordDTO> out = repository
-                .findAllByOrderByTimestampDesc(PageRequest.of(0, safeLimit))
-                .stream()
-                .map(this::toSafeDTO)
-                .toList();
+        log.debug("domain=vital_sign query=latest_all start limit={} safeLimit={}", limit, safeLimit);
+        List<VitalSignRecordDTO> out = toSafeDTOs(metrics.query("latest_all", () -> repository
+                .findAllByOrderByTimestampDesc(PageRequest.of(0, safeLimit)).getContent()));
         log.info("domain=vital_sign query=latest_all success safeLimit={} count={}", safeLimit, out.size());
         return out;
     }
 
     public List<VitalSignRecordDTO> getHistoryAll() {
-        log.info("domain=vital_sign query=history_all start");
-        List<VitalSignRecordDTO> out = repository.findAllByOrderByTimestampDesc()
-                .stream()
-                .map(this::toSafeDTO)
-                .toList();
+        log.debug("domain=vital_sign query=history_all start");
+        List<VitalSignRecordDTO> out = toSafeDTOs(metrics.query("history_all", () -> repository.findAllByOrderByTimestampDesc()));
         log.info("domain=vital_sign query=history_all success count={}", out.size());
         return out;
     }
 
-    private String resolvePatientName(VitalSignRecordDTO in, Optional<VitalSignRecord> lastOpt) {
+    private String resolvePatientName(VitalSignRecordDTO in, Optional<PatientIdentity> known) {
         if (!isBlank(in.patientName())) return in.patientName();
         log.debug("domain=vital_sign enrich=inherit_name patientId={}", in.patientId());
-        return lastOpt.map(VitalSignRecord::getPatientName).orElse(null);
+        return known.map(PatientIdentity::patientName).orElse(null);
     }
 
-    private String resolveEncryptedCpf(VitalSignRecordDTO in, Optional<VitalSignRecord> lastOpt) {
+    /** CPF criptografado (aleatório) e o seu índice cego (determinístico) para busca. */
+    private record EncryptedCpf(String ciphertext, String blindIndex) {}
+
+    private EncryptedCpf resolveEncryptedCpf(VitalSignRecordDTO in, Optional<PatientIdentity> known) {
         String cpfIn = in.patientCpf();
         if (!isBlank(cpfIn)) {
             String digitsOnly = cpfIn.replaceAll("\\D", "");
             try {
+                String blindIndex = cryptoUtil.blindIndex(digitsOnly);
+                if (known.isPresent() && blindIndex.equals(known.get().cpfHash())) {
+                    // mesmo CPF já gravado: reaproveita o ciphertext e evita regravar o paciente
+                    return new EncryptedCpf(known.get().encryptedCpf(), blindIndex);
+                }
                 log.debug("domain=vital_sign encrypt=cpf source=payload patientId={}", in.patientId());
-                return cryptoUtil.encrypt(digitsOnly);
+                return new EncryptedCpf(cryptoUtil.encrypt(digitsOnly), blindIndex);
             } catch (Exception e) {
                 log.error("domain=vital_sign encrypt=fail patientId={} err='{}'", in.patientId(), e.getMessage(), e);
                 throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Erro ao criptografar CPF");
             }
         }
-        log.debug("domain=vital_sign enrich=inherit_cpf source=last_record patientId={}", in.patientId());
-        return lastOpt.map(VitalSignRecord::getPatientCpf).orElse(null);
+        log.debug("domain=vital_sign enrich=inherit_cpf source=patient patientId={}", in.patientId());
+        return known.map(k -> new EncryptedCpf(k.encryptedCpf(), k.cpfHash()))
+                .orElse(new EncryptedCpf(null, null));
     }
 
-    protected LocalDateTime resolveTimestamp(String timestamp) {
-        if (isBlank(timestamp)) return LocalDateTime.now();
+    private Duration resolveBucket(String bucket) {
+        if (isBlank(bucket)) return Duration.ofMinutes(1);
         try {
-            return LocalDateTime.parse(timestamp);
-        } catch (DateTimeParseException ex) {
+            Duration d = DurationStyle.detectAndParse(bucket.trim());
+            if (d.toSeconds() >= 1) return Duration.ofSeconds(d.toSeconds());
+        } catch (IllegalArgumentException ignored) {
+            // tratado abaixo
+        }
+        log.warn("domain=vital_sign validation=invalid_bucket value='{}'", bucket);
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "bucket inválido (ex.: 30s, 1m, 1h; mínimo 1s)");
+    }
+
+    private List<VitalSignMetric> resolveMetrics(String metric) {
+        if (isBlank(metric)) return List.of(VitalSignMetric.values());
+        try {
+            return Arrays.stream(metric.split(","))
+                    .map(String::trim)
+                    .filter(m -> !m.isEmpty())
+                    .map(VitalSignMetric::valueOf)
+                    .distinct()
+                    .toList();
+        } catch (IllegalArgumentException ex) {
+            log.warn("domain=vital_sign validation=invalid_metric value='{}'", metric);
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "metric inválida; use " + Arrays.toString(VitalSignMetric.values())
+            );
+        }
+    }
+
+    /** ISO-8601 (com ou sem offset) ou epoch millis; sem offset, vale o fuso padrão do {@link TimestampCodec}. */
+    protected Instant resolveTimestamp(String timestamp) {
+        if (isBlank(timestamp)) return Instant.now();
+        try {
+            return timestampCodec.parse(timestamp.trim());
+        } catch (IllegalArgumentException ex) {
             log.warn("domain=vital_sign validation=invalid_timestamp value='{}'", timestamp);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "timestamp em formato inválido (use ISO-8601)");
         }
     }
 
-    protected void validateFirstRecordRequireds(VitalSignRecord entity, boolean isFirstRecordForPatient) {
+    protected void validateFirstRecordRequireds(String patientId, PatientIdentity identity, boolean isFirstRecordForPatient) {
         if (!isFirstRecordForPatient) return;
-        if (isBlank(entity.getPatientName())) {
-            log.warn("domain=vital_sign validation=fail reason=missing_patientName patientId={}", entity.getPatientId());
+        if (isBlank(identity.patientName())) {
+            log.warn("domain=vital_sign validation=fail reason=missing_patientName patientId={}", patientId);
             throw new ResponseStatusException(
                     HttpStatus.BAD_REQUEST,
-                    "patientName é obrigatório no primeiro registro do paciente " + entity.getPatientId()
+                    "patientName é obrigatório no primeiro registro do paciente " + patientId
             );
         }
-        if (isBlank(entity.getPatientCpf())) {
-            log.warn("domain=vital_sign validation=fail reason=missing_patientCpf patientId={}", entity.getPatientId());
+        if (isBlank(identity.encryptedCpf())) {
+            log.warn("domain=vital_sign validation=fail reason=missing_patientCpf patientId={}", patientId);
             throw new ResponseStatusException(
                     HttpStatus.BAD_REQUEST,
-                    "patientCpf é obrigatório no primeiro registro do paciente " + entity.getPatientId()
+                    "patientCpf é obrigatório no primeiro registro do paciente " + patientId
             );
         }
     }
 
-    private VitalSignRecordDTO toSafeDTO(VitalSignRecord r) {
+    private PatientIdentity identityFor(String patientId) {
+        return lookupKnownIdentity(patientId).orElse(UNKNOWN_PATIENT);
+    }
+
+    /** Converte uma lista carregando de uma vez só as identidades que não estão no cache. */
+    private List<VitalSignRecordDTO> toSafeDTOs(List<VitalSignRecord> rows) {
+        Map<String, PatientIdentity> identities = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        for (VitalSignRecord r : rows) {
+            String patientId = r.getPatientId();
+            if (identities.containsKey(patientId) || missing.contains(patientId)) continue;
+            identityCache.get(patientId).ifPresentOrElse(i -> identities.put(patientId, i), () -> missing.add(patientId));
+        }
+        if (!missing.isEmpty()) {
+            for (Patient p : patientRepository.findAllById(missing)) {
+                PatientIdentity identity = PatientIdentity.of(p);
+                identityCache.put(p.getPatientId(), identity);
+                identities.put(p.getPatientId(), identity);
+            }
+        }
+        return rows.stream()
+                .map(r -> toSafeDTO(r, identities.getOrDefault(r.getPatientId(), UNKNOWN_PATIENT)))
+                .toList();
+    }
+
+    private VitalSignRecordDTO toSafeDTO(VitalSignRecord r, PatientIdentity identity) {
         return new VitalSignRecordDTO(
+                r.getId(),
                 r.getPatientId(),
-                r.getPatientName(),
-                r.getPatientCpf(),
+                identity.patientName(),
+                identity.encryptedCpf(),
                 r.getHeartRate(),
                 r.getOxygenSaturation(),
                 r.getSystolicPressure(),
@@ -187,7 +797,8 @@ public class VitalSignRecordService {
                 r.getTemperature(),
                 r.getRespiratoryRate(),
                 r.getStatus(),
-                r.getTimestamp() != null ? r.getTimestamp().toString() : null
+                TimestampCodec.format(r.getTimestamp()),
+                r.getTimestamp() != null ? r.getTimestamp().toEpochMilli() : null
         );
     }
 
@@ -0,0 +1,122 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.entities.RollupResolution;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Retenção do histórico: apaga leituras brutas mais antigas que {@code raw-ttl} e rollups de 1 minuto / 1 hora
+ * mais antigos que os respectivos TTLs (zero mantém para sempre). Séries com bucket múltiplo de 1 hora continuam
+ * respondidas pelos rollups de 1 hora depois que os dados brutos saem; buckets menores sobre janelas já apagadas
+ * respondem 400 (ver {@link VitalSignRollupService#resolutionFor}).
+ * <p>
+ * A exclusão é feita em blocos de {@code batch-size} linhas, uma transação por bloco, para não segurar o lock
+ * do MVStore nem acumular um undo log do tamanho do histórico.
+ */
+@Slf4j
+@Service
+public class VitalSignRetentionService {
+
+    private static final String DELETE_RAW =
+            "DELETE FROM vital_sign_record WHERE timestamp < ? FETCH FIRST ? ROWS ONLY";
+    private static final String DELETE_ROLLUP =
+            "DELETE FROM vital_sign_rollup WHERE resolution = ? AND bucket_start < ? FETCH FIRST ? ROWS ONLY";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final boolean enabled;
+    private final Duration rawTtl;
+    private final Duration minuteRollupTtl;
+    private final Duration hourRollupTtl;
+    private final int batchSize;
+
+    // o job agendado e uma chamada manual não rodam ao mesmo tempo
+    private final ReentrantLock purgeLock = new ReentrantLock();
+    private final AtomicLong purgedRaw = new AtomicLong();
+    private final AtomicLong purgedRollups = new AtomicLong();
+
+    public VitalSignRetentionService(JdbcTemplate jdbc,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${vital-signs.retention.enabled:false}") boolean enabled,
+                                     @Value("${vital-signs.retention.raw-ttl:30d}") Duration rawTtl,
+                                     @Value("${vital-signs.retention.minute-rollup-ttl:90d}") Duration minuteRollupTtl,
+                                     @Value("${vital-signs.retention.hour-rollup-ttl:0}") Duration hourRollupTtl,
+                                     @Value("${vital-signs.retention.batch-size:10000}") int batchSize) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.rawTtl = rawTtl;
+        this.minuteRollupTtl = minuteRollupTtl;
+        this.hourRollupTtl = hourRollupTtl;
+        this.batchSize = Math.max(1, batchSize);
+        if (enabled) {
+            log.info("domain=retention event=config rawTtl={} minuteRollupTtl={} hourRollupTtl={} batchSize={}",
+                    rawTtl, minuteRollupTtl, hourRollupTtl, this.batchSize);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${vital-signs.retention.initial-delay:60000}",
+            fixedDelayString = "${vital-signs.retention.purge-interval:3600000}")
+    public void purgeScheduled() {
+        if (enabled) purge(Instant.now());
+    }
+
+    /** Aplica os TTLs em relação a {@code now}; retorna o total de linhas apagadas. */
+    public long purge(Instant now) {
+        if (!purgeLock.tryLock()) {
+            log.debug("domain=retention event=purge_skip reason=running");
+            return 0;
+        }
+        try {
+            long start = System.nanoTime();
+            long raw = deleteInBatches(DELETE_RAW, null, rawTtl, now);
+            long minute = deleteInBatches(DELETE_ROLLUP, RollupResolution.MINUTE, minuteRollupTtl, now);
+            long hour = deleteInBatches(DELETE_ROLLUP, RollupResolution.HOUR, hourRollupTtl, now);
+            purgedRaw.addAndGet(raw);
+            purgedRollups.addAndGet(minute + hour);
+            log.info("domain=retention event=purge_ok raw={} minuteRollups={} hourRollups={} elapsedMs={}",
+                    raw, minute, hour, (System.nanoTime() - start) / 1_000_000);
+            return raw + minute + hour;
+        } catch (RuntimeException e) {
+            log.error("domain=retention event=purge_fail err='{}'", e.getMessage(), e);
+            throw e;
+        } finally {
+            purgeLock.unlock();
+        }
+    }
+
+    private long deleteInBatches(String sql, RollupResolution resolution, Duration ttl, Instant now) {
+        if (ttl.isZero() || ttl.isNegative()) return 0;
+        OffsetDateTime cutoff = OffsetDateTime.ofInstant(now.minus(ttl), ZoneOffset.UTC);
+        long total = 0;
+        int deleted;
+        do {
+            Integer n = tx.execute(status -> resolution == null
+                    ? jdbc.update(sql, cutoff, batchSize)
+                    : jdbc.update(sql, resolution.name(), cutoff, batchSize));
+            deleted = n != null ? n : 0;
+            total += deleted;
+        } while (deleted == batchSize);
+        return total;
+    }
+
+    public long purgedRaw() {
+        return purgedRaw.get();
+    }
+
+    public long purgedRollups() {
+        return purgedRollups.get();
+    }
+}
@@ -0,0 +1,457 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.dto.RollupCheckResultDTO;
+import completo.projeto.completo.dto.RollupMismatchDTO;
+import completo.projeto.completo.dto.RollupRebuildResultDTO;
+import completo.projeto.completo.dto.VitalSignStatsDTO;
+import completo.projeto.completo.entities.RollupResolution;
+import completo.projeto.completo.entities.VitalSignMetric;
+import completo.projeto.completo.entities.VitalSignRecord;
+import completo.projeto.completo.entities.VitalSignRollup;
+import completo.projeto.completo.mapper.TimestampCodec;
+import completo.projeto.completo.repository.VitalSignRecordRepository;
+import completo.projeto.completo.repository.VitalSignRollupRepository;
+import completo.projeto.completo.service.VitalSignSeriesAggregator.Stats;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Mantém as tabelas de rollup (1 minuto e 1 hora) por paciente e métrica.
+ * <p>
+ * Cada leitura persistida é somada a deltas em memória ({@link #record}); um job periódico
+ * ({@link #flush}) incorpora os deltas às linhas existentes em uma única transação, sem recalcular
+ * a partir dos dados brutos. {@link #rebuild} recalcula janelas fechadas a partir dos dados brutos
+ * (backfill) e {@link #check} compara rollups com os dados brutos.
+ */
+@Slf4j
+@Service
+public class VitalSignRollupService {
+
+    private static final int MAX_MISMATCH_SAMPLES = 100;
+    private static final double EPSILON = 1e-6;
+
+    private record RollupKey(String patientId, RollupResolution resolution, VitalSignMetric metric,
+                             Instant bucketStart) {
+
+        static RollupKey of(VitalSignRollup r) {
+            return new RollupKey(r.getPatientId(), r.getResolution(), r.getMetric(), r.getBucketStart());
+        }
+    }
+
+    private final VitalSignRollupRepository rollupRepository;
+    private final VitalSignRecordRepository recordRepository;
+    private final TransactionTemplate tx;
+    private final TransactionTemplate readOnlyTx;
+    private final boolean enabled;
+    // com retenção ligada o que é anterior a agora - ttl já foi apagado (VitalSignRetentionService); null = mantido
+    private final Duration rawTtl;
+    private final Duration minuteTtl;
+    private final Duration hourTtl;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // writers compartilham o read lock; o flush usa o write lock só para trocar o mapa
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    // deltas agrupados por paciente: feed só percorre os do paciente consultado
+    private ConcurrentHashMap<String, ConcurrentHashMap<RollupKey, Stats>> pending = new ConcurrentHashMap<>();
+
+    // serializa flush, rebuild e check
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+    // o flush (troca do mapa + transação) usa o write lock; feed lê deltas e tabela sob o read lock
+    private final ReentrantReadWriteLock visibilityLock = new ReentrantReadWriteLock();
+
+    public VitalSignRollupService(VitalSignRollupRepository rollupRepository,
+                                  VitalSignRecordRepository recordRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${vital-signs.rollup.enabled:true}") boolean enabled,
+                                  @Value("${vital-signs.retention.enabled:false}") boolean retentionEnabled,
+                                  @Value("${vital-signs.retention.raw-ttl:30d}") Duration rawTtl,
+                                  @Value("${vital-signs.retention.minute-rollup-ttl:90d}") Duration minuteTtl,
+                                  @Value("${vital-signs.retention.hour-rollup-ttl:0}") Duration hourTtl) {
+        this.rollupRepository = rollupRepository;
+        this.recordRepository = recordRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.enabled = enabled;
+        this.rawTtl = retained(retentionEnabled, rawTtl);
+        this.minuteTtl = retained(retentionEnabled, minuteTtl);
+        this.hourTtl = retained(retentionEnabled, hourTtl);
+    }
+
+    public void record(VitalSignRecord r) {
+        if (!enabled || r.getTimestamp() == null || r.getPatientId() == null) return;
+        swapLock.readLock().lock();
+        try {
+            accumulate(pending.computeIfAbsent(r.getPatientId(), id -> new ConcurrentHashMap<>()), r);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    public int pendingSize() {
+        return pending.values().stream().mapToInt(Map::size).sum();
+    }
+
+    @Scheduled(fixedDelayString = "${vital-signs.rollup.flush-interval:5000}")
+    public void flush() {
+        maintenanceLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Maior resolução de rollup que divide o bucket pedido, ou {@code null} quando o bucket
+     * precisa dos dados brutos (ou os rollups estão desligados). Com retenção ligada, uma janela
+     * iniciada antes da retenção da fonte escolhida responde 400 em vez de uma série vazia
+     * (ex.: bucket de 5 minutos anterior a {@code minute-rollup-ttl}).
+     */
+    public RollupResolution resolutionFor(Duration bucket, Instant from) {
+        long seconds = bucket.toSeconds();
+        RollupResolution resolution = !enabled ? null
+                : seconds % RollupResolution.HOUR.seconds() == 0 ? RollupResolution.HOUR
+                : seconds % RollupResolution.MINUTE.seconds() == 0 ? RollupResolution.MINUTE
+                : null;
+        if (resolution == null) {
+            requireRetained(from, rawTtl, "dos dados brutos", "use bucket múltiplo de 1 minuto");
+        } else if (resolution == RollupResolution.MINUTE) {
+            requireRetained(from, minuteTtl, "dos rollups de 1 minuto", "use bucket múltiplo de 1h");
+        } else {
+            requireRetained(from, hourTtl, "dos rollups de 1 hora", null);
+        }
+        return resolution;
+    }
+
+    /**
+     * Alimenta o agregador com os rollups de [from, to) (limites alinhados à resolução), em ordem
+     * crescente de bucket, somando aos valores gravados os deltas ainda não descarregados pelo {@link #flush}.
+     */
+    public void feed(VitalSignSeriesAggregator aggregator, String patientId, RollupResolution resolution,
+                     Instant from, Instant to, List<VitalSignMetric> metrics) {
+        Map<Instant, Stats[]> buckets = new TreeMap<>();
+        // deltas e tabela lidos sem um flush no meio: senão um delta seria contado duas vezes ou nenhuma
+        visibilityLock.readLock().lock();
+        try {
+            Map<RollupKey, Stats> deltas = pending.get(patientId);
+            for (RollupKey key : deltas != null ? deltas.keySet() : Set.<RollupKey>of()) {
+                int idx = metrics.indexOf(key.metric());
+                if (idx < 0 || key.resolution() != resolution
+                        || key.bucketStart().isBefore(from) || !key.bucketStart().isBefore(to)) continue;
+                // cópia sob o lock da entrada: os escritores alteram o Stats dentro de compute
+                deltas.computeIfPresent(key, (k, delta) -> {
+                    statsFor(buckets, k.bucketStart(), metrics.size())[idx]
+                            .merge(delta.min, delta.max, delta.sum, delta.count);
+                    return delta;
+                });
+            }
+            for (VitalSignRollup r : rollupRepository.findRange(patientId, resolution, metrics, from, to)) {
+                statsFor(buckets, r.getBucketStart(), metrics.size())[metrics.indexOf(r.getMetric())]
+                        .merge(r.getMinValue(), r.getMaxValue(), r.getSumValue(), r.getSampleCount());
+            }
+        } finally {
+            visibilityLock.readLock().unlock();
+        }
+
+        int n = metrics.size();
+        buckets.forEach((bucket, stats) -> {
+            double[] mins = new double[n];
+            double[] maxs = new double[n];
+            double[] sums = new double[n];
+            long[] counts = new long[n];
+            for (int i = 0; i < n; i++) {
+                if (stats[i].count == 0) continue;
+                mins[i] = stats[i].min;
+                maxs[i] = stats[i].max;
+                sums[i] = stats[i].sum;
+                counts[i] = stats[i].count;
+            }
+            aggregator.acceptAggregate(bucket, mins, maxs, sums, counts);
+        });
+    }
+
+    private static Stats[] statsFor(Map<Instant, Stats[]> buckets, Instant bucket, int metrics) {
+        return buckets.computeIfAbsent(bucket, b -> {
+            Stats[] stats = new Stats[metrics];
+            for (int i = 0; i < metrics; i++) stats[i] = new Stats();
+            return stats;
+        });
+    }
+
+    /**
+     * Recalcula os rollups de [from, to) a partir dos dados brutos, uma hora por transação.
+     * Deve ser usado em janelas que não recebem mais leituras (backfill/correção) e ainda dentro da
+     * retenção dos dados brutos: antes dela o recálculo apagaria os rollups sem ter o que somar.
+     */
+    public RollupRebuildResultDTO rebuild(String patientId, Instant from, Instant to) {
+        Instant start = RollupResolution.HOUR.floor(from);
+        Instant end = RollupResolution.HOUR.ceil(to);
+        requireValidWindow(start, end);
+        requireRawRetained(start);
+        log.info("domain=rollup action=rebuild start patientId={} from={} to={}", patientId, start, end);
+
+        long rawRows = 0;
+        long rollupRows = 0;
+        maintenanceLock.lock();
+        try {
+            flushLocked();
+            for (Instant w = start; w.isBefore(end); w = w.plusSeconds(3600)) {
+                Instant windowStart = w;
+                Instant windowEnd = w.plusSeconds(3600);
+                long[] counts = tx.execute(status -> {
+                    Map<RollupKey, Stats> computed = new HashMap<>();
+                    long raw = aggregateRaw(patientId, windowStart, windowEnd, computed);
+                    rollupRepository.deleteWindow(patientId, windowStart, windowEnd);
+                    List<VitalSignRollup> rows = new ArrayList<>(computed.size());
+                    computed.forEach((k, s) -> rows.add(newRow(k, s)));
+                    rollupRepository.saveAll(rows);
+                    entityManager.flush();
+                    entityManager.clear();
+                    return new long[]{raw, rows.size()};
+                });
+                rawRows += counts[0];
+                rollupRows += counts[1];
+            }
+        } finally {
+            maintenanceLock.unlock();
+        }
+        log.info("domain=rollup action=rebuild success patientId={} rawRows={} rollupRows={}",
+                patientId, rawRows, rollupRows);
+        return new RollupRebuildResultDTO(patientId, TimestampCodec.format(start), TimestampCodec.format(end),
+                rawRows, rollupRows);
+    }
+
+    /**
+     * Compara os rollups de [from, to) com o agregado recalculado dos dados brutos.
+     */
+    public RollupCheckResultDTO check(String patientId, Instant from, Instant to) {
+        Instant start = RollupResolution.HOUR.floor(from);
+        Instant end = RollupResolution.HOUR.ceil(to);
+        requireValidWindow(start, end);
+        requireRawRetained(start);
+        log.info("domain=rollup action=check start patientId={} from={} to={}", patientId, start, end);
+
+        long checked = 0;
+        long mismatches = 0;
+        List<RollupMismatchDTO> samples = new ArrayList<>();
+        maintenanceLock.lock();
+        try {
+            flushLocked();
+            for (Instant w = start; w.isBefore(end); w = w.plusSeconds(3600)) {
+                Instant windowStart = w;
+                Instant windowEnd = w.plusSeconds(3600);
+                Map<RollupKey, Stats> expected = new HashMap<>();
+                Map<RollupKey, VitalSignRollup> actual = new HashMap<>();
+                readOnlyTx.executeWithoutResult(status -> {
+                    aggregateRaw(patientId, windowStart, windowEnd, expected);
+                    rollupRepository.findWindow(patientId, windowStart, windowEnd)
+                            .forEach(r -> actual.put(RollupKey.of(r), r));
+                    entityManager.clear();
+                });
+
+                Set<RollupKey> keys = new HashSet<>(expected.keySet());
+                keys.addAll(actual.keySet());
+                for (RollupKey k : keys) {
+                    checked++;
+                    Stats e = expected.get(k);
+                    VitalSignRollup a = actual.get(k);
+                    if (matches(e, a)) continue;
+                    mismatches++;
+                    if (samples.size() < MAX_MISMATCH_SAMPLES) {
+                        samples.add(new RollupMismatchDTO(k.patientId(), k.resolution().name(), k.metric().name(),
+                                TimestampCodec.format(k.bucketStart()),
+                                e != null ? e.toDTO() : null,
+                                a != null ? toDTO(a) : null));
+                    }
+                }
+            }
+        } finally {
+            maintenanceLock.unlock();
+        }
+        log.info("domain=rollup action=check success patientId={} checked={} mismatches={}",
+                patientId, checked, mismatches);
+        return new RollupCheckResultDTO(patientId, TimestampCodec.format(start), TimestampCodec.format(end),
+                checked, mismatches, samples);
+    }
+
+    private void flushLocked() {
+        if (pending.isEmpty()) return;
+        visibilityLock.writeLock().lock();
+        try {
+            Map<String, ConcurrentHashMap<RollupKey, Stats>> drained;
+            swapLock.writeLock().lock();
+            try {
+                if (pending.isEmpty()) return;
+                drained = pending;
+                pending = new ConcurrentHashMap<>();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            long start = System.nanoTime();
+            try {
+                tx.executeWithoutResult(status -> mergeIntoTable(drained));
+                log.debug("domain=rollup action=flush success patients={} elapsedMs={}",
+                        drained.size(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+            } catch (RuntimeException e) {
+                log.error("domain=rollup action=flush fail patients={} err='{}'", drained.size(), e.getMessage(), e);
+                restore(drained);
+            }
+        } finally {
+            visibilityLock.writeLock().unlock();
+        }
+    }
+
+    private void mergeIntoTable(Map<String, ConcurrentHashMap<RollupKey, Stats>> byPatient) {
+        Map<RollupResolution, Set<Instant>> bucketsByResolution = new EnumMap<>(RollupResolution.class);
+        byPatient.values().forEach(deltas -> deltas.keySet().forEach(k ->
+                bucketsByResolution.computeIfAbsent(k.resolution(), r -> new HashSet<>()).add(k.bucketStart())));
+
+        // só as linhas dos pacientes com deltas, não as de todos os pacientes nesses buckets
+        Map<RollupKey, VitalSignRollup> existing = new HashMap<>();
+        bucketsByResolution.forEach((resolution, buckets) ->
+                rollupRepository.findByResolutionAndBucketStartInAndPatientIdIn(resolution, buckets, byPatient.keySet())
+                        .forEach(r -> existing.put(RollupKey.of(r), r)));
+
+        List<VitalSignRollup> toSave = new ArrayList<>();
+        byPatient.values().forEach(deltas -> deltas.forEach((k, s) -> {
+            VitalSignRollup row = existing.get(k);
+            if (row == null) {
+                toSave.add(newRow(k, s));
+            } else {
+                row.setMinValue(Math.min(row.getMinValue(), s.min));
+                row.setMaxValue(Math.max(row.getMaxValue(), s.max));
+                row.setSumValue(row.getSumValue() + s.sum);
+                row.setSampleCount(row.getSampleCount() + s.count);
+            }
+        }));
+        rollupRepository.saveAll(toSave);
+    }
+
+    private void restore(Map<String, ConcurrentHashMap<RollupKey, Stats>> drained) {
+        swapLock.readLock().lock();
+        try {
+            drained.forEach((patientId, deltas) -> {
+                Map<RollupKey, Stats> into = pending.computeIfAbsent(patientId, id -> new ConcurrentHashMap<>());
+                deltas.forEach((k, s) -> into.merge(k, s, (cur, old) -> {
+                    cur.merge(old.min, old.max, old.sum, old.count);
+                    return cur;
+                }));
+            });
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private long aggregateRaw(String patientId, Instant from, Instant to, Map<RollupKey, Stats> into) {
+        long rows = 0;
+        try (Stream<VitalSignRecord> stream = recordRepository.streamWindow(patientId, from, to)) {
+            for (var it = stream.iterator(); it.hasNext(); ) {
+                VitalSignRecord r = it.next();
+                accumulate(into, r);
+                entityManager.detach(r);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static void accumulate(Map<RollupKey, Stats> into, VitalSignRecord r) {
+        for (RollupResolution resolution : RollupResolution.values()) {
+            Instant bucket = resolution.floor(r.getTimestamp());
+            for (VitalSignMetric metric : VitalSignMetric.values()) {
+                Number v = metric.valueOf(r);
+                if (v == null) continue;
+                into.compute(new RollupKey(r.getPatientId(), resolution, metric, bucket), (k, s) -> {
+                    Stats stats = s != null ? s : new Stats();
+                    stats.add(v.doubleValue());
+                    return stats;
+                });
+            }
+        }
+    }
+
+    private static VitalSignRollup newRow(RollupKey k, Stats s) {
+        return VitalSignRollup.builder()
+                .patientId(k.patientId())
+                .resolution(k.resolution())
+                .metric(k.metric())
+                .bucketStart(k.bucketStart())
+                .minValue(s.min)
+                .maxValue(s.max)
+                .sumValue(s.sum)
+                .sampleCount(s.count)
+                .build();
+    }
+
+    private static boolean matches(Stats e, VitalSignRollup a) {
+        if (e == null || a == null) return false;
+        return e.count == a.getSampleCount()
+                && Math.abs(e.min - a.getMinValue()) <= EPSILON
+                && Math.abs(e.max - a.getMaxValue()) <= EPSILON
+                && Math.abs(e.sum - a.getSumValue()) <= EPSILON * Math.max(1, Math.abs(e.sum));
+    }
+
+    private static VitalSignStatsDTO toDTO(VitalSignRollup r) {
+        return new VitalSignStatsDTO(r.getMinValue(), r.getMaxValue(),
+                r.getSampleCount() > 0 ? r.getSumValue() / r.getSampleCount() : null, r.getSampleCount());
+    }
+
+    private static void requireValidWindow(Instant start, Instant end) {
+        if (!start.isBefore(end)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from deve ser anterior a to");
+        }
+    }
+
+    private void requireRawRetained(Instant start) {
+        requireRetained(start, rawTtl, "dos dados brutos", null);
+    }
+
+    private static void requireRetained(Instant start, Duration ttl, String source, String hint) {
+        if (ttl == null) return;
+        Instant cutoff = Instant.now().minus(ttl);
+        if (start.isBefore(cutoff)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "from anterior à retenção " + source + " (" + TimestampCodec.format(cutoff) + ")"
+                            + (hint != null ? "; " + hint : "")
+            );
+        }
+    }
+
+    private static Duration retained(boolean retentionEnabled, Duration ttl) {
+        return retentionEnabled && ttl.isPositive() ? ttl : null;
+    }
+}
@@ -0,0 +1,110 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.dto.VitalSignBucketDTO;
+import completo.projeto.completo.dto.VitalSignStatsDTO;
+import completo.projeto.completo.entities.VitalSignMetric;
+import completo.projeto.completo.entities.VitalSignRecord;
+import completo.projeto.completo.mapper.TimestampCodec;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agrega leituras em buckets de tamanho fixo (min/max/avg/count por métrica).
+ * As leituras devem chegar em ordem crescente de timestamp: cada bucket é fechado assim que a
+ * primeira leitura do bucket seguinte aparece, então só um bucket fica aberto em memória.
+ */
+public class VitalSignSeriesAggregator {
+
+    static final class Stats {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum;
+        long count;
+
+        void add(double v) {
+            if (v < min) min = v;
+            if (v > max) max = v;
+            sum += v;
+            count++;
+        }
+
+        void merge(double otherMin, double otherMax, double otherSum, long otherCount) {
+            if (otherCount == 0) return;
+            if (otherMin < min) min = otherMin;
+            if (otherMax > max) max = otherMax;
+            sum += otherSum;
+            count += otherCount;
+        }
+
+        VitalSignStatsDTO toDTO() {
+            if (count == 0) return new VitalSignStatsDTO(null, null, null, 0);
+            return new VitalSignStatsDTO(min, max, sum / count, count);
+        }
+    }
+
+    private final long bucketSeconds;
+    private final List<VitalSignMetric> metrics;
+    private final List<VitalSignBucketDTO> closed = new ArrayList<>();
+
+    private long openBucket = Long.MIN_VALUE;
+    private Stats[] open;
+
+    public VitalSignSeriesAggregator(Duration bucket, List<VitalSignMetric> metrics) {
+        this.bucketSeconds = bucket.toSeconds();
+        this.metrics = metrics;
+    }
+
+    public void accept(VitalSignRecord r) {
+        if (r.getTimestamp() == null) return;
+        Stats[] stats = statsFor(bucketStart(r.getTimestamp()));
+        for (int i = 0; i < metrics.size(); i++) {
+            Number v = metrics.get(i).valueOf(r);
+            if (v != null) stats[i].add(v.doubleValue());
+        }
+    }
+
+    /**
+     * Incorpora um agregado pronto (rollup) cujo bucket começa em {@code start}; os arrays seguem
+     * a ordem de {@code metrics}. Deve respeitar a mesma ordem crescente de {@link #accept}.
+     */
+    public void acceptAggregate(Instant start, double[] mins, double[] maxs, double[] sums, long[] counts) {
+        Stats[] stats = statsFor(bucketStart(start));
+        for (int i = 0; i < metrics.size(); i++) {
+            stats[i].merge(mins[i], maxs[i], sums[i], counts[i]);
+        }
+    }
+
+    public List<VitalSignBucketDTO> finish() {
+        closeOpenBucket();
+        return closed;
+    }
+
+    private Stats[] statsFor(long bucket) {
+        if (bucket != openBucket) {
+            closeOpenBucket();
+            openBucket = bucket;
+            open = new Stats[metrics.size()];
+            for (int i = 0; i < open.length; i++) open[i] = new Stats();
+        }
+        return open;
+    }
+
+    private long bucketStart(Instant ts) {
+        return Math.floorDiv(ts.getEpochSecond(), bucketSeconds) * bucketSeconds;
+    }
+
+    private void closeOpenBucket() {
+        if (open == null) return;
+        Map<String, VitalSignStatsDTO> byMetric = new LinkedHashMap<>();
+        for (int i = 0; i < metrics.size(); i++) {
+            byMetric.put(metrics.get(i).name(), open[i].toDTO());
+        }
+        closed.add(new VitalSignBucketDTO(TimestampCodec.formatMillis(openBucket * 1000), byMetric));
+        open = null;
+    }
+}
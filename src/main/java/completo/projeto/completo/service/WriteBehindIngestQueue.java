@@ -0,0 +1,354 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.entities.VitalSignRecord;
+import completo.projeto.completo.service.PatientIdentityCache.PatientIdentity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Gravação assíncrona (write-behind) de {@code POST /api/v1/vital-signs}, ligada com
+ * {@code vital-signs.ingest.mode=write-behind}.
+ * <p>
+ * A requisição só valida a leitura e a enfileira; um escritor drena a fila e grava até
+ * {@code flush-size} leituras por transação (group commit), esperando no máximo {@code flush-interval}
+ * desde a leitura mais antiga do grupo. Com a fila cheia a leitura é recusada com 429; a vaga só é
+ * devolvida depois que o grupo é gravado, então {@code capacity} limita as leituras aceitas e ainda
+ * não gravadas (na fila ou no grupo em commit) e o 429 acompanha o atraso do banco.
+ * Se a transação do grupo falhar, as leituras são regravadas uma a uma para isolar a inválida.
+ * No desligamento o escritor descarrega a fila antes de sair.
+ * Com {@link IngestWriteAheadLog} ligado, a leitura é registrada em disco antes de ser aceita e as
+ * leituras não gravadas numa execução anterior são reaplicadas em {@link #start}.
+ * Com {@code spring.threads.virtual.enabled} o escritor roda em thread virtual.
+ */
+@Slf4j
+@Component
+public class WriteBehindIngestQueue {
+
+    /**
+     * Leitura validada aguardando gravação. {@code before} é a identidade do paciente conhecida
+     * quando a leitura foi aceita; {@code identity}, a identidade vigente após ela.
+     */
+    public record PendingReading(VitalSignRecord record, PatientIdentity identity,
+                                 Optional<PatientIdentity> before, long enqueuedNanos, long lsn) {
+
+        public PendingReading(VitalSignRecord record, PatientIdentity identity,
+                              Optional<PatientIdentity> before, long enqueuedNanos) {
+            this(record, identity, before, enqueuedNanos, 0);
+        }
+
+        /** Mesma leitura com a posição atribuída no WAL. */
+        public PendingReading withLsn(long lsn) {
+            return new PendingReading(record, identity, before, enqueuedNanos, lsn);
+        }
+    }
+
+    private final boolean enabled;
+    private final BlockingQueue<PendingReading> queue;
+    private final int capacity;
+    // vagas da fila reservadas antes do registro no WAL: uma leitura registrada nunca é recusada depois.
+    // Devolvidas após o flush do grupo, não ao tirá-lo da fila
+    private final Semaphore permits;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final Duration shutdownTimeout;
+    private final boolean virtualThreads;
+    private final TransactionTemplate tx;
+    private final IngestWriteAheadLog wal;
+
+    // identidades aceitas e ainda não gravadas: leituras seguintes do paciente herdam nome/CPF delas
+    private final Map<String, PatientIdentity> pendingIdentities = new ConcurrentHashMap<>();
+
+    // ReentrantLock em vez de synchronized: o grupo é gravado com o lock (JDBC bloqueante) e, com threads
+    // virtuais, synchronized prenderia a thread carregadora durante todo o commit
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // aceitar (leitura) e desligar (escrita) são exclusivos: sem ele, uma leitura que viu running=true podia
+    // entrar na fila depois de o escritor e o drain final terem saído, e seria confirmada sem nunca ser gravada
+    private final ReentrantReadWriteLock acceptLock = new ReentrantReadWriteLock();
+
+    private volatile Consumer<List<PendingReading>> writer;
+    private volatile boolean running;
+    private Thread thread;
+    private long lastLoggedWritten;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder lagNanosTotal = new LongAdder();
+
+    public WriteBehindIngestQueue(
+            PlatformTransactionManager transactionManager,
+            IngestWriteAheadLog wal,
+            @Value("${vital-signs.ingest.mode:sync}") String mode,
+            @Value("${vital-signs.ingest.write-behind.capacity:10000}") int capacity,
+            @Value("${vital-signs.ingest.write-behind.flush-size:500}") int flushSize,
+            @Value("${vital-signs.ingest.write-behind.flush-interval:20ms}") Duration flushInterval,
+            @Value("${vital-signs.ingest.write-behind.shutdown-timeout:30s}") Duration shutdownTimeout,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.enabled = switch (mode.trim().toLowerCase()) {
+            case "sync" -> false;
+            case "write-behind" -> true;
+            default -> throw new IllegalArgumentException("vital-signs.ingest.mode deve ser sync ou write-behind");
+        };
+        if (capacity < 1 || flushSize < 1) {
+            throw new IllegalArgumentException("vital-signs.ingest.write-behind.capacity e flush-size devem ser >= 1");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.shutdownTimeout = shutdownTimeout;
+        this.virtualThreads = virtualThreads;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.wal = wal;
+        if (wal.isEnabled() && !enabled) {
+            log.warn("domain=ingest event=wal_ignored reason=mode_sync");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reaplica o WAL com {@code replayer} e inicia o escritor. Ambos gravam o grupo dentro da transação
+     * aberta aqui; efeitos que dependem do commit devem ser registrados como sincronização da transação.
+     */
+    public void start(Consumer<List<PendingReading>> writer, Consumer<List<PendingReading>> replayer) {
+        if (!enabled || running) return;
+        try {
+            wal.replay(flushSize, group -> flush(group, replayer));
+        } catch (IOException e) {
+            throw new UncheckedIOException("falha ao reaplicar o WAL de ingestão", e);
+        }
+        this.writer = writer;
+        this.running = true;
+        this.thread = virtualThreads
+                ? Thread.ofVirtual().name("ingest-writer").start(this::run)
+                : Thread.ofPlatform().name("ingest-writer").daemon().start(this::run);
+        log.info("domain=ingest event=write_behind_start capacity={} flushSize={} flushIntervalMs={}",
+                capacity, flushSize, TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos));
+    }
+
+    /**
+     * Registra a leitura no WAL (se ligado) e a enfileira; recusa com 429 (fila cheia) ou 503
+     * (aplicação desligando ou falha ao gravar o WAL).
+     */
+    public void offer(PendingReading reading) {
+        acceptLock.readLock().lock();
+        try {
+            accept(reading);
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+    }
+
+    private void accept(PendingReading reading) {
+        if (!running) {
+            throttled.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "ingestão indisponível");
+        }
+        String patientId = reading.record().getPatientId();
+        if (!permits.tryAcquire()) {
+            throttled.increment();
+            log.warn("domain=ingest event=write_behind_full patientId={} capacity={} queueDepth={}",
+                    patientId, capacity, queue.size());
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "fila de ingestão cheia, tente novamente");
+        }
+        PendingReading accepted = reading;
+        if (wal.isEnabled()) {
+            try {
+                accepted = wal.append(reading);
+            } catch (IOException e) {
+                permits.release();
+                log.error("domain=ingest event=wal_append_fail patientId={} err='{}'", patientId, e.getMessage(), e);
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "falha ao registrar a leitura");
+            }
+        }
+        if (!reading.before().equals(Optional.of(reading.identity()))) {
+            pendingIdentities.put(patientId, reading.identity());
+        }
+        queue.add(accepted);
+    }
+
+    /** Identidade aceita para o paciente que ainda está na fila, se houver. */
+    public Optional<PatientIdentity> pendingIdentity(String patientId) {
+        return Optional.ofNullable(pendingIdentities.get(patientId));
+    }
+
+    private void run() {
+        List<PendingReading> group = new ArrayList<>(flushSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(group);
+            } catch (InterruptedException e) {
+                if (group.isEmpty() && !running) break;
+            }
+            if (!group.isEmpty()) {
+                flushAndRelease(group);
+            }
+        }
+    }
+
+    /** Junta um grupo: até {@code flushSize} leituras ou até vencer o prazo da mais antiga. */
+    private void collect(List<PendingReading> group) throws InterruptedException {
+        PendingReading first = queue.poll(200, TimeUnit.MILLISECONDS);
+        if (first == null) return;
+        group.add(first);
+        long deadline = first.enqueuedNanos() + flushIntervalNanos;
+        while (group.size() < flushSize) {
+            if (queue.drainTo(group, flushSize - group.size()) > 0) continue;
+            long wait = deadline - System.nanoTime();
+            if (wait <= 0 || !running) return;
+            PendingReading next = queue.poll(wait, TimeUnit.NANOSECONDS);
+            if (next == null) return;
+            group.add(next);
+        }
+    }
+
+    /** Grava o que estiver na fila agora, na thread chamadora (desligamento e testes). */
+    public void drain() {
+        List<PendingReading> group = new ArrayList<>(flushSize);
+        while (queue.drainTo(group, flushSize) > 0) {
+            flushAndRelease(group);
+        }
+    }
+
+    private void flushAndRelease(List<PendingReading> group) {
+        try {
+            flush(group, writer);
+        } finally {
+            permits.release(group.size());
+            group.clear();
+        }
+    }
+
+    private void flush(List<PendingReading> group, Consumer<List<PendingReading>> writer) {
+        flushLock.lock();
+        try {
+            try {
+                tx.executeWithoutResult(status -> writer.accept(group));
+                completed(group);
+            } catch (RuntimeException e) {
+                log.warn("domain=ingest event=write_behind_group_fail size={} err='{}' action=retry_each",
+                        group.size(), e.getMessage());
+                for (PendingReading reading : group) {
+                    try {
+                        tx.executeWithoutResult(status -> writer.accept(List.of(reading)));
+                        completed(List.of(reading));
+                    } catch (RuntimeException ex) {
+                        failed.increment();
+                        pendingIdentities.remove(reading.record().getPatientId(), reading.identity());
+                        // falhou de vez (dado inválido): reaplicar só repetiria o erro
+                        wal.release(List.of(reading));
+                        log.error("domain=ingest event=write_behind_fail patientId={} ts={} err='{}'",
+                                reading.record().getPatientId(), reading.record().getTimestamp(), ex.getMessage(), ex);
+                    }
+                }
+            }
+            flushes.increment();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void completed(List<PendingReading> group) {
+        long now = System.nanoTime();
+        for (PendingReading reading : group) {
+            pendingIdentities.remove(reading.record().getPatientId(), reading.identity());
+            lagNanosTotal.add(now - reading.enqueuedNanos());
+        }
+        written.add(group.size());
+        wal.release(group);
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    public long written() {
+        return written.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    public long throttled() {
+        return throttled.sum();
+    }
+
+    public long flushes() {
+        return flushes.sum();
+    }
+
+    /** Tempo total entre aceitar e gravar as leituras, em nanossegundos. */
+    public long lagNanosTotal() {
+        return lagNanosTotal.sum();
+    }
+
+    @Scheduled(fixedDelayString = "${vital-signs.broadcast.stats-interval:60000}")
+    public void logStats() {
+        if (!enabled) return;
+        long total = written();
+        long delta = total - lastLoggedWritten;
+        if (delta == 0 && queueDepth() == 0) return;
+        lastLoggedWritten = total;
+        long groups = flushes();
+        log.info("domain=ingest event=write_behind_stats queueDepth={} written={} failed={} throttled={} " +
+                        "avgGroup={} avgLagMs={}",
+                queueDepth(), total, failed(), throttled(),
+                groups == 0 ? 0 : total / groups,
+                total == 0 ? 0 : lagNanosTotal() / total / 1_000_000);
+    }
+
+    /**
+     * Para de aceitar leituras e espera o escritor esvaziar a fila; o que restar após
+     * {@code shutdown-timeout} é gravado na thread chamadora.
+     */
+    public void shutdown() {
+        // espera as leituras em aceitação terminarem de entrar na fila; as seguintes já veem running=false
+        acceptLock.writeLock().lock();
+        try {
+            if (!running) return;
+            running = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        try {
+            thread.join(Math.max(1, shutdownTimeout.toMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+        wal.close();
+        log.info("domain=ingest event=write_behind_shutdown written={} failed={} throttled={} pending={}",
+                written(), failed(), throttled(), queueDepth());
+    }
+}
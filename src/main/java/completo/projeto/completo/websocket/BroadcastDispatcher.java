@@ -0,0 +1,216 @@
+package completo.projeto.completo.websocket;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fila assíncrona de envio STOMP, para que a gravação HTTP não espere o broker.
+ * <p>
+ * Os frames são distribuídos em {@code publisher-threads} filas limitadas, escolhidas pelo
+ * paciente — assim a ordem das mensagens de um mesmo paciente é preservada.
+ * Frames com chave de coalescência (dashboard) substituem o frame ainda não enviado da mesma
+ * chave; os demais, com a fila cheia, descartam o frame mais antigo para manter os dados recentes.
+ * Com {@code spring.threads.virtual.enabled} os publicadores rodam em threads virtuais.
+ */
+@Slf4j
+@Component
+public class BroadcastDispatcher {
+
+    private record Frame(String destination, Object payload, String coalesceKey, long enqueuedNanos) {}
+
+    private final class Shard implements Runnable {
+        private final BlockingQueue<Frame> queue;
+        private final Map<String, Frame> pending = new ConcurrentHashMap<>();
+
+        Shard(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void submit(Frame frame) {
+            if (frame.coalesceKey() != null) {
+                if (pending.put(frame.coalesceKey(), frame) != null) {
+                    coalesced.increment();
+                    return;
+                }
+                if (!queue.offer(frame)) {
+                    pending.remove(frame.coalesceKey(), frame);
+                    dropped.increment();
+                }
+                return;
+            }
+            while (!queue.offer(frame)) {
+                Frame oldest = queue.poll();
+                if (oldest != null) {
+                    if (oldest.coalesceKey() != null) pending.remove(oldest.coalesceKey());
+                    dropped.increment();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running || !queue.isEmpty()) {
+                Frame frame;
+                try {
+                    frame = queue.poll(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    if (!running) break;
+                    continue;
+                }
+                if (frame == null) continue;
+                if (frame.coalesceKey() != null) {
+                    frame = pending.remove(frame.coalesceKey());
+                    if (frame == null) continue;
+                }
+                send(frame);
+            }
+        }
+    }
+
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final List<Shard> shards;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running = true;
+    private long lastLoggedSent;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder sendNanosTotal = new LongAdder();
+    private final AtomicLong sendNanosMax = new AtomicLong();
+    private final LongAdder queueWaitNanosTotal = new LongAdder();
+
+    public BroadcastDispatcher(
+            SimpMessageSendingOperations messagingTemplate,
+            @Value("${vital-signs.broadcast.queue-capacity:10000}") int queueCapacity,
+            @Value("${vital-signs.broadcast.publisher-threads:2}") int publisherThreads,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        if (queueCapacity < 1 || publisherThreads < 1) {
+            throw new IllegalArgumentException("vital-signs.broadcast.queue-capacity e publisher-threads devem ser >= 1");
+        }
+        this.messagingTemplate = messagingTemplate;
+        this.shards = new ArrayList<>(publisherThreads);
+        int perShard = Math.max(1, queueCapacity / publisherThreads);
+        for (int i = 0; i < publisherThreads; i++) {
+            Shard shard = new Shard(perShard);
+            shards.add(shard);
+            Thread t = virtualThreads
+                    ? Thread.ofVirtual().name("ws-publisher-" + i).start(shard)
+                    : Thread.ofPlatform().name("ws-publisher-" + i).daemon().start(shard);
+            threads.add(t);
+        }
+    }
+
+    /**
+     * Enfileira um frame para {@code destination}. Com {@code coalesceKey}, apenas o frame mais
+     * recente da chave é enviado caso os anteriores ainda estejam na fila.
+     */
+    public void submit(String shardKey, String destination, Object payload, String coalesceKey) {
+        if (!running) {
+            dropped.increment();
+            return;
+        }
+        Frame frame = new Frame(destination, payload, coalesceKey, System.nanoTime());
+        shards.get(Math.floorMod(shardKey == null ? 0 : shardKey.hashCode(), shards.size())).submit(frame);
+    }
+
+    private void send(Frame frame) {
+        long start = System.nanoTime();
+        queueWaitNanosTotal.add(start - frame.enqueuedNanos());
+        try {
+            messagingTemplate.convertAndSend(frame.destination(), frame.payload());
+            sent.increment();
+        } catch (Exception e) {
+            failed.increment();
+            log.error("domain=broadcast event=send_fail destination={} err='{}'",
+                    frame.destination(), e.getMessage(), e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            sendNanosTotal.add(elapsed);
+            sendNanosMax.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    public int queueDepth() {
+        int depth = 0;
+        for (Shard s : shards) depth += s.queue.size();
+        return depth;
+    }
+
+    public long sent() {
+        return sent.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    /** Tempo total gasto em {@code convertAndSend}, em nanossegundos. */
+    public long sendNanosTotal() {
+        return sendNanosTotal.sum();
+    }
+
+    public long sendNanosMax() {
+        return sendNanosMax.get();
+    }
+
+    /** Tempo total que os frames enviados ficaram na fila, em nanossegundos. */
+    public long queueWaitNanosTotal() {
+        return queueWaitNanosTotal.sum();
+    }
+
+    @Scheduled(fixedDelayString = "${vital-signs.broadcast.stats-interval:60000}")
+    public void logStats() {
+        long total = sent();
+        long delta = total - lastLoggedSent;
+        if (delta == 0 && queueDepth() == 0) return;
+        lastLoggedSent = total;
+        log.info("domain=broadcast event=stats queueDepth={} sent={} dropped={} coalesced={} failed={} " +
+                        "avgSendUs={} maxSendUs={} avgQueueWaitUs={}",
+                queueDepth(), total, dropped(), coalesced(), failed(),
+                total == 0 ? 0 : sendNanosTotal() / total / 1_000,
+                sendNanosMax() / 1_000,
+                total == 0 ? 0 : queueWaitNanosTotal() / total / 1_000);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        for (Thread t : threads) {
+            try {
+                t.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.info("domain=broadcast event=shutdown sent={} dropped={} coalesced={} failed={} pending={}",
+                sent(), dropped(), coalesced(), failed(), queueDepth());
+    }
+}
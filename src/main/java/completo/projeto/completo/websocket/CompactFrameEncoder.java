@@ -0,0 +1,123 @@
+package completo.projeto.completo.websocket;
+
+import completo.projeto.completo.dto.VitalSignCompactFrameDTO;
+import completo.projeto.completo.dto.VitalSignRecordDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Codifica as leituras de cada paciente como deltas em relação ao último frame enviado,
+ * com um quadro-chave completo a cada {@code keyframe-interval} frames. Um delta não consegue
+ * representar "valor passou a null", então um campo apagado também força quadro-chave.
+ * O estado de cada paciente vive enquanto houver assinante ({@link CompactSubscriptionRegistry}).
+ */
+@Component
+public class CompactFrameEncoder {
+
+    // ReentrantLock em vez de synchronized: o sink enfileira no dispatcher (lock da fila) e, com
+    // threads virtuais, esperar um lock dentro de synchronized prende a thread portadora
+    private static final class PatientState {
+        private final ReentrantLock lock = new ReentrantLock();
+        private VitalSignRecordDTO last;
+        private long sequence;
+    }
+
+    private final Map<String, PatientState> states = new ConcurrentHashMap<>();
+    private final int keyframeInterval;
+
+    public CompactFrameEncoder(@Value("${vital-signs.websocket.compact.keyframe-interval:50}") int keyframeInterval) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("vital-signs.websocket.compact.keyframe-interval deve ser >= 1");
+        }
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Gera o próximo frame do paciente e o entrega a {@code sink} ainda sob o lock do paciente,
+     * para que a ordem de envio acompanhe a sequência.
+     */
+    public void encode(VitalSignRecordDTO dto, Consumer<VitalSignCompactFrameDTO> sink) {
+        PatientState state = states.computeIfAbsent(dto.patientId(), id -> new PatientState());
+        state.lock.lock();
+        try {
+            long seq = ++state.sequence;
+            boolean keyframe = state.last == null
+                    || seq % keyframeInterval == 0
+                    || !Objects.equals(state.last.patientName(), dto.patientName())
+                    || !Objects.equals(state.last.patientCpf(), dto.patientCpf())
+                    || clearsAnyVital(state.last, dto);
+            VitalSignCompactFrameDTO frame = keyframe ? keyframe(dto, seq) : delta(state.last, dto, seq);
+            state.last = dto;
+            sink.accept(frame);
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    /** Descarta o estado do paciente; o próximo frame dele será um quadro-chave. */
+    public void evict(String patientId) {
+        states.remove(patientId);
+    }
+
+    int trackedPatients() {
+        return states.size();
+    }
+
+    /** Quadro-chave com o estado atual do paciente, para quem acabou de assinar. */
+    public VitalSignCompactFrameDTO snapshot(String patientId) {
+        PatientState state = states.get(patientId);
+        if (state == null) {
+            return new VitalSignCompactFrameDTO(patientId, 0, null, 1,
+                    null, null, null, null, null, null, null, null, null);
+        }
+        state.lock.lock();
+        try {
+            return keyframe(state.last, state.sequence);
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    private static VitalSignCompactFrameDTO keyframe(VitalSignRecordDTO d, long seq) {
+        return new VitalSignCompactFrameDTO(d.patientId(), seq, d.timestampMillis(), 1,
+                d.patientName(), d.patientCpf(),
+                d.heartRate(), d.oxygenSaturation(), d.systolicPressure(), d.diastolicPressure(),
+                d.temperature(), d.respiratoryRate(), d.status());
+    }
+
+    private static VitalSignCompactFrameDTO delta(VitalSignRecordDTO prev, VitalSignRecordDTO d, long seq) {
+        return new VitalSignCompactFrameDTO(d.patientId(), seq, d.timestampMillis(), null,
+                null, null,
+                changed(prev.heartRate(), d.heartRate()),
+                changed(prev.oxygenSaturation(), d.oxygenSaturation()),
+                changed(prev.systolicPressure(), d.systolicPressure()),
+                changed(prev.diastolicPressure(), d.diastolicPressure()),
+                changed(prev.temperature(), d.temperature()),
+                changed(prev.respiratoryRate(), d.respiratoryRate()),
+                changed(prev.status(), d.status()));
+    }
+
+    private static boolean clearsAnyVital(VitalSignRecordDTO prev, VitalSignRecordDTO d) {
+        return cleared(prev.heartRate(), d.heartRate())
+                || cleared(prev.oxygenSaturation(), d.oxygenSaturation())
+                || cleared(prev.systolicPressure(), d.systolicPressure())
+                || cleared(prev.diastolicPressure(), d.diastolicPressure())
+                || cleared(prev.temperature(), d.temperature())
+                || cleared(prev.respiratoryRate(), d.respiratoryRate())
+                || cleared(prev.status(), d.status());
+    }
+
+    private static boolean cleared(Object previous, Object current) {
+        return previous != null && current == null;
+    }
+
+    private static <T> T changed(T previous, T current) {
+        return Objects.equals(previous, current) ? null : current;
+    }
+}
@@ -0,0 +1,27 @@
+package completo.projeto.completo.websocket;
+
+import completo.projeto.completo.dto.VitalSignCompactFrameDTO;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+/**
+ * Negociação do formato compacto: o cliente assina {@code /app/patient/{id}/compact}, recebe
+ * apenas para a sua sessão o quadro-chave atual e passa a acompanhar os deltas em
+ * {@code /topic/patient/{id}/compact}. Clientes que assinam só {@code /topic/patient/{id}}
+ * continuam recebendo o {@code VitalSignRecordDTO} completo.
+ */
+@Controller
+public class CompactSubscriptionController {
+
+    private final CompactFrameEncoder encoder;
+
+    public CompactSubscriptionController(CompactFrameEncoder encoder) {
+        this.encoder = encoder;
+    }
+
+    @SubscribeMapping("/patient/{patientId}/compact")
+    public VitalSignCompactFrameDTO subscribe(@DestinationVariable String patientId) {
+        return encoder.snapshot(patientId);
+    }
+}
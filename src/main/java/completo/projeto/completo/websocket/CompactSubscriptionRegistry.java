@@ -0,0 +1,92 @@
+package completo.projeto.completo.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assinaturas ativas de {@code /topic/patient/{id}/compact}, contadas por paciente a partir dos eventos STOMP.
+ * Só pacientes com assinante recebem frames compactos; quando o último assinante sai o estado do
+ * {@link CompactFrameEncoder} do paciente é descartado (o próximo assinante recomeça num quadro-chave).
+ */
+@Slf4j
+@Component
+public class CompactSubscriptionRegistry {
+
+    private static final String PREFIX = "/topic/patient/";
+    private static final String SUFFIX = "/compact";
+
+    private final CompactFrameEncoder encoder;
+    // sessão -> (id da assinatura -> paciente)
+    private final Map<String, Map<String, String>> bySession = new ConcurrentHashMap<>();
+    private final Map<String, Integer> subscribers = new ConcurrentHashMap<>();
+
+    public CompactSubscriptionRegistry(CompactFrameEncoder encoder) {
+        this.encoder = encoder;
+    }
+
+    public boolean hasSubscribers(String patientId) {
+        return subscribers.containsKey(patientId);
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        subscribe(headers.getSessionId(), headers.getSubscriptionId(), headers.getDestination());
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        unsubscribe(headers.getSessionId(), headers.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        disconnect(event.getSessionId());
+    }
+
+    void subscribe(String sessionId, String subscriptionId, String destination) {
+        String patientId = patientOf(destination);
+        if (patientId == null || sessionId == null || subscriptionId == null) return;
+        String previous = bySession.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                .put(subscriptionId, patientId);
+        if (previous != null) release(previous);
+        subscribers.merge(patientId, 1, Integer::sum);
+        log.debug("domain=websocket event=compact_subscribe patientId={} sessionId={}", patientId, sessionId);
+    }
+
+    void unsubscribe(String sessionId, String subscriptionId) {
+        if (sessionId == null || subscriptionId == null) return;
+        Map<String, String> subscriptions = bySession.get(sessionId);
+        String patientId = subscriptions != null ? subscriptions.remove(subscriptionId) : null;
+        if (patientId != null) release(patientId);
+    }
+
+    void disconnect(String sessionId) {
+        if (sessionId == null) return;
+        Map<String, String> subscriptions = bySession.remove(sessionId);
+        if (subscriptions != null) subscriptions.values().forEach(this::release);
+    }
+
+    private void release(String patientId) {
+        Integer left = subscribers.computeIfPresent(patientId, (id, n) -> n > 1 ? n - 1 : null);
+        if (left == null) {
+            encoder.evict(patientId);
+            log.debug("domain=websocket event=compact_evict patientId={}", patientId);
+        }
+    }
+
+    static String patientOf(String destination) {
+        if (destination == null || !destination.startsWith(PREFIX) || !destination.endsWith(SUFFIX)) return null;
+        String patientId = destination.substring(PREFIX.length(), destination.length() - SUFFIX.length());
+        return patientId.isEmpty() || patientId.contains("/") ? null : patientId;
+    }
+}
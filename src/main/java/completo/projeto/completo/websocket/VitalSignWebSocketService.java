@@ -1,22 +1,84 @@
 package completo.projeto.completo.websocket;
 
+import completo.projeto.completo.dto.DashboardSnapshotDTO;
 import completo.projeto.completo.dto.VitalSignRecordDTO;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 @Service
 public class VitalSignWebSocketService {
 
-    @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    public static final String DASHBOARD_TOPIC = "/topic/dashboard";
+
+    /**
+     * {@code per-reading}: um frame por leitura em /topic/dashboard (padrão).
+     * {@code batched}: um {@link DashboardSnapshotDTO} por tick com a última leitura de cada
+     * paciente que mudou desde o tick anterior.
+     */
+    public enum DashboardMode { PER_READING, BATCHED }
+
+    private final BroadcastDispatcher dispatcher;
+    private final CompactFrameEncoder compactEncoder;
+    private final CompactSubscriptionRegistry compactSubscriptions;
+    private final DashboardMode dashboardMode;
+    private final boolean compactEnabled;
+    private final Map<String, VitalSignRecordDTO> changed = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public VitalSignWebSocketService(
+            BroadcastDispatcher dispatcher,
+            CompactFrameEncoder compactEncoder,
+            CompactSubscriptionRegistry compactSubscriptions,
+            @Value("${vital-signs.websocket.dashboard-mode:per-reading}") String dashboardMode,
+            @Value("${vital-signs.websocket.compact.enabled:false}") boolean compactEnabled
+    ) {
+        this.dispatcher = dispatcher;
+        this.compactEncoder = compactEncoder;
+        this.compactSubscriptions = compactSubscriptions;
+        this.compactEnabled = compactEnabled;
+        this.dashboardMode = DashboardMode.valueOf(dashboardMode.trim().replace('-', '_').toUpperCase());
+    }
 
+    /** O dashboard só precisa da leitura mais recente de cada paciente: frames pendentes são coalescidos. */
     public void sendToDashboard(VitalSignRecordDTO dto) {
-        messagingTemplate.convertAndSend("/topic/dashboard", dto);
+        if (dashboardMode == DashboardMode.BATCHED) {
+            changed.put(dto.patientId(), dto);
+            return;
+        }
+        dispatcher.submit(dto.patientId(), DASHBOARD_TOPIC, dto, "dashboard:" + dto.patientId());
     }
 
     public void sendToPatient(String patientId, VitalSignRecordDTO dto) {
-        messagingTemplate.convertAndSend("/topic/patient/" + patientId, dto);
+        dispatcher.submit(patientId, "/topic/patient/" + patientId, dto, null);
+        // sem assinante do tópico compacto, nada a codificar nem a enfileirar
+        if (compactEnabled && compactSubscriptions.hasSubscribers(patientId)) {
+            compactEncoder.encode(dto, frame ->
+                    dispatcher.submit(patientId, "/topic/patient/" + patientId + "/compact", frame, null));
+        }
+    }
+
+    public DashboardMode dashboardMode() {
+        return dashboardMode;
     }
-}
 
+    @Scheduled(fixedRateString = "${vital-signs.websocket.dashboard-tick:250}")
+    public void publishDashboardSnapshot() {
+        if (dashboardMode != DashboardMode.BATCHED || changed.isEmpty()) return;
+        List<VitalSignRecordDTO> readings = new ArrayList<>(changed.size());
+        for (Map.Entry<String, VitalSignRecordDTO> e : changed.entrySet()) {
+            if (changed.remove(e.getKey(), e.getValue())) readings.add(e.getValue());
+        }
+        if (readings.isEmpty()) return;
+        DashboardSnapshotDTO snapshot = new DashboardSnapshotDTO(
+                sequence.incrementAndGet(), Instant.now().toString(), readings);
+        dispatcher.submit(DASHBOARD_TOPIC, DASHBOARD_TOPIC, snapshot, null);
+    }
+}
@@ -0,0 +1,111 @@
+package completo.projeto.completo.Simulador;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReplayTest {
+
+    private static final String HEADER = "timestamp,paciente_id,paciente_nome,paciente_cpf,hr,spo2,pressao_sys,pressao_dia,temp,resp_freq,status\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void next_shouldParseFieldsInPlace() throws IOException {
+        Path file = write(HEADER
+                + "20:31:32.81,PAC001,João Silva,123.456.789-09,79.0,95.8,150.0,96.0,36.7,15.531726086101639,NORMAL\r\n"
+                + "\n"
+                + " 09/08/2025 12:00:00 , \"PAC001\" ,,,\"80\",\"97,5\",-,,36.5 °C,16,ALERTA\n"
+                + "2025-08-09T12:00:01.5,PAC002,Maria,98765432100,81,96,,,,,NORMAL");
+
+        try (CsvReplay csv = CsvReplay.open(file)) {
+            assertTrue(csv.next());
+            long today = LocalDate.now(ZoneOffset.UTC).toEpochDay() * 86_400_000L;
+            assertEquals(today + ((20 * 60 + 31) * 60 + 32) * 1000L + 810, csv.epochMillis(0));
+            assertEquals("PAC001", csv.text(1));
+            assertEquals("João Silva", csv.string(2));
+            assertEquals("123.456.789-09", csv.string(3));
+            assertEquals(79, csv.intField(4));
+            assertEquals(95.8, csv.doubleField(5));
+            assertEquals(15.531726086101639, csv.doubleField(9), 1e-12);
+            assertEquals(16, csv.intField(9));
+            assertEquals("NORMAL", csv.text(10));
+            String firstId = csv.text(1);
+
+            assertTrue(csv.next());
+            assertEquals(Instant.parse("2025-08-09T12:00:00Z").toEpochMilli(), csv.epochMillis(0));
+            assertSame(firstId, csv.text(1));
+            assertNull(csv.string(2));
+            assertEquals(80, csv.intField(4));
+            assertEquals(97.5, csv.doubleField(5));
+            assertTrue(Double.isNaN(csv.doubleField(6)));
+            assertEquals(CsvReplay.MISSING_INT, csv.intField(7));
+            assertEquals(36.5, csv.doubleField(8));
+            assertEquals("ALERTA", csv.text(10));
+
+            assertTrue(csv.next());
+            assertEquals(Instant.parse("2025-08-09T12:00:01.500Z").toEpochMilli(), csv.epochMillis(0));
+            assertEquals("Maria", csv.string(2));
+            assertTrue(csv.isBlank(8));
+
+            assertFalse(csv.next());
+            assertEquals(3, csv.lines());
+        }
+    }
+
+    @Test
+    void epochMillis_shouldRejectUnknownFormats() throws IOException {
+        Path file = write(HEADER + "ontem,PAC001\n25:00:00,PAC001\n2025-02-30 10:00:00,PAC001\n");
+        try (CsvReplay csv = CsvReplay.open(file)) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(csv.next());
+                assertEquals(CsvReplay.MISSING_TIMESTAMP, csv.epochMillis(0));
+            }
+        }
+    }
+
+    @Test
+    void next_shouldRemapWindowsAcrossLinesAndRewind() throws IOException {
+        StringBuilder content = new StringBuilder(HEADER);
+        for (int i = 0; i < 500; i++) {
+            content.append("2025-08-09T12:00:00,PAC").append(i % 7).append(",,,").append(i).append(",98.5\n");
+        }
+        Path file = write(content.toString());
+
+        try (CsvReplay csv = CsvReplay.open(file, 128)) {
+            for (int pass = 0; pass < 2; pass++) {
+                long sum = 0;
+                while (csv.next()) {
+                    sum += csv.intField(4);
+                    assertEquals(98.5, csv.doubleField(5));
+                }
+                assertEquals(500, csv.lines());
+                assertEquals(499 * 500 / 2, sum);
+                csv.rewind();
+            }
+        }
+    }
+
+    @Test
+    void open_shouldHandleEmptyFile() throws IOException {
+        try (CsvReplay csv = CsvReplay.open(write(""))) {
+            assertFalse(csv.next());
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = Files.createTempFile(dir, "replay", ".csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,48 @@
+package completo.projeto.completo.Simulador;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentile_shouldStayWithinBucketPrecision() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            h.record(v * 1_000);
+        }
+        assertEquals(100_000, h.count());
+        assertEquals(100_000_000, h.max());
+        assertEquals(50_000_500, h.mean(), 1);
+        assertClose(50_000_000, h.percentile(0.50));
+        assertClose(99_000_000, h.percentile(0.99));
+        assertClose(99_900_000, h.percentile(0.999));
+        assertEquals(100_000_000, h.percentile(1.0));
+    }
+
+    @Test
+    void percentile_shouldBeExactForSmallValuesAndZeroWhenEmpty() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.percentile(0.99));
+        h.record(3);
+        h.record(7);
+        h.record(-5);
+        assertEquals(0, h.percentile(0.1));
+        assertEquals(3, h.percentile(0.5));
+        assertEquals(7, h.percentile(0.99));
+    }
+
+    @Test
+    void buckets_shouldBeContiguousAcrossTheWholeRange() {
+        for (long v : new long[]{127, 128, 129, 255, 256, 1L << 40, Long.MAX_VALUE}) {
+            int i = LatencyHistogram.index(v);
+            assertTrue(LatencyHistogram.upperBound(i) >= v, "upper bound for " + v);
+            assertTrue(i == 0 || LatencyHistogram.upperBound(i - 1) < v, "previous bucket for " + v);
+        }
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertEquals(expected, actual, expected * 0.016, "percentil fora da precisão do balde");
+    }
+}
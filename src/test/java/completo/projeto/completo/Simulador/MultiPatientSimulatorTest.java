@@ -0,0 +1,120 @@
+package completo.projeto.completo.Simulador;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiPatientSimulatorTest {
+
+    @Test
+    void synthesize_shouldReuseTemplateIdentitiesThenGenerateSyntheticPatients() {
+        MultiPatientSimulator.Reading r = new MultiPatientSimulator.Reading(80, 97.0, 120.0, 80.0, 36.5, 16, "NORMAL");
+        MultiPatientSimulator.Template t = new MultiPatientSimulator.Template("PAC001", "João Silva", "12345678909",
+                List.of(r, r, r));
+
+        MultiPatientSimulator.Patient[] patients = MultiPatientSimulator.synthesize(3, List.of(t));
+
+        assertEquals("PAC001", patients[0].id);
+        assertEquals("SIM000002", patients[1].id);
+        assertEquals("10000000003", patients[2].cpf);
+        assertSame(t.readings(), patients[2].readings);
+        assertEquals(256, MultiPatientSimulator.synthesize(1, List.of())[0].readings.size());
+    }
+
+    @Test
+    void appendReading_shouldWriteDtoJsonAndDropIdentityOnceSeeded() throws Exception {
+        MultiPatientSimulator.Patient p = new MultiPatientSimulator.Patient("PAC\"1", "João\\Silva", "12345678909", List.of(), 0);
+        ObjectMapper mapper = new ObjectMapper();
+
+        StringBuilder json = new StringBuilder();
+        MultiPatientSimulator.appendReading(json, p, 80, 97.5, Double.NaN, 80.0, 36.5, CsvReplay.MISSING_INT,
+                "NORMAL", 1754740800000L);
+        JsonNode node = mapper.readTree(json.toString());
+        assertEquals("PAC\"1", node.get("patientId").asText());
+        assertEquals("João\\Silva", node.get("patientName").asText());
+        assertEquals(97.5, node.get("oxygenSaturation").asDouble());
+        assertTrue(node.get("systolicPressure").isNull());
+        assertTrue(node.get("respiratoryRate").isNull());
+        assertEquals(1754740800000L, node.get("timestampMillis").asLong());
+
+        p.seeded = true;
+        json.setLength(0);
+        MultiPatientSimulator.appendReading(json, p, 80, 97.5, 120.0, 80.0, 36.5, 16, "NORMAL", 1754740800000L);
+        node = mapper.readTree(json.toString());
+        assertFalse(node.has("patientName"));
+        assertFalse(node.has("patientCpf"));
+    }
+
+    @Test
+    void run_shouldKeepPacingOtherPatientsWhileOneIsBeingSeeded() throws Exception {
+        CountDownLatch releaseSeed = new CountDownLatch(1);
+        AtomicInteger fast = new AtomicInteger();
+        AtomicInteger slow = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/v1/vital-signs", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            try {
+                if (!body.contains("SLOW")) {
+                    fast.incrementAndGet();
+                } else if (slow.getAndIncrement() == 0) {
+                    releaseSeed.await(5, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            MultiPatientSimulator.Reading r = new MultiPatientSimulator.Reading(80, 97.0, 120.0, 80.0, 36.5, 16, "NORMAL");
+            MultiPatientSimulator.Patient slowPatient = new MultiPatientSimulator.Patient("SLOW", "A", "1", List.of(r), 0);
+            MultiPatientSimulator.Patient fastPatient = new MultiPatientSimulator.Patient("FAST", "B", "2", List.of(r), 0);
+            AtomicInteger produced = new AtomicInteger();
+            MultiPatientSimulator.ReadingSource source = (json, senders) -> {
+                int n = produced.getAndIncrement();
+                if (n >= 40) return false;
+                MultiPatientSimulator.Patient p = n % 2 == 0 ? slowPatient : fastPatient;
+                MultiPatientSimulator.appendReading(json, p, 80, 97.0, 120.0, 80.0, 36.5, 16, "NORMAL", n);
+                senders.add(p);
+                return true;
+            };
+            MultiPatientSimulator.Options options = new MultiPatientSimulator.Options(2, 400, 0, 1, 64, false, 8000,
+                    "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v1/vital-signs", null, List.of(), 60,
+                    List.of(), false);
+            Thread sim = Thread.ofVirtual().start(() -> {
+                try {
+                    new MultiPatientSimulator(options, source).run();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            // com o cadastro de SLOW preso no servidor, as leituras de FAST continuam saindo
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+            while (fast.get() < 20 && System.nanoTime() < deadline) Thread.sleep(10);
+            assertEquals(20, fast.get());
+            assertEquals(1, slow.get());
+
+            releaseSeed.countDown();
+            sim.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(sim.isAlive());
+            assertEquals(20, slow.get());
+        } finally {
+            releaseSeed.countDown();
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package completo.projeto.completo.benchmark;
+
+import completo.projeto.completo.security.CryptoUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Vazão (ops/s) de {@link CryptoUtil}: encrypt/decrypt com 1 e 8 threads, comparados com a
+ * implementação anterior ({@code Cipher.getInstance} por chamada e um {@link SecureRandom}
+ * compartilhado), e encryptAll/decryptAll em lotes.
+ * <p>
+ * Execução (após {@code mvn test-compile}):
+ * {@code java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)
+ * completo.projeto.completo.benchmark.CryptoUtilBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptoUtilBenchmark {
+
+    private static final String KEY = "7gF8jDOvZpG6Gv0WQSRhC/4HNXnZH7Oc8cbl3qDEbMY=";
+    private static final String INDEX_KEY = "0s7S6adACn8ixq/fcp7l/pf6O/WlNV2Rp222/ngqR7M=";
+    private static final String CPF = "12345678900";
+
+    @Param({"1000"})
+    public int batchSize;
+
+    private CryptoUtil crypto;
+    private SecretKeySpec keySpec;
+    private final SecureRandom sharedRandom = new SecureRandom();
+    private String ciphertext;
+    private List<String> plains;
+    private List<String> ciphertexts;
+
+    @Setup
+    public void setUp() {
+        crypto = new CryptoUtil("AES/GCM/NoPadding", KEY, INDEX_KEY);
+        keySpec = new SecretKeySpec(Base64.getDecoder().decode(KEY), "AES");
+        ciphertext = crypto.encrypt(CPF);
+        plains = IntStream.range(0, batchSize).mapToObj(i -> String.format("%011d", i)).toList();
+        ciphertexts = crypto.encryptAll(plains);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return crypto.encrypt(CPF);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String encrypt8Threads() {
+        return crypto.encrypt(CPF);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return crypto.decrypt(ciphertext);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String decrypt8Threads() {
+        return crypto.decrypt(ciphertext);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String legacyEncrypt8Threads() throws Exception {
+        byte[] iv = new byte[12];
+        sharedRandom.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, keySpec, new GCMParameterSpec(128, iv));
+        byte[] ct = cipher.doFinal(CPF.getBytes(StandardCharsets.UTF_8));
+        byte[] out = new byte[iv.length + ct.length];
+        System.arraycopy(iv, 0, out, 0, iv.length);
+        System.arraycopy(ct, 0, out, iv.length, ct.length);
+        return Base64.getEncoder().encodeToString(out);
+    }
+
+    /** Cada operação criptografa {@code batchSize} valores. */
+    @Benchmark
+    public List<String> encryptAll() {
+        return crypto.encryptAll(plains);
+    }
+
+    @Benchmark
+    public List<String> decryptAll() {
+        return crypto.decryptAll(ciphertexts);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(CryptoUtilBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
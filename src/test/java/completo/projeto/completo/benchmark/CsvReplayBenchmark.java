@@ -0,0 +1,150 @@
+package completo.projeto.completo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import completo.projeto.completo.Simulador.CsvReplay;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura de uma sessão gravada (200 mil linhas, ~20 MB) até o JSON de cada leitura, em ms por passada:
+ * <ul>
+ *   <li>{@code legacy}: caminho antigo do simulador — {@code BufferedReader}, {@code String.split},
+ *       {@code normalizeNum} com regex, {@code DateTimeFormatterBuilder} por linha e {@code ObjectMapper}
+ *       sobre um {@code Map};</li>
+ *   <li>{@code mapped}: {@link CsvReplay} sobre o arquivo mapeado e JSON direto no {@code StringBuilder}.</li>
+ * </ul>
+ * Execução (após {@code mvn test-compile}):
+ * {@code java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)
+ * completo.projeto.completo.benchmark.CsvReplayBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvReplayBenchmark {
+
+    private static final int ROWS = 200_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("replay-benchmark", ".csv");
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("timestamp,paciente_id,paciente_nome,paciente_cpf,hr,spo2,pressao_sys,pressao_dia,temp,resp_freq,status\n");
+            for (int i = 0; i < ROWS; i++) {
+                w.write(String.format("%02d:%02d:%02d.%02d,PAC%03d,Paciente %d,%011d,%.1f,%.1f,%.1f,%.1f,%.1f,%s,NORMAL\n",
+                        i / 3600 % 24, i / 60 % 60, i % 60, i % 100, i % 500, i % 500, 10_000_000_000L + i % 500,
+                        60 + rnd.nextDouble(40), 94 + rnd.nextDouble(5), 110 + rnd.nextDouble(30),
+                        70 + rnd.nextDouble(20), 36 + rnd.nextDouble(1.5), 12 + rnd.nextDouble(8)));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long legacy() throws IOException {
+        long bytes = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",", -1);
+                Map<String, Object> dto = new HashMap<>();
+                dto.put("patientId", fields[1].trim());
+                dto.put("heartRate", parseIntSafe(fields[4]));
+                dto.put("oxygenSaturation", parseDoubleSafe(fields[5]));
+                dto.put("systolicPressure", parseDoubleSafe(fields[6]));
+                dto.put("diastolicPressure", parseDoubleSafe(fields[7]));
+                dto.put("temperature", parseDoubleSafe(fields[8]));
+                dto.put("respiratoryRate", parseIntSafe(fields[9]));
+                dto.put("status", fields[10].trim());
+                dto.put("timestamp", normalizeTimestamp(fields[0].trim()));
+                bytes += objectMapper.writeValueAsString(dto).length();
+            }
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public long mapped() throws IOException {
+        long bytes = 0;
+        StringBuilder json = new StringBuilder(512);
+        try (CsvReplay csv = CsvReplay.open(file)) {
+            while (csv.next()) {
+                json.setLength(0);
+                json.append("{\"patientId\":\"").append(csv.text(1))
+                        .append("\",\"heartRate\":").append(csv.intField(4))
+                        .append(",\"oxygenSaturation\":").append(csv.doubleField(5))
+                        .append(",\"systolicPressure\":").append(csv.doubleField(6))
+                        .append(",\"diastolicPressure\":").append(csv.doubleField(7))
+                        .append(",\"temperature\":").append(csv.doubleField(8))
+                        .append(",\"respiratoryRate\":").append(csv.intField(9))
+                        .append(",\"status\":\"").append(csv.text(10))
+                        .append("\",\"timestampMillis\":").append(csv.epochMillis(0)).append('}');
+                bytes += json.length();
+            }
+        }
+        return bytes;
+    }
+
+    private static Integer parseIntSafe(String s) {
+        Double d = parseDoubleSafe(s);
+        return d == null ? null : (int) Math.round(d);
+    }
+
+    private static Double parseDoubleSafe(String s) {
+        String n = s.trim().replace(',', '.').replaceAll("[^0-9+\\-.]", "");
+        return n.isEmpty() ? null : Double.parseDouble(n);
+    }
+
+    private static String normalizeTimestamp(String s) {
+        if (s.matches("^\\d{2}:\\d{2}:\\d{2}(\\.\\d+)?$")) {
+            var timeOnly = new DateTimeFormatterBuilder()
+                    .appendPattern("HH:mm:ss")
+                    .optionalStart().appendLiteral('.').appendFraction(ChronoField.NANO_OF_SECOND, 1, 9, false).optionalEnd()
+                    .toFormatter();
+            return LocalDateTime.of(LocalDate.now(), LocalTime.parse(s, timeOnly)).toString();
+        }
+        return LocalDateTime.now().toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(CsvReplayBenchmark.class.getSimpleName()).build()).run();
+    }
+}
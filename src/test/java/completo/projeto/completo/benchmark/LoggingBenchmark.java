@@ -0,0 +1,154 @@
+package completo.projeto.completo.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import completo.projeto.completo.config.SampledInfoTurboFilter;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de log por requisição de ingestão (requisições/s), gravando em arquivo:
+ * <ul>
+ *   <li>{@code BEFORE}: as 4 linhas INFO síncronas em texto que um POST gerava
+ *       (controller start/success, save_ok, broadcast_queued);</li>
+ *   <li>{@code DEFAULT}: perfil padrão atual, só {@code save_ok} em INFO (as demais em DEBUG);</li>
+ *   <li>{@code FAST_LOGGING}: perfil {@code fast-logging}, JSON em appender assíncrono e
+ *       amostragem 1/100 das linhas INFO por requisição;</li>
+ *   <li>{@code ASYNC_JSON}: JSON assíncrono sem amostragem.</li>
+ * </ul>
+ * Execução (após {@code mvn test-compile}):
+ * {@code java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)
+ * completo.projeto.completo.benchmark.LoggingBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+
+    public enum Profile { BEFORE, DEFAULT, FAST_LOGGING, ASYNC_JSON }
+
+    private static final String TEXT_PATTERN = "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p [%15.15t] %-40.40logger{39} : %m%n";
+
+    @Param({"BEFORE", "DEFAULT", "FAST_LOGGING", "ASYNC_JSON"})
+    public Profile profile;
+
+    private LoggerContext context;
+    private File file;
+    private Logger controller;
+    private Logger service;
+    private boolean legacyLevels;
+    private final String patientId = "PAC001";
+    private final UUID recordId = UUID.randomUUID();
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("logging-benchmark", ".log");
+        context = new LoggerContext();
+        context.start();
+
+        Encoder<ILoggingEvent> encoder;
+        if (profile == Profile.FAST_LOGGING || profile == Profile.ASYNC_JSON) {
+            LogstashEncoder json = new LogstashEncoder();
+            json.setContext(context);
+            json.start();
+            encoder = json;
+        } else {
+            PatternLayoutEncoder text = new PatternLayoutEncoder();
+            text.setContext(context);
+            text.setPattern(TEXT_PATTERN);
+            text.start();
+            encoder = text;
+        }
+
+        FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+        fileAppender.setContext(context);
+        fileAppender.setFile(file.getAbsolutePath());
+        fileAppender.setEncoder(encoder);
+        fileAppender.start();
+
+        Appender<ILoggingEvent> root = fileAppender;
+        if (profile == Profile.FAST_LOGGING || profile == Profile.ASYNC_JSON) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setNeverBlock(true);
+            async.addAppender(fileAppender);
+            async.start();
+            root = async;
+        }
+        if (profile == Profile.FAST_LOGGING) {
+            SampledInfoTurboFilter sampling = new SampledInfoTurboFilter();
+            sampling.setContext(context);
+            sampling.addSampledLogger("completo.projeto.completo.service");
+            sampling.setRate(100);
+            sampling.start();
+            context.addTurboFilter(sampling);
+        }
+
+        Logger rootLogger = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        rootLogger.setLevel(Level.INFO);
+        rootLogger.addAppender(root);
+        controller = context.getLogger("completo.projeto.completo.VitalSignRecordController");
+        service = context.getLogger("completo.projeto.completo.service.VitalSignRecordService");
+        legacyLevels = profile == Profile.BEFORE;
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.stop();
+        file.delete();
+    }
+
+    /** Linhas de log de um POST /api/v1/vital-signs, nos níveis de cada perfil. */
+    @Benchmark
+    public void ingestRequest() {
+        if (legacyLevels) {
+            controller.info("api=create_vital_signs action=start patientId={}", patientId);
+        } else {
+            controller.debug("api=create_vital_signs action=start patientId={}", patientId);
+        }
+        service.info("domain=vital_sign event=save_ok patientId={} recordId={} ts={}",
+                patientId, recordId, System.currentTimeMillis());
+        if (legacyLevels) {
+            service.info("domain=vital_sign event=broadcast_queued patientId={} recordId={}", patientId, recordId);
+            controller.info("api=create_vital_signs action=success patientId={} status=CREATED", patientId);
+        } else {
+            service.debug("domain=vital_sign event=broadcast_queued patientId={} recordId={}", patientId, recordId);
+            controller.debug("api=create_vital_signs action=success patientId={} status=CREATED", patientId);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(LoggingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
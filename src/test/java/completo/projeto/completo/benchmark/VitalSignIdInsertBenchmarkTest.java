@@ -0,0 +1,129 @@
+package completo.projeto.completo.benchmark;
+
+import completo.projeto.completo.entities.TimeOrderedUuidGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Inserção em {@code vital_sign_record} (mesmo esquema e índices da entidade) com chave UUIDv4 aleatória,
+ * a estratégia anterior, e UUIDv7 ({@link TimeOrderedUuidGenerator}), num H2 em arquivo: vazão a cada
+ * {@code benchmark.report-every} linhas e tamanho final do arquivo.
+ * <p>
+ * Desabilitado por padrão. Execução:
+ * {@code mvn test -Dtest=VitalSignIdInsertBenchmarkTest -Dbenchmark=true -DenableAssertions=false -Dbenchmark.rows=10000000}
+ * <p>
+ * Sem {@code -DenableAssertions=false} o surefire liga {@code -ea} e o MVStore do H2 2.2.224 aborta com
+ * {@code AssertionError} ao passar de ~2 GB de arquivo (o v4 chega lá antes de 1 milhão de linhas).
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VitalSignIdInsertBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VitalSignIdInsertBenchmarkTest.class);
+
+    private static final int PATIENTS = 1000;
+    private static final int BATCH = 1000;
+    private static final int COMMIT_EVERY = 10_000;
+    private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void insertThroughputByIdStrategy() throws Exception {
+        long rows = Long.getLong("benchmark.rows", 10_000_000L);
+        long reportEvery = Long.getLong("benchmark.report-every", Math.max(BATCH, rows / 10));
+
+        log.info("benchmark=id_insert rows={} batch={} commitEvery={}", rows, BATCH, COMMIT_EVERY);
+        run("uuid_v4_random", UUID::randomUUID, rows, reportEvery);
+        run("uuid_v7_time", TimeOrderedUuidGenerator::next, rows, reportEvery);
+    }
+
+    private void run(String strategy, Supplier<UUID> ids, long rows, long reportEvery) throws SQLException, IOException {
+        Path db = dir.resolve(strategy);
+        try (Connection c = DriverManager.getConnection("jdbc:h2:file:" + db + ";CACHE_SIZE=262144", "sa", "")) {
+            try (Statement st = c.createStatement()) {
+                st.execute("""
+                        CREATE TABLE vital_sign_record (
+                            id UUID PRIMARY KEY,
+                            patient_id VARCHAR(255) NOT NULL,
+                            heart_rate INTEGER,
+                            oxygen_saturation FLOAT(53),
+                            systolic_pressure FLOAT(53),
+                            diastolic_pressure FLOAT(53),
+                            temperature FLOAT(53),
+                            respiratory_rate FLOAT(53),
+                            status VARCHAR(255),
+                            timestamp TIMESTAMP(6) WITH TIME ZONE)""");
+                st.execute("CREATE INDEX idx_vital_sign_patient_ts ON vital_sign_record (patient_id, timestamp DESC, id DESC)");
+                st.execute("CREATE INDEX idx_vital_sign_ts ON vital_sign_record (timestamp DESC, id DESC)");
+            }
+            c.setAutoCommit(false);
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            long start = System.nanoTime();
+            long chunkStart = start;
+            try (PreparedStatement ps = c.prepareStatement(
+                    "INSERT INTO vital_sign_record (id, patient_id, heart_rate, oxygen_saturation, systolic_pressure, " +
+                    "diastolic_pressure, temperature, respiratory_rate, status, timestamp) VALUES (?,?,?,?,?,?,?,?,?,?)")) {
+                for (long i = 1; i <= rows; i++) {
+                    ps.setObject(1, ids.get());
+                    ps.setString(2, "PAC" + (i % PATIENTS));
+                    ps.setInt(3, 60 + rnd.nextInt(40));
+                    ps.setDouble(4, 94 + rnd.nextDouble(5));
+                    ps.setDouble(5, 110 + rnd.nextDouble(30));
+                    ps.setDouble(6, 70 + rnd.nextDouble(20));
+                    ps.setDouble(7, 36 + rnd.nextDouble(1.5));
+                    ps.setDouble(8, 12 + rnd.nextDouble(8));
+                    ps.setString(9, "NORMAL");
+                    // leituras chegam em ordem de tempo, como na ingestão
+                    ps.setObject(10, OffsetDateTime.ofInstant(START.plusMillis(i * 10), ZoneOffset.UTC));
+                    ps.addBatch();
+                    if (i % BATCH == 0) ps.executeBatch();
+                    if (i % COMMIT_EVERY == 0) c.commit();
+                    if (i % reportEvery == 0) {
+                        long now = System.nanoTime();
+                        log.info("benchmark=id_insert strategy={} rows={} chunk_rows_per_s={} total_s={}",
+                                strategy, i, reportEvery * 1_000_000_000L / (now - chunkStart), (now - start) / 1_000_000_000L);
+                        chunkStart = now;
+                    }
+                }
+                ps.executeBatch();
+                c.commit();
+            }
+            long elapsed = System.nanoTime() - start;
+            try (Statement st = c.createStatement()) {
+                st.execute("CHECKPOINT SYNC");
+            }
+            log.info("benchmark=id_insert strategy={} rows={} avg_rows_per_s={} total_s={} file_mb={}",
+                    strategy, rows, rows * 1_000_000_000L / elapsed, elapsed / 1_000_000_000L, sizeMb(db));
+        }
+    }
+
+    private long sizeMb(Path db) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            long bytes = 0;
+            for (Path f : files.filter(p -> p.getFileName().toString().startsWith(db.getFileName().toString())).toList()) {
+                bytes += Files.size(f);
+            }
+            return bytes / (1024 * 1024);
+        }
+    }
+}
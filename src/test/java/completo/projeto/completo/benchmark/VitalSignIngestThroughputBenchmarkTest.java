@@ -0,0 +1,133 @@
+package completo.projeto.completo.benchmark;
+
+import completo.projeto.completo.entities.VitalSignRecord;
+import completo.projeto.completo.repository.VitalSignRecordRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Vazão de gravação pelo {@link VitalSignRecordRepository} (Hibernate, pool do Hikari) em três padrões da ingestão:
+ * uma leitura por transação (POST síncrono), {@code saveAll} de grupos de {@code benchmark.chunk} leituras
+ * (write-behind e POST /batch) e o mesmo com {@code benchmark.threads} threads concorrentes.
+ * <p>
+ * Desabilitado por padrão. Usa o datasource da aplicação (não o embutido de teste) com o perfil de
+ * {@code benchmark.profile}; compare as duas execuções:
+ * {@code mvn test -Dtest=VitalSignIngestThroughputBenchmarkTest -Dbenchmark=true -Dbenchmark.profile=default}
+ * {@code mvn test -Dtest=VitalSignIngestThroughputBenchmarkTest -Dbenchmark=true -Dbenchmark.profile=high-ingest}
+ */
+@DataJpaTest(showSql = false, properties = "spring.profiles.active=${benchmark.profile:default}")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VitalSignIngestThroughputBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VitalSignIngestThroughputBenchmarkTest.class);
+
+    private static final int PATIENTS = 1000;
+    private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Autowired
+    private VitalSignRecordRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private Environment environment;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Test
+    void ingestThroughputThroughRepository() throws Exception {
+        int rows = Integer.getInteger("benchmark.rows", 200_000);
+        int chunk = Integer.getInteger("benchmark.chunk", 500);
+        int threads = Integer.getInteger("benchmark.threads", 4);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        log.info("benchmark=ingest_throughput profiles={} batch_size={} order_inserts={} h2_query_cache={} rows={} chunk={} threads={}",
+                Arrays.toString(environment.getActiveProfiles()),
+                entityManagerFactory.getProperties().get("hibernate.jdbc.batch_size"),
+                entityManagerFactory.getProperties().get("hibernate.order_inserts"),
+                jdbc.queryForObject("SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS " +
+                        "WHERE SETTING_NAME = 'QUERY_CACHE_SIZE'", String.class),
+                rows, chunk, threads);
+
+        // aquecimento (JIT, planos do H2, pool)
+        run("warmup", rows / 10, () -> tx.executeWithoutResult(s -> repository.saveAll(readings(chunk))), chunk, 1);
+
+        // leituras únicas são bem mais lentas: 1/10 das linhas basta para a taxa estabilizar
+        run("single", rows / 10, () -> tx.executeWithoutResult(s -> repository.save(readings(1).get(0))), 1, 1);
+        run("save_all", rows, () -> tx.executeWithoutResult(s -> repository.saveAll(readings(chunk))), chunk, 1);
+        run("save_all_concurrent", rows, () -> tx.executeWithoutResult(s -> repository.saveAll(readings(chunk))), chunk, threads);
+    }
+
+    private void run(String scenario, int rows, Runnable unit, int perUnit, int threads) throws Exception {
+        jdbc.execute("TRUNCATE TABLE vital_sign_record");
+        int units = rows / perUnit;
+        long start = System.nanoTime();
+        try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                int share = units / threads + (t < units % threads ? 1 : 0);
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < share; i++) unit.run();
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals((long) units * perUnit, repository.count());
+        log.info("benchmark=ingest_throughput scenario={} rows={} rows_per_s={} total_ms={}",
+                scenario, (long) units * perUnit, (long) units * perUnit * 1_000_000_000L / elapsed, elapsed / 1_000_000);
+    }
+
+    private List<VitalSignRecord> readings(int n) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        List<VitalSignRecord> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            long seq = sequence.incrementAndGet();
+            out.add(VitalSignRecord.builder()
+                    .patientId("PAC" + (seq % PATIENTS))
+                    .heartRate(60 + rnd.nextInt(40))
+                    .oxygenSaturation(94 + rnd.nextDouble(5))
+                    .systolicPressure(110 + rnd.nextDouble(30))
+                    .diastolicPressure(70 + rnd.nextDouble(20))
+                    .temperature(36 + rnd.nextDouble(1.5))
+                    .respiratoryRate(12 + rnd.nextDouble(8))
+                    .status("NORMAL")
+                    .timestamp(START.plusMillis(seq * 10))
+                    .build());
+        }
+        return out;
+    }
+}
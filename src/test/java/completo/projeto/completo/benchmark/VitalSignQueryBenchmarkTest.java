@@ -0,0 +1,122 @@
+package completo.projeto.completo.benchmark;
+
+import completo.projeto.completo.repository.VitalSignRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latência das consultas por paciente (latest e intervalo de 1h) conforme a tabela cresce,
+ * com e sem o índice composto (patientId, timestamp DESC).
+ * <p>
+ * Desabilitado por padrão. Execução:
+ * {@code mvn test -Dtest=VitalSignQueryBenchmarkTest -Dbenchmark=true -Dbenchmark.rows=250000,1000000,2000000}
+ */
+@DataJpaTest(showSql = false)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VitalSignQueryBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VitalSignQueryBenchmarkTest.class);
+
+    private static final int PATIENTS = 1000;
+    private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+    private static final int SPAN_SECONDS = 30 * 24 * 3600;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private VitalSignRecordRepository repository;
+
+    @Test
+    void queryLatencyAsTableGrows() {
+        long[] sizes = Arrays.stream(System.getProperty("benchmark.rows", "100000,500000,1000000").split(","))
+                .mapToLong(s -> Long.parseLong(s.trim()))
+                .sorted()
+                .toArray();
+
+        log.info("benchmark=query_plan {}", jdbc.queryForList(
+                "EXPLAIN SELECT * FROM vital_sign_record WHERE patient_id = 'PAC1' " +
+                "AND timestamp BETWEEN TIMESTAMP WITH TIME ZONE '2025-01-02 00:00:00Z' AND TIMESTAMP WITH TIME ZONE '2025-01-02 01:00:00Z' " +
+                "ORDER BY timestamp DESC", String.class));
+        log.info("benchmark=query_plan {}", jdbc.queryForList(
+                "EXPLAIN SELECT * FROM vital_sign_record WHERE patient_id = 'PAC1' " +
+                "ORDER BY timestamp DESC FETCH FIRST 10 ROWS ONLY", String.class));
+        log.info("benchmark=query_latency rows | latest_p50_us latest_p99_us | range_p50_us range_p99_us | range_noidx_p50_us");
+        long inserted = 0;
+        for (long target : sizes) {
+            insertRows(target - inserted);
+            inserted = target;
+
+            long[] latest = measure(200, () -> repository.findTop10ByPatientIdOrderByTimestampDesc(randomPatient()));
+            long[] range = measure(200, this::rangeQuery);
+
+            jdbc.execute("DROP INDEX idx_vital_sign_patient_ts");
+            long[] rangeNoIndex = measure(10, this::rangeQuery);
+            jdbc.execute("CREATE INDEX idx_vital_sign_patient_ts ON vital_sign_record (patient_id, timestamp DESC, id DESC)");
+
+            log.info("benchmark=query_latency {} | {} {} | {} {} | {}",
+                    target, latest[0], latest[1], range[0], range[1], rangeNoIndex[0]);
+        }
+    }
+
+    private void rangeQuery() {
+        Instant from = START.plusSeconds(ThreadLocalRandom.current().nextInt(SPAN_SECONDS - 3600));
+        repository.findByPatientIdAndTimestampBetweenOrderByTimestampDesc(
+                randomPatient(), from, from.plusSeconds(3600), PageRequest.of(0, 500));
+    }
+
+    private void insertRows(long count) {
+        final int chunk = 10_000;
+        for (long done = 0; done < count; done += chunk) {
+            int n = (int) Math.min(chunk, count - done);
+            List<Object[]> rows = new ArrayList<>(n);
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            for (int i = 0; i < n; i++) {
+                rows.add(new Object[]{
+                        UUID.randomUUID(),
+                        randomPatient(),
+                        60 + rnd.nextInt(60),
+                        90 + rnd.nextDouble(10),
+                        Timestamp.from(START.plusSeconds(rnd.nextInt(SPAN_SECONDS)))
+                });
+            }
+            jdbc.batchUpdate("INSERT INTO vital_sign_record " +
+                    "(id, patient_id, heart_rate, oxygen_saturation, timestamp) " +
+                    "VALUES (?, ?, ?, ?, ?)", rows);
+        }
+    }
+
+    private static String randomPatient() {
+        return "PAC" + ThreadLocalRandom.current().nextInt(PATIENTS);
+    }
+
+    /** Retorna {p50, p99} em microssegundos. */
+    private static long[] measure(int iterations, Runnable query) {
+        for (int i = 0; i < Math.min(iterations, 20); i++) query.run();
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long t0 = System.nanoTime();
+            query.run();
+            samples[i] = (System.nanoTime() - t0) / 1_000;
+        }
+        Arrays.sort(samples);
+        return new long[]{samples[iterations / 2], samples[Math.min(iterations - 1, (int) (iterations * 0.99))]};
+    }
+}
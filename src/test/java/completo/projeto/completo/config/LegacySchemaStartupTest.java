@@ -0,0 +1,83 @@
+package completo.projeto.completo.config;
+
+import completo.projeto.completo.security.CryptoUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sobe a aplicação sobre um banco no formato antigo (identidade nas leituras, instantes sem fuso): as migrações
+ * precisam terminar antes do Hibernate e da primeira requisição.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=update",
+        "crypto.key=" + LegacySchemaStartupTest.KEY,
+        "crypto.blind-index-key=" + LegacySchemaStartupTest.BLIND_INDEX_KEY
+})
+@AutoConfigureMockMvc(addFilters = false)
+class LegacySchemaStartupTest {
+
+    static final String KEY = "7gF8jDOvZpG6Gv0WQSRhC/4HNXnZH7Oc8cbl3qDEbMY=";
+    static final String BLIND_INDEX_KEY = "0s7S6adACn8ixq/fcp7l/pf6O/WlNV2Rp222/ngqR7M=";
+    private static final String URL = "jdbc:h2:mem:legacy_startup;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @DynamicPropertySource
+    static void legacyDatabase(DynamicPropertyRegistry registry) throws SQLException {
+        try (Connection con = DriverManager.getConnection(URL, "sa", "");
+             Statement st = con.createStatement()) {
+            st.execute("CREATE TABLE vital_sign_record (id UUID NOT NULL PRIMARY KEY, patient_id VARCHAR(255) NOT NULL, " +
+                    "patient_name VARCHAR(255) NOT NULL, patient_cpf VARCHAR(255) NOT NULL, heart_rate INTEGER, " +
+                    "oxygen_saturation DOUBLE PRECISION, systolic_pressure DOUBLE PRECISION, " +
+                    "diastolic_pressure DOUBLE PRECISION, temperature DOUBLE PRECISION, " +
+                    "respiratory_rate DOUBLE PRECISION, status VARCHAR(255), \"TIMESTAMP\" TIMESTAMP(6))");
+            try (PreparedStatement ps = con.prepareStatement("INSERT INTO vital_sign_record " +
+                    "(id, patient_id, patient_name, patient_cpf, heart_rate, \"TIMESTAMP\") " +
+                    "VALUES (?, 'PAC001', 'João Silva', ?, 72, TIMESTAMP '2025-08-09 12:00:00')")) {
+                ps.setObject(1, UUID.randomUUID());
+                ps.setString(2, new CryptoUtil("AES/GCM/NoPadding", KEY, BLIND_INDEX_KEY).encrypt("12345678909"));
+                ps.executeUpdate();
+            }
+        }
+        registry.add("spring.datasource.url", () -> URL);
+    }
+
+    @Test
+    void startup_shouldMigrateLegacySchemaBeforeAcceptingReadings() throws Exception {
+        mockMvc.perform(post("/api/v1/vital-signs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"patientId\":\"PAC001\",\"heartRate\":80,\"timestamp\":\"2025-08-09T12:01:00Z\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.patientName").value("João Silva"));
+
+        assertEquals(2, jdbc.queryForObject("SELECT COUNT(*) FROM vital_sign_record", Integer.class));
+        assertEquals("João Silva", jdbc.queryForObject("SELECT name FROM patient WHERE patient_id = 'PAC001'", String.class));
+        assertEquals(new CryptoUtil("AES/GCM/NoPadding", KEY, BLIND_INDEX_KEY).blindIndex("12345678909"),
+                jdbc.queryForObject("SELECT cpf_hash FROM patient WHERE patient_id = 'PAC001'", String.class));
+        assertEquals("TIMESTAMP WITH TIME ZONE", jdbc.queryForObject("SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_NAME = 'VITAL_SIGN_RECORD' AND COLUMN_NAME = 'TIMESTAMP'", String.class));
+    }
+}
@@ -0,0 +1,67 @@
+package completo.projeto.completo.config;
+
+import completo.projeto.completo.entities.Patient;
+import completo.projeto.completo.repository.PatientRepository;
+import completo.projeto.completo.security.CryptoUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({PatientNormalizationMigration.class, CryptoUtil.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PatientNormalizationMigrationTest {
+
+    @Autowired
+    private PatientNormalizationMigration migration;
+
+    @Autowired
+    private CryptoUtil cryptoUtil;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void run_shouldMoveIdentityToPatientTableAndDropLegacyColumns() {
+        jdbc.execute("ALTER TABLE vital_sign_record ADD COLUMN patient_name VARCHAR(255)");
+        jdbc.execute("ALTER TABLE vital_sign_record ADD COLUMN patient_cpf VARCHAR(255)");
+        LocalDateTime base = LocalDateTime.of(2025, 8, 9, 12, 0);
+        insertLegacy("PAC001", "Joao (antigo)", "12345678900", base);
+        insertLegacy("PAC001", "João Silva", "12345678900", base.plusMinutes(1));
+        insertLegacy("PAC002", "Maria Souza", "98765432100", base);
+
+        migration.run();
+
+        Patient p1 = patientRepository.findById("PAC001").orElseThrow();
+        assertEquals("João Silva", p1.getName());
+        assertEquals("12345678900", cryptoUtil.decrypt(p1.getEncryptedCpf()));
+        assertEquals(cryptoUtil.blindIndex("12345678900"), p1.getCpfHash());
+        assertEquals(2, patientRepository.count());
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_NAME = 'VITAL_SIGN_RECORD' AND COLUMN_NAME LIKE 'PATIENT_CPF%'", Integer.class));
+        assertEquals(3, jdbc.queryForObject("SELECT COUNT(*) FROM vital_sign_record", Integer.class));
+
+        // idempotente: sem colunas antigas não faz nada
+        migration.run();
+        assertEquals(2, patientRepository.count());
+    }
+
+    private void insertLegacy(String patientId, String name, String cpf, LocalDateTime ts) {
+        jdbc.update("INSERT INTO vital_sign_record (id, patient_id, patient_name, patient_cpf, heart_rate, timestamp) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)",
+                UUID.randomUUID(), patientId, name, cryptoUtil.encrypt(cpf), 72, Timestamp.valueOf(ts));
+    }
+}
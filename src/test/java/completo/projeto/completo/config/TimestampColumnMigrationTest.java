@@ -0,0 +1,54 @@
+package completo.projeto.completo.config;
+
+import completo.projeto.completo.entities.VitalSignRecord;
+import completo.projeto.completo.mapper.TimestampCodec;
+import completo.projeto.completo.repository.VitalSignRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({TimestampColumnMigration.class, TimestampCodec.class})
+@TestPropertySource(properties = "vital-signs.time.default-zone=America/Sao_Paulo")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TimestampColumnMigrationTest {
+
+    @Autowired
+    private TimestampColumnMigration migration;
+
+    @Autowired
+    private VitalSignRecordRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void run_shouldConvertZonelessColumnInterpretingValuesInDefaultZone() {
+        jdbc.execute("ALTER TABLE vital_sign_record ALTER COLUMN \"TIMESTAMP\" SET DATA TYPE TIMESTAMP(6)");
+        UUID id = UUID.randomUUID();
+        jdbc.update("INSERT INTO vital_sign_record (id, patient_id, heart_rate, \"TIMESTAMP\") " +
+                "VALUES (?, 'PAC001', 72, TIMESTAMP '2025-08-09 12:00:00')", id);
+
+        migration.run();
+
+        assertEquals("TIMESTAMP WITH TIME ZONE", jdbc.queryForObject("SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_NAME = 'VITAL_SIGN_RECORD' AND COLUMN_NAME = 'TIMESTAMP'", String.class));
+        VitalSignRecord r = repository.findById(id).orElseThrow();
+        assertEquals(Instant.parse("2025-08-09T15:00:00Z"), r.getTimestamp());
+
+        // idempotente: coluna já convertida não é alterada
+        migration.run();
+        assertEquals(Instant.parse("2025-08-09T15:00:00Z"), repository.findById(id).orElseThrow().getTimestamp());
+        repository.deleteAll();
+    }
+}
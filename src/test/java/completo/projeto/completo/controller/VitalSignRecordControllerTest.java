@@ -2,8 +2,16 @@ package completo.projeto.completo.controller;
 
 
 import completo.projeto.completo.VitalSignRecordController;
+import completo.projeto.completo.dto.VitalSignBatchErrorDTO;
+import completo.projeto.completo.dto.VitalSignBatchResultDTO;
+import completo.projeto.completo.dto.VitalSignHistoryPageDTO;
+import completo.projeto.completo.dto.VitalSignImportResultDTO;
+import completo.projeto.completo.dto.VitalSignBucketDTO;
 import completo.projeto.completo.dto.VitalSignRecordDTO;
+import completo.projeto.completo.dto.VitalSignSeriesDTO;
+import completo.projeto.completo.dto.VitalSignStatsDTO;
 import completo.projeto.completo.security.JwtAuthenticationFilter;
+import completo.projeto.completo.service.VitalSignImportService;
 import completo.projeto.completo.service.VitalSignRecordService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,10 +23,17 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -37,6 +52,9 @@ class VitalSignRecordControllerTest {
     @MockBean
     private VitalSignRecordService service;
 
+    @MockBean
+    private VitalSignImportService importService;
+
     private VitalSignRecordDTO sampleDto() {
         return new VitalSignRecordDTO(
                 "PAC001",
@@ -85,6 +103,81 @@ class VitalSignRecordControllerTest {
                 .andExpect(jsonPath("$.patientCpf").doesNotExist()); // seguro
     }
 
+    @Test
+    @DisplayName("POST /api/v1/vital-signs/batch -> 201 CREATED com erros por item")
+    void testCreateBatch() throws Exception {
+        when(service.createBatch(ArgumentMatchers.anyList()))
+                .thenReturn(new VitalSignBatchResultDTO(2, 1, 1,
+                        List.of(new VitalSignBatchErrorDTO(1, null, "patientId é obrigatório"))));
+
+        String body = """
+            [
+              {"patientId":"PAC001","patientName":"João Silva","patientCpf":"123.456.789-00","heartRate":87},
+              {"heartRate":90}
+            ]
+            """;
+
+        mockMvc.perform(post("/api/v1/vital-signs/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.saved").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(1));
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/vital-signs/import (text/csv) -> 201 CREATED com resumo")
+    void testImportCsv() throws Exception {
+        when(importService.importCsv(any(), ArgumentMatchers.eq("2025-08-09")))
+                .thenReturn(new VitalSignImportResultDTO(3, 2, 1, 1, 12,
+                        List.of(new VitalSignBatchErrorDTO(4, "PAC001", "hr inválido: abc"))));
+
+        String csv = """
+            timestamp,paciente_id,paciente_nome,paciente_cpf,hr,spo2,pressao_sys,pressao_dia,temp,resp_freq,status
+            20:31:32.81,PAC001,João Silva,123.456.789-09,79.0,95.8,150.0,96.0,36.7,15.5,NORMAL
+            """;
+
+        mockMvc.perform(post("/api/v1/vital-signs/import")
+                        .param("date", "2025-08-09")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(4));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/vital-signs/patient/{id}?from=&to= -> 200 OK")
+    void testGetRangeByPatient() throws Exception {
+        when(service.getRangeByPatientId("PAC001", "2025-08-09T00:00:00", "2025-08-10T00:00:00", 500))
+                .thenReturn(List.of(sampleDto()));
+
+        mockMvc.perform(get("/api/v1/vital-signs/patient/PAC001")
+                        .param("from", "2025-08-09T00:00:00")
+                        .param("to", "2025-08-10T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].timestamp").value("2025-08-09T12:00:00"));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/vital-signs/patient/{id}/series -> 200 OK")
+    void testGetSeriesByPatient() throws Exception {
+        when(service.getSeriesByPatientId("PAC001", null, null, "1h", "heartRate"))
+                .thenReturn(new VitalSignSeriesDTO("PAC001", "2025-08-09T00:00", "2025-08-10T00:00", "PT1H",
+                        List.of("heartRate"),
+                        List.of(new VitalSignBucketDTO("2025-08-09T12:00",
+                                Map.of("heartRate", new VitalSignStatsDTO(60.0, 90.0, 75.0, 3600))))));
+
+        mockMvc.perform(get("/api/v1/vital-signs/patient/PAC001/series")
+                        .param("bucket", "1h")
+                        .param("metric", "heartRate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.buckets[0].metrics.heartRate.avg").value(75.0))
+                .andExpect(jsonPath("$.buckets[0].metrics.heartRate.count").value(3600));
+    }
+
     @Test
     @DisplayName("GET /api/v1/vital-signs/patient/{id}/latest -> 200 OK")
     void testGetLatestByPatient() throws Exception {
@@ -131,5 +224,43 @@ class VitalSignRecordControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.length()").value(3));
     }
-}
 
+    @Test
+    @DisplayName("GET /api/v1/vital-signs/history/stream -> 200 NDJSON")
+    void testStreamHistoryAll() throws Exception {
+        when(service.streamHistoryAll(any())).thenAnswer(inv -> {
+            Consumer<VitalSignRecordDTO> sink = inv.getArgument(0);
+            sink.accept(sampleDto());
+            sink.accept(sampleDto());
+            return 2L;
+        });
+
+        MvcResult started = mockMvc.perform(get("/api/v1/vital-signs/history/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.strip().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"patientId\":\"PAC001\""));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/vital-signs/patient/{id}/history/page -> 200 OK com cursor")
+    void testGetHistoryPageByPatient() throws Exception {
+        when(service.getHistoryPageByPatientId("PAC001", "2025-08-09T12:00,00000000-0000-0000-0000-000000000001", 1))
+                .thenReturn(new VitalSignHistoryPageDTO(List.of(sampleDto()),
+                        "2025-08-09T11:59,00000000-0000-0000-0000-000000000000"));
+
+        mockMvc.perform(get("/api/v1/vital-signs/patient/PAC001/history/page")
+                        .param("after", "2025-08-09T12:00,00000000-0000-0000-0000-000000000001")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.nextCursor").value("2025-08-09T11:59,00000000-0000-0000-0000-000000000000"));
+    }
+}
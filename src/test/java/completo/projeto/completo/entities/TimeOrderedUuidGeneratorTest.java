@@ -0,0 +1,77 @@
+package completo.projeto.completo.entities;
+
+import completo.projeto.completo.repository.VitalSignRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class TimeOrderedUuidGeneratorTest {
+
+    @Autowired
+    private VitalSignRecordRepository repository;
+
+    @Test
+    void next_shouldProduceMonotonicVersion7Ids() {
+        long before = System.currentTimeMillis();
+        UUID prev = TimeOrderedUuidGenerator.next();
+        assertEquals(7, prev.version());
+        assertEquals(2, prev.variant());
+        assertTrue(TimeOrderedUuidGenerator.timestampMillis(prev) >= before);
+        assertTrue(TimeOrderedUuidGenerator.timestampMillis(prev) <= System.currentTimeMillis() + 1);
+
+        for (int i = 0; i < 100_000; i++) {
+            UUID next = TimeOrderedUuidGenerator.next();
+            // mesma ordem do H2: dois longs sem sinal
+            int cmp = Long.compareUnsigned(next.getMostSignificantBits(), prev.getMostSignificantBits());
+            assertTrue(cmp > 0, () -> next + " <= anterior");
+            prev = next;
+        }
+    }
+
+    @Test
+    void next_shouldBeUniqueAcrossThreads() {
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 200_000).parallel().forEach(i -> ids.add(TimeOrderedUuidGenerator.next()));
+        assertEquals(200_000, ids.size());
+    }
+
+    @Test
+    void save_shouldAssignTimeOrderedIdToNewRecords() {
+        VitalSignRecord first = new VitalSignRecord();
+        first.setPatientId("PAC001");
+        first.setTimestamp(Instant.now());
+        VitalSignRecord second = new VitalSignRecord();
+        second.setPatientId("PAC001");
+        second.setTimestamp(Instant.now());
+
+        List<VitalSignRecord> saved = repository.saveAll(List.of(first, second));
+
+        assertEquals(7, saved.get(0).getId().version());
+        assertTrue(saved.get(0).getId().compareTo(saved.get(1).getId()) < 0);
+    }
+
+    @Test
+    void save_shouldPersistIdAssignedAtAcceptanceWithoutMerge() {
+        VitalSignRecord accepted = new VitalSignRecord();
+        UUID id = TimeOrderedUuidGenerator.next();
+        accepted.setId(id);
+        accepted.setPatientId("PAC001");
+        accepted.setTimestamp(Instant.now());
+
+        // persist devolve a própria instância; merge devolveria uma cópia (após um SELECT pelo id)
+        assertSame(accepted, repository.saveAndFlush(accepted));
+        assertEquals(id, accepted.getId());
+        assertFalse(accepted.isNew());
+        assertEquals(Set.of(id), repository.findExistingIds(List.of(id, TimeOrderedUuidGenerator.next())));
+    }
+}
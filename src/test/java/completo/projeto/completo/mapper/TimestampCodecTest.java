@@ -0,0 +1,62 @@
+package completo.projeto.completo.mapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimestampCodecTest {
+
+    private final TimestampCodec utc = new TimestampCodec(ZoneOffset.UTC);
+
+    @Test
+    void parse_shouldAcceptIsoVariantsAndEpochMillis() {
+        Instant expected = Instant.parse("2025-08-09T12:00:00Z");
+        assertEquals(expected, utc.parse("2025-08-09T12:00"));
+        assertEquals(expected, utc.parse("2025-08-09T12:00:00"));
+        assertEquals(expected, utc.parse("2025-08-09T12:00:00.000Z"));
+        assertEquals(expected, utc.parse("2025-08-09T09:00:00-03:00"));
+        assertEquals(expected, utc.parse("2025-08-09T14:00:00+0200"));
+        assertEquals(expected, utc.parse("2025-08-09T13:00:00+01"));
+        assertEquals(expected, utc.parse("1754740800000"));
+        assertEquals(Instant.parse("2025-08-09T12:00:00.123456789Z"), utc.parse("2025-08-09T12:00:00.123456789"));
+        // fora do formato rápido: cai no parser do JDK
+        assertEquals(expected, utc.parse("2025-08-09T09:00:00-03:00[America/Sao_Paulo]"));
+    }
+
+    @Test
+    void parse_shouldUseDefaultZoneWhenOffsetIsMissing() {
+        TimestampCodec saoPaulo = new TimestampCodec(ZoneId.of("America/Sao_Paulo"));
+        assertEquals(Instant.parse("2025-08-09T15:00:00Z"), saoPaulo.parse("2025-08-09T12:00:00"));
+        assertEquals(Instant.parse("2025-08-09T12:00:00Z"), saoPaulo.parse("2025-08-09T12:00:00Z"));
+    }
+
+    @Test
+    void parse_shouldRejectInvalidText() {
+        assertThrows(IllegalArgumentException.class, () -> utc.parse("invalid-timestamp"));
+        assertThrows(IllegalArgumentException.class, () -> utc.parse("2025-02-30T12:00:00"));
+        assertThrows(IllegalArgumentException.class, () -> utc.parse("2025-08-09T24:00:00"));
+        assertThrows(IllegalArgumentException.class, () -> utc.parse(""));
+    }
+
+    @Test
+    void formatAndParse_shouldMatchJavaTimeForRandomInstants() {
+        Random rnd = new Random(42);
+        DateTimeFormatter iso = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+        for (int i = 0; i < 100_000; i++) {
+            long millis = rnd.nextLong(-2_208_988_800_000L, 32_503_680_000_000L); // 1900..3000
+            Instant ts = Instant.ofEpochMilli(millis);
+            String formatted = TimestampCodec.format(ts);
+            assertEquals(iso.format(ts), formatted);
+            assertEquals(ts, utc.parse(formatted));
+            LocalDateTime local = LocalDateTime.ofInstant(ts, ZoneOffset.UTC);
+            assertEquals(ts, utc.parse(local.toString()));
+        }
+    }
+}
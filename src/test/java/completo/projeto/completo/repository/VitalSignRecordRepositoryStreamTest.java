@@ -0,0 +1,77 @@
+package completo.projeto.completo.repository;
+
+import completo.projeto.completo.entities.TimeOrderedUuidGenerator;
+import completo.projeto.completo.entities.VitalSignRecord;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Roda sobre a URL de application.properties (sem o banco embutido do teste) para cobrir os parâmetros do H2.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class VitalSignRecordRepositoryStreamTest {
+
+    private static final int ROWS = 10_000;
+
+    @Autowired
+    private VitalSignRecordRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    @Test
+    void stream_shouldReadFromTheCursorInsteadOfMaterializingTheResult() {
+        Instant base = Instant.parse("2025-08-09T12:00:00Z");
+        String sql = "INSERT INTO vital_sign_record (id, patient_id, heart_rate, status, timestamp) VALUES (?, ?, ?, ?, ?)";
+        String status = "x".repeat(200);
+        jdbc.batchUpdate(sql, IntStream.range(0, ROWS - 1).mapToObj(i -> new Object[]{
+                TimeOrderedUuidGenerator.next(), "PAC001", 60 + i % 40, status, Timestamp.from(base.plusMillis(i))}).toList());
+
+        // aquece o plano da consulta; a linha inserida depois invalida o cache de resultados do H2
+        try (Stream<VitalSignRecord> s = repository.streamAllByOrderByTimestampDesc()) {
+            s.findFirst();
+        }
+        entityManager.clear();
+        jdbc.update(sql, TimeOrderedUuidGenerator.next(), "PAC001", 60, status, Timestamp.from(base.minusMillis(1)));
+
+        long start = allocatedBytes();
+        long firstRead;
+        int read = 0;
+        try (Stream<VitalSignRecord> s = repository.streamAllByOrderByTimestampDesc()) {
+            Iterator<VitalSignRecord> it = s.iterator();
+            entityManager.detach(it.next());
+            firstRead = allocatedBytes() - start;
+            read++;
+            while (it.hasNext()) {
+                entityManager.detach(it.next());
+                read++;
+            }
+        }
+        long total = allocatedBytes() - start;
+
+        assertEquals(ROWS, read);
+        // sem LAZY_QUERY_EXECUTION o H2 monta o resultado inteiro antes da primeira linha (~1/8 do total)
+        assertTrue(firstRead < total / 20, "primeira linha alocou " + firstRead + " de " + total + " bytes");
+    }
+}
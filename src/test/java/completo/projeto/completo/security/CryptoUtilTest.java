@@ -0,0 +1,74 @@
+package completo.projeto.completo.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CryptoUtilTest {
+
+    private static final String KEY = "7gF8jDOvZpG6Gv0WQSRhC/4HNXnZH7Oc8cbl3qDEbMY=";
+    private static final String INDEX_KEY = "0s7S6adACn8ixq/fcp7l/pf6O/WlNV2Rp222/ngqR7M=";
+
+    private final CryptoUtil crypto = new CryptoUtil("AES/GCM/NoPadding", KEY, INDEX_KEY);
+
+    @Test
+    void encrypt_shouldRoundTripWithFreshIvEachCall() {
+        String a = crypto.encrypt("12345678900");
+        String b = crypto.encrypt("12345678900");
+
+        assertNotEquals(a, b);
+        assertEquals("12345678900", crypto.decrypt(a));
+        assertEquals("12345678900", crypto.decrypt(b));
+    }
+
+    @Test
+    void decrypt_shouldRejectTamperedCiphertextAndKeepWorking() {
+        byte[] raw = Base64.getDecoder().decode(crypto.encrypt("12345678900"));
+        raw[raw.length - 1] ^= 1;
+
+        assertThrows(RuntimeException.class, () -> crypto.decrypt(Base64.getEncoder().encodeToString(raw)));
+        assertEquals("98765432100", crypto.decrypt(crypto.encrypt("98765432100")));
+    }
+
+    @Test
+    void encryptAll_shouldPreserveOrderForLargeLists() {
+        List<String> plains = IntStream.range(0, 2000).mapToObj(i -> String.format("%011d", i)).toList();
+
+        List<String> encrypted = crypto.encryptAll(plains);
+
+        assertEquals(plains.size(), encrypted.size());
+        assertEquals(plains, crypto.decryptAll(encrypted));
+    }
+
+    @Test
+    void encrypt_shouldBeSafeUnderConcurrentUse() throws Exception {
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            List<Future<Boolean>> results = IntStream.range(0, 8)
+                    .mapToObj(t -> pool.submit(() -> {
+                        for (int i = 0; i < 500; i++) {
+                            String plain = t + "-" + i;
+                            if (!plain.equals(crypto.decrypt(crypto.encrypt(plain)))) return false;
+                        }
+                        return true;
+                    }))
+                    .toList();
+            for (Future<Boolean> r : results) assertTrue(r.get());
+        }
+    }
+
+    @Test
+    void blindIndex_shouldBeDeterministicAndKeyed() {
+        CryptoUtil otherKey = new CryptoUtil("AES/GCM/NoPadding", KEY, "gq5f3SRP0K1vb1BuYh0nnQ1u6mM3cXm8yKkqf1mN2pA=");
+
+        assertEquals(crypto.blindIndex("12345678900"), crypto.blindIndex("12345678900"));
+        assertNotEquals(crypto.blindIndex("12345678900"), crypto.blindIndex("12345678901"));
+        assertNotEquals(crypto.blindIndex("12345678900"), otherKey.blindIndex("12345678900"));
+    }
+}
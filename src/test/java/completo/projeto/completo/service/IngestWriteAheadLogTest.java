@@ -0,0 +1,155 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.entities.TimeOrderedUuidGenerator;
+import completo.projeto.completo.entities.VitalSignRecord;
+import completo.projeto.completo.service.PatientIdentityCache.PatientIdentity;
+import completo.projeto.completo.service.WriteBehindIngestQueue.PendingReading;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestWriteAheadLogTest {
+
+    private static final PatientIdentity IDENTITY = new PatientIdentity("João Silva", "cpf-criptografado", "cpf-hash");
+
+    @TempDir
+    Path dir;
+
+    private IngestWriteAheadLog wal(DataSize segmentSize) {
+        return new IngestWriteAheadLog(true, dir, segmentSize, true);
+    }
+
+    private static PendingReading reading(String patientId, Integer heartRate, Instant ts) {
+        VitalSignRecord r = new VitalSignRecord();
+        r.setId(TimeOrderedUuidGenerator.next());
+        r.setPatientId(patientId);
+        r.setHeartRate(heartRate);
+        r.setOxygenSaturation(97.5);
+        r.setRespiratoryRate(15.53);
+        r.setStatus("NORMAL");
+        r.setTimestamp(ts);
+        return new PendingReading(r, IDENTITY, Optional.empty(), System.nanoTime());
+    }
+
+    private List<PendingReading> replay(IngestWriteAheadLog wal) throws IOException {
+        List<PendingReading> out = new ArrayList<>();
+        wal.replay(2, out::addAll);
+        return out;
+    }
+
+    private long files() throws IOException {
+        try (Stream<Path> list = Files.list(dir)) {
+            return list.count();
+        }
+    }
+
+    @Test
+    void replay_shouldReturnUnreleasedReadingsAfterCrash() throws IOException {
+        Instant ts = Instant.parse("2025-08-09T12:00:00.123456Z");
+        IngestWriteAheadLog before = wal(DataSize.ofMegabytes(1));
+        replay(before);
+        PendingReading first = before.append(reading("PAC001", 80, ts));
+        before.append(reading("PAC001", null, ts.plusSeconds(1)));
+        before.append(new PendingReading(reading("PAC002", 70, null).record(), IDENTITY, Optional.of(IDENTITY), 0));
+        before.release(List.of(first));
+        assertEquals(1, first.lsn());
+        assertEquals(3, before.appends());
+        // sem close(): simula a queda do processo
+
+        IngestWriteAheadLog after = wal(DataSize.ofMegabytes(1));
+        List<PendingReading> replayed = replay(after);
+
+        assertEquals(List.of(1L, 2L, 3L), replayed.stream().map(PendingReading::lsn).toList());
+        VitalSignRecord r = replayed.get(0).record();
+        assertEquals(first.record().getId(), r.getId());
+        assertEquals("PAC001", r.getPatientId());
+        assertEquals(80, r.getHeartRate());
+        assertEquals(97.5, r.getOxygenSaturation());
+        assertEquals(15.53, r.getRespiratoryRate());
+        assertNull(r.getSystolicPressure());
+        assertEquals("NORMAL", r.getStatus());
+        assertEquals(ts, r.getTimestamp());
+        assertEquals(IDENTITY, replayed.get(0).identity());
+        assertTrue(replayed.get(0).before().isEmpty());
+        assertNull(replayed.get(1).record().getHeartRate());
+        assertNull(replayed.get(2).record().getTimestamp());
+        assertEquals(Optional.of(IDENTITY), replayed.get(2).before());
+
+        assertEquals(4, after.append(reading("PAC003", 90, ts)).lsn());
+    }
+
+    @Test
+    void append_shouldRoundTripFieldsLongerThan64KB() throws IOException {
+        // acima do limite de writeUTF (65535 bytes), com caracteres de mais de um byte
+        String status = "ç".repeat(40_000);
+        PatientIdentity identity = new PatientIdentity("José ".repeat(20_000), "cpf-criptografado", null);
+        PendingReading big = reading("PAC001", 80, Instant.parse("2025-08-09T12:00:00Z"));
+        big.record().setStatus(status);
+
+        IngestWriteAheadLog before = wal(DataSize.ofMegabytes(1));
+        replay(before);
+        before.append(new PendingReading(big.record(), identity, Optional.empty(), 0));
+
+        PendingReading replayed = replay(wal(DataSize.ofMegabytes(1))).get(0);
+        assertEquals(status, replayed.record().getStatus());
+        assertEquals(identity, replayed.identity());
+        assertNull(replayed.identity().cpfHash());
+    }
+
+    @Test
+    void release_shouldDeleteSealedSegmentsOnceEveryReadingIsWritten() throws IOException {
+        IngestWriteAheadLog wal = wal(DataSize.ofBytes(200));
+        replay(wal);
+        List<PendingReading> appended = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            appended.add(wal.append(reading("PAC001", 60 + i, Instant.EPOCH.plusSeconds(i))));
+        }
+        assertTrue(wal.segmentCount() > 1);
+
+        wal.release(appended.subList(0, 5));
+        assertEquals(1, wal.segmentCount());
+        wal.release(appended.subList(5, 6));
+        wal.close();
+
+        assertEquals(0, files());
+        IngestWriteAheadLog restarted = wal(DataSize.ofBytes(200));
+        assertTrue(replay(restarted).isEmpty());
+    }
+
+    @Test
+    void replay_shouldIgnoreTornTailAndContinueAfterIt() throws IOException {
+        IngestWriteAheadLog wal = wal(DataSize.ofMegabytes(1));
+        replay(wal);
+        wal.append(reading("PAC001", 80, Instant.EPOCH));
+        wal.append(reading("PAC001", 81, Instant.EPOCH.plusSeconds(1)));
+        Path segment;
+        try (Stream<Path> list = Files.list(dir)) {
+            segment = list.findFirst().orElseThrow();
+        }
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 3);
+        }
+
+        IngestWriteAheadLog restarted = wal(DataSize.ofMegabytes(1));
+        List<PendingReading> replayed = replay(restarted);
+
+        assertEquals(1, replayed.size());
+        assertEquals(80, replayed.get(0).record().getHeartRate());
+        assertEquals(2, restarted.append(reading("PAC001", 82, Instant.EPOCH.plusSeconds(2))).lsn());
+        restarted.release(replayed);
+        assertEquals(1, restarted.segmentCount());
+    }
+}
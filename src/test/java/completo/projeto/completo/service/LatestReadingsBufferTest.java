@@ -0,0 +1,126 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.dto.VitalSignRecordDTO;
+import completo.projeto.completo.entities.VitalSignRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatestReadingsBufferTest {
+
+    private static final Instant BASE = Instant.parse("2025-08-09T12:00:00Z");
+
+    private LatestReadingsBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new LatestReadingsBuffer(100, Duration.ofMinutes(10));
+    }
+
+    private VitalSignRecord record(int heartRate, int secondsOffset) {
+        VitalSignRecord r = new VitalSignRecord();
+        r.setId(UUID.randomUUID());
+        r.setPatientId("PAC001");
+        r.setHeartRate(heartRate);
+        r.setTimestamp(BASE.plusSeconds(secondsOffset));
+        return r;
+    }
+
+    private VitalSignRecordDTO toDto(VitalSignRecord r) {
+        return new VitalSignRecordDTO(r.getPatientId(), null, null, r.getHeartRate(),
+                null, null, null, null, null, null, r.getTimestamp().toString());
+    }
+
+    @Test
+    void latest_shouldBeEmptyUntilSeeded() {
+        VitalSignRecord r = record(80, 0);
+        assertTrue(buffer.latest("PAC001").isEmpty());
+
+        buffer.seed("PAC001", List.of(r), this::toDto);
+
+        assertEquals(80, buffer.latest("PAC001").orElseThrow().get(0).heartRate());
+    }
+
+    @Test
+    void seed_shouldNotTrackPatientsWithoutReadings() {
+        for (int i = 0; i < 1_000; i++) {
+            buffer.latest("NAO_EXISTE_" + i);
+            buffer.seed("NAO_EXISTE_" + i, List.of(), this::toDto);
+        }
+
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.latest("NAO_EXISTE_0").isEmpty());
+    }
+
+    @Test
+    void seed_shouldEvictLeastRecentlyReadPatientsInBatchesWhenFull() {
+        buffer = new LatestReadingsBuffer(10, Duration.ofMinutes(10));
+        for (int i = 0; i < 10; i++) {
+            buffer.latest("P" + i);
+            buffer.seed("P" + i, List.of(record(60 + i, i)), this::toDto);
+        }
+        // P0 consultado de novo: é o mais recente e não sai
+        assertTrue(buffer.latest("P0").isPresent());
+
+        buffer.latest("P10");
+        buffer.seed("P10", List.of(record(70, 10)), this::toDto);
+
+        assertEquals(9, buffer.size());
+        assertTrue(buffer.latest("P0").isPresent());
+        assertTrue(buffer.latest("P10").isPresent());
+        assertTrue(buffer.latest("P1").isEmpty());
+        assertTrue(buffer.latest("P2").isEmpty());
+    }
+
+    @Test
+    void append_shouldIgnorePatientsNobodyIsWatching() {
+        VitalSignRecord r = record(80, 0);
+        buffer.append(r, toDto(r));
+
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void seed_shouldMergeWritesMadeWhileLoadingWithoutDuplicates() {
+        buffer.latest("PAC001");
+
+        VitalSignRecord older = record(70, 0);
+        VitalSignRecord concurrent = record(90, 5);
+        buffer.append(concurrent, toDto(concurrent));
+
+        buffer.seed("PAC001", List.of(concurrent, older), this::toDto);
+
+        List<VitalSignRecordDTO> out = buffer.latest("PAC001").orElseThrow();
+        assertEquals(2, out.size());
+        assertEquals(90, out.get(0).heartRate());
+        assertEquals(70, out.get(1).heartRate());
+    }
+
+    @Test
+    void append_shouldKeepOnlyTheMostRecentReadingsOrderedByTimestamp() {
+        buffer.latest("PAC001");
+        buffer.seed("PAC001", List.of(record(50, -1)), this::toDto);
+
+        List<VitalSignRecord> written = new ArrayList<>();
+        for (int i = 0; i < LatestReadingsBuffer.SIZE + 5; i++) {
+            VitalSignRecord r = record(60 + i, i);
+            written.add(r);
+        }
+        // fora de ordem para garantir que a ordenação é por timestamp
+        VitalSignRecord late = written.remove(3);
+        written.forEach(r -> buffer.append(r, toDto(r)));
+        buffer.append(late, toDto(late));
+
+        List<VitalSignRecordDTO> out = buffer.latest("PAC001").orElseThrow();
+        assertEquals(LatestReadingsBuffer.SIZE, out.size());
+        assertEquals(60 + LatestReadingsBuffer.SIZE + 4, out.get(0).heartRate());
+        assertEquals(65, out.get(LatestReadingsBuffer.SIZE - 1).heartRate());
+    }
+}
@@ -0,0 +1,76 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.dto.PatientDTO;
+import completo.projeto.completo.entities.Patient;
+import completo.projeto.completo.repository.PatientRepository;
+import completo.projeto.completo.security.CryptoUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({PatientService.class, CryptoUtil.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PatientServiceTest {
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private CryptoUtil cryptoUtil;
+
+    @Autowired
+    private PatientRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    private void persist(String patientId, String name, String cpf) {
+        repository.save(Patient.builder()
+                .patientId(patientId)
+                .name(name)
+                .encryptedCpf(cryptoUtil.encrypt(cpf))
+                .cpfHash(cryptoUtil.blindIndex(cpf))
+                .build());
+    }
+
+    @Test
+    void findByCpf_shouldMatchOnBlindIndexIgnoringFormatting() {
+        persist("PAC001", "João Silva", "12345678900");
+        persist("PAC002", "Maria Souza", "98765432100");
+
+        List<PatientDTO> found = patientService.findByCpf("123.456.789-00");
+
+        assertEquals(1, found.size());
+        assertEquals("PAC001", found.get(0).patientId());
+        assertEquals("João Silva", found.get(0).patientName());
+        assertTrue(patientService.findByCpf("11111111111").isEmpty());
+    }
+
+    @Test
+    void findByCpf_shouldUseIndex() {
+        String plan = jdbc.queryForObject(
+                "EXPLAIN SELECT * FROM patient WHERE cpf_hash = 'x'", String.class);
+        assertTrue(plan.contains("IDX_PATIENT_CPF_HASH"), plan);
+    }
+
+    @Test
+    void findByCpf_shouldRejectBlankCpf() {
+        assertThrows(ResponseStatusException.class, () -> patientService.findByCpf(" - "));
+    }
+}
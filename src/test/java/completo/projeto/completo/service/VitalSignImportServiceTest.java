@@ -0,0 +1,167 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.dto.VitalSignImportResultDTO;
+import completo.projeto.completo.entities.Patient;
+import completo.projeto.completo.entities.VitalSignRecord;
+import completo.projeto.completo.mapper.TimestampCodec;
+import completo.projeto.completo.repository.PatientRepository;
+import completo.projeto.completo.repository.VitalSignRecordRepository;
+import completo.projeto.completo.repository.VitalSignRollupRepository;
+import completo.projeto.completo.security.CryptoUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = "vital-signs.import.chunk-size=2")
+@Import({VitalSignImportService.class, CryptoUtil.class, PatientIdentityCache.class, LatestReadingsBuffer.class,
+        VitalSignRollupService.class, TimestampCodec.class, VitalSignMetrics.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VitalSignImportServiceTest {
+
+    private static final String HEADER =
+            "timestamp,paciente_id,paciente_nome,paciente_cpf,hr,spo2,pressao_sys,pressao_dia,temp,resp_freq,status\n";
+
+    @Autowired
+    private VitalSignImportService importService;
+
+    @SpyBean
+    private CryptoUtil cryptoUtil;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private VitalSignRecordRepository recordRepository;
+
+    @Autowired
+    private VitalSignRollupRepository rollupRepository;
+
+    @Autowired
+    private PatientIdentityCache identityCache;
+
+    @BeforeEach
+    void setUp() {
+        rollupRepository.deleteAll();
+        recordRepository.deleteAll();
+        patientRepository.deleteAll();
+        identityCache.invalidateAll();
+    }
+
+    @Test
+    void importCsv_shouldPersistInChunksAndEncryptCpfOncePerPatient() throws IOException {
+        VitalSignImportResultDTO result = importService.importCsv(csv(HEADER
+                + "20:31:32.81,PAC001,João Silva,123.456.789-09,79.0,95.8,150.0,96.0,36.7,15.53,NORMAL\n"
+                + "20:31:33.01,PAC001,João Silva,123.456.789-09,83.0,97.2,141.0,91.0,36.7,15.06,NORMAL\n"
+                + "\n"
+                + "09/08/2025 20:31:33.21,PAC001,João Silva,123.456.789-09,81.0,\"96,5\",,,36.8,,ALERTA\n"
+                + "2025-08-09T20:31:34Z,PAC002,Maria Souza,98765432100,70,98,120,80,36.5,14,NORMAL\n"), "2025-08-09");
+
+        assertEquals(4, result.rows());
+        assertEquals(4, result.imported());
+        assertEquals(0, result.rejected());
+        assertEquals(2, result.patients());
+        verify(cryptoUtil, times(2)).encrypt(anyString());
+
+        Patient p1 = patientRepository.findById("PAC001").orElseThrow();
+        assertEquals("João Silva", p1.getName());
+        assertEquals("12345678909", cryptoUtil.decrypt(p1.getEncryptedCpf()));
+        assertEquals(cryptoUtil.blindIndex("12345678909"), p1.getCpfHash());
+
+        List<VitalSignRecord> rows = recordRepository.findByPatientId("PAC001").stream()
+                .sorted(Comparator.comparing(VitalSignRecord::getTimestamp))
+                .toList();
+        assertEquals(3, rows.size());
+        assertEquals(Instant.parse("2025-08-09T20:31:32.810Z"), rows.get(0).getTimestamp());
+        assertEquals(79, rows.get(0).getHeartRate());
+        assertEquals(15.53, rows.get(0).getRespiratoryRate());
+        assertEquals(Instant.parse("2025-08-09T20:31:33.210Z"), rows.get(2).getTimestamp());
+        assertEquals(96.5, rows.get(2).getOxygenSaturation());
+        assertNull(rows.get(2).getSystolicPressure());
+        assertEquals("ALERTA", rows.get(2).getStatus());
+    }
+
+    @Test
+    void importCsv_shouldReportRejectedLinesAndReuseStoredIdentity() throws IOException {
+        importService.importCsv(csv(HEADER
+                + "2025-08-09 10:00:00,PAC001,João Silva,123.456.789-09,80,97,120,80,36.5,16,NORMAL\n"), null);
+
+        VitalSignImportResultDTO result = importService.importCsv(csv(HEADER
+                + "2025-08-09 10:00:01,PAC001,,,81,97,120,80,36.5,16,NORMAL\n"
+                + "2025-08-09 10:00:02,PAC001,João Silva,12345678909,abc,97,120,80,36.5,16,NORMAL\n"
+                + "2025-08-09 10:00:03,PAC003,,,80,97,120,80,36.5,16,NORMAL\n"
+                + "ontem,PAC001,,,80,97,120,80,36.5,16,NORMAL\n"
+                + "2025-08-09 10:00:04,PAC001,João Silva,12345678909,82,97,120,80,36.5,16,NORMAL\n"), null);
+
+        assertEquals(5, result.rows());
+        assertEquals(2, result.imported());
+        assertEquals(3, result.rejected());
+        assertEquals(1, result.patients());
+        assertEquals(List.of(3, 4, 5), result.errors().stream().map(e -> e.index()).toList());
+        assertTrue(result.errors().get(0).message().startsWith("hr inválido"));
+        assertEquals("PAC003", result.errors().get(1).patientId());
+        // mesmo CPF já gravado: sem nova criptografia
+        verify(cryptoUtil, times(1)).encrypt(anyString());
+        assertEquals(3, recordRepository.count());
+        assertEquals(1, patientRepository.count());
+    }
+
+    @Test
+    void importCsv_shouldRejectEmptyFileAndInvalidDate() {
+        assertThrows(ResponseStatusException.class, () -> importService.importCsv(csv(""), null));
+        assertThrows(ResponseStatusException.class, () -> importService.importCsv(csv(HEADER), "09/08/2025"));
+    }
+
+    @Test
+    void importCsv_shouldRejectFileWhoseHeaderDoesNotMatchTheExpectedColumns() throws IOException {
+        String row = "20:31:32.81,PAC001,João Silva,123.456.789-09,79.0,95.8,150.0,96.0,36.7,15.53,NORMAL\n";
+        // hr e spo2 trocados: os valores iriam para os campos errados
+        String swapped = HEADER.replace("hr,spo2", "spo2,hr");
+        String missing = HEADER.replace(",status", "");
+
+        for (String header : List.of(swapped, missing)) {
+            ResponseStatusException thrown = assertThrows(ResponseStatusException.class,
+                    () -> importService.importCsv(csv(header + row), "2025-08-09"));
+            assertEquals(HttpStatus.BAD_REQUEST, thrown.getStatusCode());
+            assertTrue(thrown.getReason().startsWith("cabeçalho do CSV inválido"));
+        }
+        assertEquals(0, recordRepository.count());
+
+        // BOM, espaços e maiúsculas não mudam as colunas
+        VitalSignImportResultDTO result = importService.importCsv(
+                csv("\uFEFF" + HEADER.toUpperCase().replace(",", " , ") + row), "2025-08-09");
+        assertEquals(1, result.imported());
+    }
+
+    @Test
+    void split_shouldHandleQuotesAndMissingFields() {
+        String[] out = new String[4];
+        VitalSignImportService.split(" a ,\"1,5\",,", out);
+        assertArrayEquals(new String[]{"a", "1,5", null, null}, out);
+        VitalSignImportService.split("x", out);
+        assertArrayEquals(new String[]{"x", null, null, null}, out);
+    }
+
+    private static ByteArrayInputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
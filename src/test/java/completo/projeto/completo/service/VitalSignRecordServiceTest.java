@@ -1,37 +1,45 @@
 package completo.projeto.completo.service;
 
-import completo.projeto.completo.VitalSignRecordController;
 import completo.projeto.completo.dto.VitalSignRecordDTO;
+import completo.projeto.completo.entities.Patient;
+import completo.projeto.completo.entities.TimeOrderedUuidGenerator;
 import completo.projeto.completo.entities.VitalSignRecord;
+import completo.projeto.completo.mapper.TimestampCodec;
+import completo.projeto.completo.repository.PatientRepository;
 import completo.projeto.completo.repository.VitalSignRecordRepository;
 import completo.projeto.completo.security.CryptoUtil;
-import completo.projeto.completo.security.JwtAuthenticationFilter;
 import completo.projeto.completo.websocket.VitalSignWebSocketService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
-import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
-import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
-@WebMvcTest(controllers = VitalSignRecordController.class)
-@AutoConfigureMockMvc(addFilters = false)
 class VitalSignRecordServiceTest {
 
     @Mock
     private VitalSignRecordRepository repository;
 
-    @MockBean
-    private JwtAuthenticationFilter JwtAuthenticationFilter;
+    @Mock
+    private PatientRepository patientRepository;
 
     @Mock
     private CryptoUtil cryptoUtil;
@@ -39,6 +47,29 @@ class VitalSignRecordServiceTest {
     @Mock
     private VitalSignWebSocketService webSocketService;
 
+    @Mock
+    private PatientIdentityCache identityCache;
+
+    @Mock
+    private LatestReadingsBuffer latestBuffer;
+
+    @Mock
+    private VitalSignRollupService rollupService;
+
+    @Mock
+    private WriteBehindIngestQueue writeBehind;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private TimestampCodec timestampCodec = new TimestampCodec(ZoneOffset.UTC);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private VitalSignMetrics metrics = new VitalSignMetrics(meterRegistry);
+
     @InjectMocks
     private VitalSignRecordService vitalSignRecordService;
 
@@ -67,6 +98,241 @@ class VitalSignRecordServiceTest {
         assertEquals("patientId é obrigatório", thrown.getReason());
     }
 
+    @Test
+    void createBatch_shouldLookupPatientOnceAndReportInvalidItems() {
+        VitalSignRecordDTO followUp = new VitalSignRecordDTO(
+                "patientId1", null, null, 75, 97.0, 118.0, 79.0, 36.6, 15.0, "NORMAL", LocalDateTime.now().toString()
+        );
+        VitalSignRecordDTO missingId = new VitalSignRecordDTO(
+                null, null, null, 80, 97.0, 118.0, 79.0, 36.6, 15.0, "NORMAL", null
+        );
+
+        ReflectionTestUtils.setField(vitalSignRecordService, "maxBatchSize", 10);
+        when(patientRepository.findById("patientId1")).thenReturn(Optional.empty());
+        when(cryptoUtil.encrypt("12345678901")).thenReturn("cpf-criptografado");
+        when(repository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        var result = vitalSignRecordService.createBatch(List.of(validDto, followUp, missingId));
+
+        assertEquals(3, result.received());
+        assertEquals(2, result.saved());
+        assertEquals(1, result.failed());
+        assertEquals(2, result.errors().get(0).index());
+        verify(patientRepository, times(1)).findById("patientId1");
+        verify(patientRepository, times(1)).save(any(Patient.class));
+        verify(webSocketService, times(2)).sendToDashboard(any());
+    }
+
+    @Test
+    void create_shouldInheritIdentityFromCacheWithoutQueryingPatients() {
+        VitalSignRecordDTO followUp = new VitalSignRecordDTO(
+                "patientId1", null, null, 75, 97.0, 118.0, 79.0, 36.6, 15.0, "NORMAL", LocalDateTime.now().toString()
+        );
+
+        when(identityCache.get("patientId1"))
+                .thenReturn(Optional.of(new PatientIdentityCache.PatientIdentity("John Doe", "cpf-criptografado", "cpf-hash")));
+        when(repository.save(any(VitalSignRecord.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        var saved = vitalSignRecordService.create(followUp);
+
+        assertEquals("John Doe", saved.patientName());
+        assertEquals("cpf-criptografado", saved.patientCpf());
+        verify(patientRepository, never()).findById(anyString());
+        verify(patientRepository, never()).save(any());
+    }
+
+    @Test
+    void create_shouldRecordStageTimersAndIngestedCounter() {
+        when(identityCache.get("patientId1"))
+                .thenReturn(Optional.of(new PatientIdentityCache.PatientIdentity("John Doe", "cpf-criptografado", "cpf-hash")));
+        when(cryptoUtil.blindIndex("12345678901")).thenReturn("cpf-hash");
+        when(repository.save(any(VitalSignRecord.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        vitalSignRecordService.create(validDto);
+        assertThrows(ResponseStatusException.class, () -> vitalSignRecordService.create(new VitalSignRecordDTO(
+                "", null, null, null, null, null, null, null, null, null, null)));
+        // consultas resolvem identidade sem entrar no timer da ingestão
+        vitalSignRecordService.getLatestByPatientId("patientId1");
+
+        for (String stage : List.of("total", "identity_lookup", "encryption", "db_save", "broadcast")) {
+            assertEquals(1, meterRegistry.get("vital_signs.create").tag("stage", stage).timer().count(), stage);
+        }
+        assertEquals(1.0, meterRegistry.get("vital_signs.ingested").tag("mode", "single").counter().count());
+        assertEquals(1.0, meterRegistry.get("vital_signs.rejected").counter().count());
+    }
+
+    @Test
+    void create_shouldSavePatientAndReadingInOneTransactionAndRetryOnConflict() {
+        when(patientRepository.findById("patientId1")).thenReturn(Optional.of(Patient.builder().patientId("patientId1").build()));
+        when(identityCache.get("patientId1"))
+                .thenReturn(Optional.of(new PatientIdentityCache.PatientIdentity("Old Name", "cpf-antigo", "hash-antigo")));
+        when(cryptoUtil.blindIndex("12345678901")).thenReturn("cpf-hash");
+        when(cryptoUtil.encrypt("12345678901")).thenReturn("cpf-criptografado");
+        when(patientRepository.save(any(Patient.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Patient.class, "patientId1"))
+                .thenAnswer(inv -> inv.getArgument(0));
+        when(repository.save(any(VitalSignRecord.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        var saved = vitalSignRecordService.create(validDto);
+
+        assertEquals("John Doe", saved.patientName());
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+        verify(repository, times(1)).save(any(VitalSignRecord.class));
+    }
+
+    @Test
+    void create_shouldRollBackPatientUpdateWhenReadingSaveFails() {
+        when(patientRepository.findById("patientId1")).thenReturn(Optional.empty());
+        when(cryptoUtil.encrypt("12345678901")).thenReturn("cpf-criptografado");
+        when(repository.save(any(VitalSignRecord.class))).thenThrow(new IllegalStateException("falha no insert"));
+
+        assertThrows(IllegalStateException.class, () -> vitalSignRecordService.create(validDto));
+
+        verify(patientRepository).save(any(Patient.class));
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(identityCache, never()).put(anyString(), any());
+    }
+
+    @Test
+    void create_shouldAnswer409WhenTheRetryConflictsAgain() {
+        when(patientRepository.findById("patientId1")).thenReturn(Optional.empty());
+        when(cryptoUtil.encrypt("12345678901")).thenReturn("cpf-criptografado");
+        when(patientRepository.save(any(Patient.class)))
+                .thenThrow(new DataIntegrityViolationException("cpf_hash duplicado"));
+
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class,
+                () -> vitalSignRecordService.create(validDto));
+
+        assertEquals(HttpStatus.CONFLICT, thrown.getStatusCode());
+        verify(patientRepository, times(2)).save(any(Patient.class));
+        verify(identityCache, never()).put(anyString(), any());
+    }
+
+    @Test
+    void createBatch_shouldRetryOnConflictAndAnswer409WhenItConflictsAgain() {
+        ReflectionTestUtils.setField(vitalSignRecordService, "maxBatchSize", 10);
+        when(patientRepository.findById("patientId1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(Patient.builder().patientId("patientId1").name("John Doe")
+                        .encryptedCpf("cpf-criptografado").cpfHash("cpf-hash").build()));
+        when(cryptoUtil.encrypt("12345678901")).thenReturn("cpf-criptografado");
+        when(cryptoUtil.blindIndex("12345678901")).thenReturn("cpf-hash");
+        when(patientRepository.save(any(Patient.class)))
+                .thenThrow(new DataIntegrityViolationException("patient_id duplicado"));
+        when(repository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        // o paciente que venceu a corrida tem a mesma identidade: o retry só grava as leituras
+        var result = vitalSignRecordService.createBatch(List.of(validDto));
+
+        assertEquals(1, result.saved());
+        verify(patientRepository, times(1)).save(any(Patient.class));
+        verify(repository, times(1)).saveAll(anyList());
+        verify(webSocketService, times(1)).sendToDashboard(any());
+
+        when(patientRepository.findById("patientId2")).thenReturn(Optional.empty());
+        VitalSignRecordDTO other = new VitalSignRecordDTO(
+                "patientId2", "Jane Doe", "12345678901", 72, 98.5, 120.0, 80.0, 36.5, 16.0, "NORMAL", null);
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class,
+                () -> vitalSignRecordService.createBatch(List.of(other)));
+        assertEquals(HttpStatus.CONFLICT, thrown.getStatusCode());
+        verify(webSocketService, times(1)).sendToDashboard(any());
+    }
+
+    @Test
+    void create_shouldInvalidateBufferedReadingsOnlyWhenIdentityChanges() {
+        when(identityCache.get("patientId1"))
+                .thenReturn(Optional.of(new PatientIdentityCache.PatientIdentity("Old Name", "cpf-criptografado", "cpf-hash")));
+        when(cryptoUtil.blindIndex("12345678901")).thenReturn("cpf-hash");
+        when(patientRepository.findById("patientId1")).thenReturn(Optional.of(Patient.builder().patientId("patientId1").build()));
+        when(repository.save(any(VitalSignRecord.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        vitalSignRecordService.create(validDto);
+
+        InOrder order = inOrder(latestBuffer);
+        order.verify(latestBuffer).invalidate("patientId1");
+        order.verify(latestBuffer).append(any(), any());
+
+        when(identityCache.get("patientId1"))
+                .thenReturn(Optional.of(new PatientIdentityCache.PatientIdentity("John Doe", "cpf-criptografado", "cpf-hash")));
+        vitalSignRecordService.create(validDto);
+
+        verify(latestBuffer, times(1)).invalidate("patientId1");
+        verify(latestBuffer, times(2)).append(any(), any());
+    }
+
+    @Test
+    void create_shouldNotReencryptOrRewritePatientWhenCpfIsUnchanged() {
+        when(identityCache.get("patientId1"))
+                .thenReturn(Optional.of(new PatientIdentityCache.PatientIdentity("John Doe", "cpf-criptografado", "cpf-hash")));
+        when(cryptoUtil.blindIndex("12345678901")).thenReturn("cpf-hash");
+        when(repository.save(any(VitalSignRecord.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        var saved = vitalSignRecordService.create(validDto);
+
+        assertEquals("cpf-criptografado", saved.patientCpf());
+        verify(cryptoUtil, never()).encrypt(anyString());
+        verify(patientRepository, never()).save(any());
+    }
+
+    @Test
+    void create_shouldOnlyEnqueueInWriteBehindModeAndInheritQueuedIdentity() {
+        VitalSignRecordDTO followUp = new VitalSignRecordDTO(
+                "patientId1", null, null, 75, 97.0, 118.0, 79.0, 36.6, 15.0, "NORMAL", LocalDateTime.now().toString()
+        );
+
+        when(writeBehind.isEnabled()).thenReturn(true);
+        when(writeBehind.pendingIdentity("patientId1"))
+                .thenReturn(Optional.of(new PatientIdentityCache.PatientIdentity("John Doe", "cpf-criptografado", "cpf-hash")));
+
+        var accepted = vitalSignRecordService.create(followUp);
+
+        assertEquals("John Doe", accepted.patientName());
+        ArgumentCaptor<WriteBehindIngestQueue.PendingReading> queued =
+                ArgumentCaptor.forClass(WriteBehindIngestQueue.PendingReading.class);
+        verify(writeBehind).offer(queued.capture());
+        assertEquals(75, queued.getValue().record().getHeartRate());
+        // o 202 já traz o id com que a leitura será gravada
+        assertNotNull(accepted.id());
+        assertEquals(queued.getValue().record().getId(), accepted.id());
+        assertTrue(queued.getValue().before().isPresent());
+        verify(identityCache, never()).get(anyString());
+        verify(repository, never()).save(any());
+        verify(webSocketService, never()).sendToDashboard(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replay_shouldSkipReadingsAlreadyStoredByIdAndKeepSameInstantReadings() {
+        ArgumentCaptor<Consumer<List<WriteBehindIngestQueue.PendingReading>>> replayer = ArgumentCaptor.forClass(Consumer.class);
+        vitalSignRecordService.startWriteBehind();
+        verify(writeBehind).start(any(), replayer.capture());
+
+        PatientIdentityCache.PatientIdentity identity =
+                new PatientIdentityCache.PatientIdentity("John Doe", "cpf-criptografado", "cpf-hash");
+        Instant ts = Instant.parse("2025-08-09T12:00:00Z");
+        List<WriteBehindIngestQueue.PendingReading> group = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            VitalSignRecord r = new VitalSignRecord();
+            r.setId(TimeOrderedUuidGenerator.next());
+            r.setPatientId("patientId1");
+            r.setHeartRate(70 + i);
+            r.setTimestamp(ts);
+            group.add(new WriteBehindIngestQueue.PendingReading(r, identity, Optional.empty(), System.nanoTime(), i + 1));
+        }
+        when(repository.findExistingIds(anyList())).thenReturn(Set.of(group.get(0).record().getId()));
+        when(patientRepository.findById("patientId1")).thenReturn(Optional.empty());
+        when(repository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        replayer.getValue().accept(group);
+
+        ArgumentCaptor<List<VitalSignRecord>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(saved.capture());
+        assertEquals(List.of(71, 72), saved.getValue().stream().map(VitalSignRecord::getHeartRate).toList());
+        verify(repository, times(1)).findExistingIds(anyList());
+    }
 
     @Test
     void getLatestByPatientId_shouldReturnLatestRecords() {
@@ -79,7 +345,7 @@ class VitalSignRecordServiceTest {
         record.setTemperature(validDto.temperature());
         record.setRespiratoryRate(validDto.respiratoryRate());
         record.setStatus(validDto.status());
-        record.setTimestamp(LocalDateTime.now());
+        record.setTimestamp(Instant.now());
 
         when(repository.findTop10ByPatientIdOrderByTimestampDesc(validDto.patientId())).thenReturn(List.of(record));
 
@@ -89,6 +355,16 @@ class VitalSignRecordServiceTest {
         assertEquals(validDto.patientId(), records.get(0).patientId());
     }
 
+    @Test
+    void getLatestByPatientId_shouldServeFromBufferWithoutQueryingRepository() {
+        when(latestBuffer.latest("patientId1")).thenReturn(Optional.of(List.of(validDto)));
+
+        var records = vitalSignRecordService.getLatestByPatientId("patientId1");
+
+        assertEquals(List.of(validDto), records);
+        verify(repository, never()).findTop10ByPatientIdOrderByTimestampDesc(anyString());
+    }
+
     @Test
     void resolveTimestamp_shouldThrowExceptionForInvalidTimestamp() {
         String invalidTimestamp = "invalid-timestamp";
@@ -101,15 +377,21 @@ class VitalSignRecordServiceTest {
         assertEquals("timestamp em formato inválido (use ISO-8601)", thrown.getReason());
     }
 
+    @Test
+    void getRangeByPatientId_shouldRejectFromAfterTo() {
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class, () ->
+                vitalSignRecordService.getRangeByPatientId("patientId1", "2025-08-10T00:00:00", "2025-08-09T00:00:00", 10));
+
+        assertEquals(HttpStatus.BAD_REQUEST, thrown.getStatusCode());
+        verifyNoInteractions(repository);
+    }
+
     @Test
     void validateFirstRecordRequireds_shouldThrowExceptionIfPatientNameIsMissingOnFirstRecord() {
-        VitalSignRecord entity = new VitalSignRecord();
-        entity.setPatientId(validDto.patientId());
-        entity.setPatientName("");
-        entity.setPatientCpf(validDto.patientCpf());
+        var identity = new PatientIdentityCache.PatientIdentity("", "cpf-criptografado", "cpf-hash");
 
         ResponseStatusException thrown = assertThrows(ResponseStatusException.class, () -> {
-            vitalSignRecordService.validateFirstRecordRequireds(entity, true);
+            vitalSignRecordService.validateFirstRecordRequireds(validDto.patientId(), identity, true);
         });
 
         assertEquals(HttpStatus.BAD_REQUEST, thrown.getStatusCode());
@@ -0,0 +1,119 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.entities.RollupResolution;
+import completo.projeto.completo.entities.VitalSignMetric;
+import completo.projeto.completo.entities.VitalSignRecord;
+import completo.projeto.completo.entities.VitalSignRollup;
+import completo.projeto.completo.repository.VitalSignRecordRepository;
+import completo.projeto.completo.repository.VitalSignRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "vital-signs.retention.enabled=true",
+        "vital-signs.retention.raw-ttl=30d",
+        "vital-signs.retention.minute-rollup-ttl=90d",
+        "vital-signs.retention.hour-rollup-ttl=0",
+        "vital-signs.retention.batch-size=2"
+})
+@Import({VitalSignRetentionService.class, VitalSignRollupService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VitalSignRetentionServiceTest {
+
+    private static final Instant NOW = Instant.parse("2025-08-09T12:00:00Z");
+
+    @Autowired
+    private VitalSignRetentionService retention;
+
+    @Autowired
+    private VitalSignRollupService rollupService;
+
+    @Autowired
+    private VitalSignRecordRepository recordRepository;
+
+    @Autowired
+    private VitalSignRollupRepository rollupRepository;
+
+    @BeforeEach
+    void setUp() {
+        rollupRepository.deleteAll();
+        recordRepository.deleteAll();
+    }
+
+    private void reading(Duration age) {
+        VitalSignRecord r = new VitalSignRecord();
+        r.setPatientId("PAC001");
+        r.setHeartRate(80);
+        r.setTimestamp(NOW.minus(age));
+        recordRepository.save(r);
+    }
+
+    private void rollup(RollupResolution resolution, Duration age) {
+        rollupRepository.save(VitalSignRollup.builder()
+                .patientId("PAC001")
+                .resolution(resolution)
+                .metric(VitalSignMetric.heartRate)
+                .bucketStart(resolution.floor(NOW.minus(age)))
+                .minValue(80).maxValue(80).sumValue(80).sampleCount(1)
+                .build());
+    }
+
+    @Test
+    void purge_shouldDeleteExpiredRowsInBatchesAndKeepHourRollups() {
+        for (int i = 0; i < 5; i++) reading(Duration.ofDays(31).plusMinutes(i));
+        reading(Duration.ofDays(29));
+        reading(Duration.ofMinutes(1));
+        rollup(RollupResolution.MINUTE, Duration.ofDays(91));
+        rollup(RollupResolution.MINUTE, Duration.ofDays(89));
+        rollup(RollupResolution.HOUR, Duration.ofDays(400));
+
+        long purged = retention.purge(NOW);
+
+        assertEquals(6, purged);
+        assertEquals(5, retention.purgedRaw());
+        assertEquals(1, retention.purgedRollups());
+        List<Instant> left = recordRepository.findAll().stream()
+                .map(VitalSignRecord::getTimestamp)
+                .sorted(Comparator.reverseOrder())
+                .toList();
+        assertEquals(List.of(NOW.minus(Duration.ofMinutes(1)), NOW.minus(Duration.ofDays(29))), left);
+        assertEquals(2, rollupRepository.count());
+        assertEquals(0, retention.purge(NOW));
+    }
+
+    @Test
+    void rollupRebuild_shouldRejectWindowOlderThanRawRetention() {
+        Instant now = Instant.now();
+        assertThrows(ResponseStatusException.class,
+                () -> rollupService.rebuild(null, now.minus(Duration.ofDays(31)), now.minus(Duration.ofDays(30))));
+        assertThrows(ResponseStatusException.class,
+                () -> rollupService.check(null, now.minus(Duration.ofDays(40)), now));
+        assertEquals(0, rollupService.rebuild(null, now.minus(Duration.ofDays(1)), now.minus(Duration.ofHours(23))).rawRows());
+    }
+
+    @Test
+    void resolutionFor_shouldRejectBucketsWhoseSourceWasPurged() {
+        Instant now = Instant.now();
+        Instant old = now.minus(Duration.ofDays(100));
+
+        assertEquals(RollupResolution.HOUR, rollupService.resolutionFor(Duration.ofHours(1), old));
+        assertEquals(RollupResolution.MINUTE, rollupService.resolutionFor(Duration.ofMinutes(5), now.minus(Duration.ofDays(60))));
+        assertThrows(ResponseStatusException.class, () -> rollupService.resolutionFor(Duration.ofMinutes(5), old));
+        assertNull(rollupService.resolutionFor(Duration.ofSeconds(30), now.minus(Duration.ofDays(1))));
+        assertThrows(ResponseStatusException.class,
+                () -> rollupService.resolutionFor(Duration.ofSeconds(30), now.minus(Duration.ofDays(31))));
+    }
+}
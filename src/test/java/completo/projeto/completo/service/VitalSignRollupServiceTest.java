@@ -0,0 +1,174 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.entities.RollupResolution;
+import completo.projeto.completo.entities.VitalSignMetric;
+import completo.projeto.completo.entities.VitalSignRecord;
+import completo.projeto.completo.entities.VitalSignRollup;
+import completo.projeto.completo.repository.VitalSignRecordRepository;
+import completo.projeto.completo.repository.VitalSignRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(VitalSignRollupService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VitalSignRollupServiceTest {
+
+    private static final Instant BASE = Instant.parse("2025-08-09T12:00:00Z");
+
+    @Autowired
+    private VitalSignRollupService rollupService;
+
+    @Autowired
+    private VitalSignRecordRepository recordRepository;
+
+    @Autowired
+    private VitalSignRollupRepository rollupRepository;
+
+    @BeforeEach
+    void setUp() {
+        rollupService.flush();
+        rollupRepository.deleteAll();
+        recordRepository.deleteAll();
+    }
+
+    private VitalSignRecord persist(int heartRate, Instant ts) {
+        return persist("PAC001", heartRate, ts);
+    }
+
+    private VitalSignRecord persist(String patientId, int heartRate, Instant ts) {
+        VitalSignRecord r = new VitalSignRecord();
+        r.setPatientId(patientId);
+        r.setHeartRate(heartRate);
+        r.setTimestamp(ts);
+        VitalSignRecord saved = recordRepository.save(r);
+        rollupService.record(saved);
+        return saved;
+    }
+
+    private VitalSignRollup rollup(RollupResolution resolution, Instant bucket) {
+        return rollupRepository.findByResolutionAndBucketStartIn(resolution, List.of(bucket)).stream()
+                .filter(r -> r.getMetric() == VitalSignMetric.heartRate)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    void flush_shouldMergeDeltasIntoExistingRowsIncrementally() {
+        persist(60, BASE.plusSeconds(5));
+        persist(80, BASE.plusSeconds(30));
+        rollupService.flush();
+
+        persist(100, BASE.plusSeconds(50));
+        rollupService.flush();
+
+        VitalSignRollup minute = rollup(RollupResolution.MINUTE, BASE);
+        assertEquals(3, minute.getSampleCount());
+        assertEquals(60.0, minute.getMinValue());
+        assertEquals(100.0, minute.getMaxValue());
+        assertEquals(240.0, minute.getSumValue());
+        assertEquals(3, rollup(RollupResolution.HOUR, BASE).getSampleCount());
+        assertEquals(0, rollupService.pendingSize());
+    }
+
+    @Test
+    void check_shouldReportMismatchAndRebuildShouldFixIt() {
+        persist(60, BASE.plus(Duration.ofMinutes(1)));
+        persist(70, BASE.plus(Duration.ofMinutes(2)));
+        rollupService.flush();
+
+        // leitura gravada sem passar pelo pipeline de rollup (ex.: carga antiga)
+        VitalSignRecord missing = new VitalSignRecord();
+        missing.setPatientId("PAC001");
+        missing.setHeartRate(90);
+        missing.setTimestamp(BASE.plus(Duration.ofMinutes(2)));
+        recordRepository.save(missing);
+
+        var before = rollupService.check("PAC001", BASE, BASE.plus(Duration.ofHours(1)));
+        assertEquals(2, before.mismatches());
+
+        var rebuilt = rollupService.rebuild("PAC001", BASE, BASE.plus(Duration.ofHours(1)));
+        assertEquals(3, rebuilt.rawRows());
+
+        var after = rollupService.check("PAC001", BASE, BASE.plus(Duration.ofHours(1)));
+        assertEquals(0, after.mismatches());
+        assertEquals(3, rollup(RollupResolution.HOUR, BASE).getSampleCount());
+    }
+
+    @Test
+    void feed_shouldCombineMinuteRollupsIntoLargerBuckets() {
+        persist(60, BASE.plus(Duration.ofMinutes(1)));
+        persist(90, BASE.plus(Duration.ofMinutes(7)));
+        persist(75, BASE.plus(Duration.ofMinutes(12)));
+        rollupService.flush();
+
+        var aggregator = new VitalSignSeriesAggregator(Duration.ofMinutes(10), List.of(VitalSignMetric.heartRate));
+        rollupService.feed(aggregator, "PAC001", RollupResolution.MINUTE, BASE, BASE.plus(Duration.ofMinutes(20)),
+                List.of(VitalSignMetric.heartRate));
+        var buckets = aggregator.finish();
+
+        assertEquals(2, buckets.size());
+        assertEquals(2, buckets.get(0).metrics().get("heartRate").count());
+        assertEquals(75.0, buckets.get(0).metrics().get("heartRate").avg());
+        assertEquals(1, buckets.get(1).metrics().get("heartRate").count());
+    }
+
+    @Test
+    void feed_shouldIncludeDeltasNotYetFlushed() {
+        persist(60, BASE.plus(Duration.ofMinutes(1)));
+        rollupService.flush();
+        persist(80, BASE.plus(Duration.ofMinutes(1)).plusSeconds(30));
+        persist(100, BASE.plus(Duration.ofMinutes(2)));
+        persist(70, BASE.plus(Duration.ofHours(2)));
+
+        var aggregator = new VitalSignSeriesAggregator(Duration.ofMinutes(1), List.of(VitalSignMetric.heartRate));
+        rollupService.feed(aggregator, "PAC001", RollupResolution.MINUTE, BASE, BASE.plus(Duration.ofMinutes(5)),
+                List.of(VitalSignMetric.heartRate));
+        var buckets = aggregator.finish();
+
+        assertEquals(2, buckets.size());
+        var first = buckets.get(0).metrics().get("heartRate");
+        assertEquals(2, first.count());
+        assertEquals(60.0, first.min());
+        assertEquals(80.0, first.max());
+        assertEquals(1, buckets.get(1).metrics().get("heartRate").count());
+        assertTrue(rollupService.pendingSize() > 0);
+    }
+
+    @Test
+    void feedAndFlush_shouldKeepPatientsSeparate() {
+        persist("PAC001", 60, BASE.plusSeconds(10));
+        persist("PAC002", 100, BASE.plusSeconds(20));
+        rollupService.flush();
+        persist("PAC001", 80, BASE.plusSeconds(30));
+        persist("PAC002", 120, BASE.plusSeconds(40));
+
+        var aggregator = new VitalSignSeriesAggregator(Duration.ofMinutes(1), List.of(VitalSignMetric.heartRate));
+        rollupService.feed(aggregator, "PAC001", RollupResolution.MINUTE, BASE, BASE.plus(Duration.ofMinutes(1)),
+                List.of(VitalSignMetric.heartRate));
+        var first = aggregator.finish().get(0).metrics().get("heartRate");
+        assertEquals(2, first.count());
+        assertEquals(80.0, first.max());
+
+        rollupService.flush();
+        List<VitalSignRollup> minutes = rollupRepository.findByResolutionAndBucketStartInAndPatientIdIn(
+                RollupResolution.MINUTE, List.of(BASE), List.of("PAC002")).stream()
+                .filter(r -> r.getMetric() == VitalSignMetric.heartRate)
+                .toList();
+        assertEquals(1, minutes.size());
+        assertEquals(2, minutes.get(0).getSampleCount());
+        assertEquals(220.0, minutes.get(0).getSumValue());
+        assertEquals(0, rollupService.pendingSize());
+    }
+}
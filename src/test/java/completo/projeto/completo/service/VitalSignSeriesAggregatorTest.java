@@ -0,0 +1,51 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.dto.VitalSignBucketDTO;
+import completo.projeto.completo.dto.VitalSignStatsDTO;
+import completo.projeto.completo.entities.VitalSignMetric;
+import completo.projeto.completo.entities.VitalSignRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VitalSignSeriesAggregatorTest {
+
+    private static VitalSignRecord reading(String ts, Integer heartRate, Double spo2) {
+        VitalSignRecord r = new VitalSignRecord();
+        r.setPatientId("PAC001");
+        r.setTimestamp(Instant.parse(ts + "Z"));
+        r.setHeartRate(heartRate);
+        r.setOxygenSaturation(spo2);
+        return r;
+    }
+
+    @Test
+    void finish_shouldComputeStatsPerBucketAndSkipNullValues() {
+        var aggregator = new VitalSignSeriesAggregator(Duration.ofMinutes(1),
+                List.of(VitalSignMetric.heartRate, VitalSignMetric.oxygenSaturation));
+
+        aggregator.accept(reading("2025-08-09T12:00:05", 60, 95.0));
+        aggregator.accept(reading("2025-08-09T12:00:40", 80, null));
+        aggregator.accept(reading("2025-08-09T12:03:10", 100, 97.0));
+
+        List<VitalSignBucketDTO> buckets = aggregator.finish();
+
+        assertEquals(2, buckets.size());
+        assertEquals("2025-08-09T12:00:00.000Z", buckets.get(0).start());
+        assertEquals(new VitalSignStatsDTO(60.0, 80.0, 70.0, 2), buckets.get(0).metrics().get("heartRate"));
+        assertEquals(new VitalSignStatsDTO(95.0, 95.0, 95.0, 1), buckets.get(0).metrics().get("oxygenSaturation"));
+        assertEquals("2025-08-09T12:03:00.000Z", buckets.get(1).start());
+        assertEquals(1, buckets.get(1).metrics().get("heartRate").count());
+    }
+
+    @Test
+    void finish_shouldReturnNoBucketsWithoutReadings() {
+        var aggregator = new VitalSignSeriesAggregator(Duration.ofHours(1), List.of(VitalSignMetric.heartRate));
+
+        assertTrue(aggregator.finish().isEmpty());
+    }
+}
@@ -0,0 +1,155 @@
+package completo.projeto.completo.service;
+
+import completo.projeto.completo.entities.VitalSignRecord;
+import completo.projeto.completo.service.PatientIdentityCache.PatientIdentity;
+import completo.projeto.completo.service.WriteBehindIngestQueue.PendingReading;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class WriteBehindIngestQueueTest {
+
+    private static final PatientIdentity IDENTITY = new PatientIdentity("John Doe", "cpf-criptografado", "cpf-hash");
+
+    private final List<List<String>> groups = new CopyOnWriteArrayList<>();
+    private WriteBehindIngestQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) queue.shutdown();
+    }
+
+    private WriteBehindIngestQueue queue(int capacity, int flushSize, Duration flushInterval) {
+        queue = new WriteBehindIngestQueue(mock(PlatformTransactionManager.class), mock(IngestWriteAheadLog.class),
+                "write-behind", capacity, flushSize, flushInterval, Duration.ofSeconds(5), false);
+        return queue;
+    }
+
+    private static PendingReading reading(String patientId) {
+        VitalSignRecord r = new VitalSignRecord();
+        r.setPatientId(patientId);
+        return new PendingReading(r, IDENTITY, Optional.empty(), System.nanoTime());
+    }
+
+    private static List<String> ids(List<PendingReading> group) {
+        return group.stream().map(p -> p.record().getPatientId()).toList();
+    }
+
+    @Test
+    void offer_shouldRejectWith429WhenFullAndFlushEverythingOnShutdown() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        WriteBehindIngestQueue q = queue(2, 1, Duration.ZERO);
+        q.start(group -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            groups.add(ids(group));
+        }, group -> {});
+
+        q.offer(reading("P1"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        q.offer(reading("P2"));
+        assertEquals(Optional.of(IDENTITY), q.pendingIdentity("P2"));
+
+        // P1 saiu da fila mas ainda está em commit: continua ocupando a vaga
+        assertEquals(1, q.queueDepth());
+        ResponseStatusException full = assertThrows(ResponseStatusException.class, () -> q.offer(reading("P3")));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, full.getStatusCode());
+        assertEquals(1, q.throttled());
+
+        release.countDown();
+        q.shutdown();
+
+        assertEquals(List.of("P1", "P2"), groups.stream().flatMap(List::stream).toList());
+        assertEquals(2, q.written());
+        assertEquals(0, q.queueDepth());
+        assertTrue(q.pendingIdentity("P2").isEmpty());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+                assertThrows(ResponseStatusException.class, () -> q.offer(reading("P4"))).getStatusCode());
+    }
+
+    @Test
+    void flush_shouldGroupReadingsAndRetryEachWhenTheGroupFails() {
+        WriteBehindIngestQueue q = queue(100, 10, Duration.ofSeconds(1));
+        q.start(group -> {
+            if (ids(group).contains("BAD")) throw new IllegalStateException("violação de constraint");
+            groups.add(ids(group));
+        }, group -> {});
+        // flush-interval de 1s: as três leituras entram no mesmo grupo
+        for (String id : List.of("P1", "BAD", "P2")) q.offer(reading(id));
+        q.shutdown();
+
+        assertEquals(List.of(List.of("P1"), List.of("P2")), groups);
+        assertEquals(2, q.written());
+        assertEquals(1, q.failed());
+        assertTrue(q.pendingIdentity("BAD").isEmpty());
+    }
+
+    @Test
+    void offer_shouldWriteEveryAcceptedReadingWhenRacingShutdown() throws InterruptedException {
+        for (int round = 0; round < 10; round++) {
+            List<String> accepted = new CopyOnWriteArrayList<>();
+            List<String> written = new CopyOnWriteArrayList<>();
+            WriteBehindIngestQueue q = queue(10_000, 50, Duration.ZERO);
+            q.start(group -> written.addAll(ids(group)), group -> {});
+            CountDownLatch go = new CountDownLatch(1);
+            List<Thread> producers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                String prefix = round + "-" + t + "-";
+                producers.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; ; i++) {
+                        String id = prefix + i;
+                        try {
+                            q.offer(reading(id));
+                            accepted.add(id);
+                        } catch (ResponseStatusException e) {
+                            return;
+                        }
+                    }
+                }));
+            }
+            go.countDown();
+            Thread.sleep(2);
+            q.shutdown();
+            for (Thread producer : producers) producer.join(5_000);
+
+            assertEquals(Set.copyOf(accepted), Set.copyOf(written), "rodada " + round);
+        }
+    }
+
+    @Test
+    void start_shouldBeNoOpInSyncMode() {
+        queue = new WriteBehindIngestQueue(mock(PlatformTransactionManager.class), mock(IngestWriteAheadLog.class),
+                "sync", 10, 10, Duration.ZERO, Duration.ofSeconds(1), false);
+        queue.start(group -> groups.add(ids(group)), group -> {});
+
+        assertFalse(queue.isEnabled());
+        assertThrows(ResponseStatusException.class, () -> queue.offer(reading("P1")));
+        assertThrows(IllegalArgumentException.class, () -> new WriteBehindIngestQueue(
+                mock(PlatformTransactionManager.class), mock(IngestWriteAheadLog.class),
+                "async", 10, 10, Duration.ZERO, Duration.ZERO, false));
+    }
+}
@@ -0,0 +1,94 @@
+package completo.projeto.completo.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BroadcastDispatcherTest {
+
+    private final SimpMessageSendingOperations template = mock(SimpMessageSendingOperations.class);
+    private BroadcastDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    /** Segura o publicador no primeiro envio até {@code release} ser liberado. */
+    private CountDownLatch blockFirstSend(CountDownLatch sending) {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).doNothing().when(template).convertAndSend(any(String.class), any(Object.class));
+        return release;
+    }
+
+    @Test
+    void submit_shouldNotWaitForSlowBrokerAndCoalesceDashboardFrames() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = blockFirstSend(sending);
+        dispatcher = new BroadcastDispatcher(template, 100, 1, false);
+
+        dispatcher.submit("PAC001", "/topic/patient/PAC001", "first", null);
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            dispatcher.submit("PAC001", "/topic/dashboard", "dash-" + i, "dashboard:PAC001");
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(49, dispatcher.coalesced());
+
+        release.countDown();
+        verify(template, timeout(2000)).convertAndSend("/topic/dashboard", (Object) "dash-49");
+        verify(template, never()).convertAndSend("/topic/dashboard", (Object) "dash-0");
+        assertEquals(2, dispatcher.sent());
+    }
+
+    @Test
+    void submit_shouldDropOldestPatientFramesWhenQueueIsFull() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = blockFirstSend(sending);
+        dispatcher = new BroadcastDispatcher(template, 2, 1, false);
+
+        dispatcher.submit("PAC001", "/topic/patient/PAC001", "r0", null);
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 4; i++) {
+            dispatcher.submit("PAC001", "/topic/patient/PAC001", "r" + i, null);
+        }
+        assertEquals(2, dispatcher.dropped());
+        assertEquals(2, dispatcher.queueDepth());
+
+        release.countDown();
+        verify(template, timeout(2000)).convertAndSend("/topic/patient/PAC001", (Object) "r4");
+        verify(template, never()).convertAndSend(eq("/topic/patient/PAC001"), eq((Object) "r1"));
+    }
+
+    @Test
+    void publisherThreads_shouldBeVirtualWhenEnabled() throws Exception {
+        CountDownLatch sent = new CountDownLatch(1);
+        AtomicBoolean virtual = new AtomicBoolean();
+        doAnswer(inv -> {
+            virtual.set(Thread.currentThread().isVirtual());
+            sent.countDown();
+            return null;
+        }).when(template).convertAndSend(any(String.class), any(Object.class));
+        dispatcher = new BroadcastDispatcher(template, 10, 1, true);
+
+        dispatcher.submit("PAC001", "/topic/patient/PAC001", "r0", null);
+
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+        assertTrue(virtual.get());
+    }
+}
@@ -0,0 +1,101 @@
+package completo.projeto.completo.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import completo.projeto.completo.dto.VitalSignCompactFrameDTO;
+import completo.projeto.completo.dto.VitalSignRecordDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactFrameEncoderTest {
+
+    private static final String CPF_BLOB = "q1w2e3r4t5y6u7i8o9p0a1s2d3f4g5h6j7k8l9z0x1c2v3b4n5m6==";
+
+    private static VitalSignRecordDTO reading(int heartRate, double spo2, String ts) {
+        return new VitalSignRecordDTO("PAC001", "João Silva", CPF_BLOB, heartRate, spo2,
+                120.0, 80.0, 36.7, 16.0, "NORMAL", ts, Instant.parse(ts + "Z").toEpochMilli());
+    }
+
+    @Test
+    void encode_shouldSendIdentityOnceThenOnlyChangedVitals() {
+        CompactFrameEncoder encoder = new CompactFrameEncoder(50);
+        List<VitalSignCompactFrameDTO> frames = new ArrayList<>();
+
+        encoder.encode(reading(72, 98.0, "2025-08-09T12:00:00"), frames::add);
+        encoder.encode(reading(75, 98.0, "2025-08-09T12:00:01"), frames::add);
+
+        VitalSignCompactFrameDTO key = frames.get(0);
+        assertEquals(1, key.k());
+        assertEquals("João Silva", key.n());
+        assertEquals(1754740800000L, key.t());
+
+        VitalSignCompactFrameDTO delta = frames.get(1);
+        assertNull(delta.k());
+        assertNull(delta.n());
+        assertNull(delta.c());
+        assertEquals(2, delta.s());
+        assertEquals(75, delta.hr());
+        assertNull(delta.spo2());
+        assertEquals(1754740801000L, delta.t());
+    }
+
+    @Test
+    void encode_shouldEmitKeyframeAtInterval() {
+        CompactFrameEncoder encoder = new CompactFrameEncoder(3);
+        List<VitalSignCompactFrameDTO> frames = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            encoder.encode(reading(70 + i, 98.0, "2025-08-09T12:00:0" + i), frames::add);
+        }
+        assertEquals(1, frames.get(0).k());
+        assertNull(frames.get(1).k());
+        assertEquals(1, frames.get(2).k());
+        assertEquals(3, encoder.snapshot("PAC001").hr() - 70);
+    }
+
+    @Test
+    void encode_shouldSendKeyframeWhenValueIsCleared() {
+        CompactFrameEncoder encoder = new CompactFrameEncoder(50);
+        List<VitalSignCompactFrameDTO> frames = new ArrayList<>();
+        encoder.encode(reading(72, 98.0, "2025-08-09T12:00:00"), frames::add);
+        encoder.encode(new VitalSignRecordDTO("PAC001", "João Silva", CPF_BLOB, 72, null,
+                120.0, 80.0, 36.7, 16.0, "NORMAL", "2025-08-09T12:00:01", 1754740801000L), frames::add);
+
+        VitalSignCompactFrameDTO cleared = frames.get(1);
+        assertEquals(1, cleared.k());
+        assertNull(cleared.spo2());
+        assertEquals(72, cleared.hr());
+    }
+
+    @Test
+    void evict_shouldRestartPatientWithKeyframe() {
+        CompactFrameEncoder encoder = new CompactFrameEncoder(50);
+        List<VitalSignCompactFrameDTO> frames = new ArrayList<>();
+        encoder.encode(reading(72, 98.0, "2025-08-09T12:00:00"), frames::add);
+        encoder.evict("PAC001");
+        assertEquals(0, encoder.trackedPatients());
+
+        encoder.encode(reading(73, 98.0, "2025-08-09T12:00:01"), frames::add);
+        assertEquals(1, frames.get(1).k());
+        assertEquals(1, frames.get(1).s());
+    }
+
+    @Test
+    void deltaFrame_shouldBeSeveralTimesSmallerThanFullDto() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        CompactFrameEncoder encoder = new CompactFrameEncoder(50);
+        List<VitalSignCompactFrameDTO> frames = new ArrayList<>();
+        VitalSignRecordDTO first = reading(72, 98.0, "2025-08-09T12:00:00");
+        VitalSignRecordDTO second = reading(73, 97.5, "2025-08-09T12:00:01");
+
+        encoder.encode(first, frames::add);
+        encoder.encode(second, frames::add);
+
+        int full = mapper.writeValueAsBytes(second).length;
+        int compact = mapper.writeValueAsBytes(frames.get(1)).length;
+        assertTrue(full >= 3 * compact, "full=" + full + " compact=" + compact);
+    }
+}
@@ -0,0 +1,89 @@
+package completo.projeto.completo.websocket;
+
+import completo.projeto.completo.dto.DashboardSnapshotDTO;
+import completo.projeto.completo.dto.VitalSignRecordDTO;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class VitalSignWebSocketServiceTest {
+
+    private final BroadcastDispatcher dispatcher = mock(BroadcastDispatcher.class);
+    private final CompactFrameEncoder encoder = new CompactFrameEncoder(50);
+    private final CompactSubscriptionRegistry subscriptions = new CompactSubscriptionRegistry(encoder);
+
+    private static VitalSignRecordDTO reading(String patientId, int heartRate) {
+        return new VitalSignRecordDTO(patientId, null, null, heartRate,
+                null, null, null, null, null, null, "2025-08-09T12:00:00");
+    }
+
+    @Test
+    void batchedMode_shouldPublishOneSnapshotPerTickWithOnlyChangedPatients() {
+        VitalSignWebSocketService service = new VitalSignWebSocketService(dispatcher, encoder, subscriptions, "batched", true);
+
+        service.sendToDashboard(reading("PAC001", 70));
+        service.sendToDashboard(reading("PAC001", 72));
+        service.sendToDashboard(reading("PAC002", 80));
+        verify(dispatcher, never()).submit(any(), any(), any(), any());
+
+        service.publishDashboardSnapshot();
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(dispatcher).submit(any(), eq(VitalSignWebSocketService.DASHBOARD_TOPIC), payload.capture(), isNull());
+        DashboardSnapshotDTO snapshot = (DashboardSnapshotDTO) payload.getValue();
+        assertEquals(1, snapshot.sequence());
+        assertEquals(2, snapshot.readings().size());
+        assertTrue(snapshot.readings().contains(reading("PAC001", 72)));
+
+        // nada mudou desde o último tick
+        service.publishDashboardSnapshot();
+        verify(dispatcher, times(1)).submit(any(), any(), any(), any());
+    }
+
+    @Test
+    void sendToPatient_shouldEncodeCompactFramesOnlyWhileSubscribed() {
+        VitalSignWebSocketService service = new VitalSignWebSocketService(dispatcher, encoder, subscriptions, "per-reading", true);
+        String compactTopic = "/topic/patient/PAC001/compact";
+
+        service.sendToPatient("PAC001", reading("PAC001", 70));
+        verify(dispatcher, never()).submit(any(), eq(compactTopic), any(), any());
+        assertEquals(0, encoder.trackedPatients());
+
+        subscriptions.subscribe("s1", "sub-0", compactTopic);
+        subscriptions.subscribe("s2", "sub-0", compactTopic);
+        service.sendToPatient("PAC001", reading("PAC001", 71));
+        verify(dispatcher, times(1)).submit(eq("PAC001"), eq(compactTopic), any(), isNull());
+
+        subscriptions.unsubscribe("s1", "sub-0");
+        assertTrue(subscriptions.hasSubscribers("PAC001"));
+        subscriptions.disconnect("s2");
+        assertFalse(subscriptions.hasSubscribers("PAC001"));
+        assertEquals(0, encoder.trackedPatients());
+
+        service.sendToPatient("PAC001", reading("PAC001", 72));
+        verify(dispatcher, times(1)).submit(eq("PAC001"), eq(compactTopic), any(), isNull());
+        verify(dispatcher, times(3)).submit(eq("PAC001"), eq("/topic/patient/PAC001"), any(), isNull());
+    }
+
+    @Test
+    void patientOf_shouldOnlyMatchCompactPatientTopics() {
+        assertEquals("PAC001", CompactSubscriptionRegistry.patientOf("/topic/patient/PAC001/compact"));
+        assertNull(CompactSubscriptionRegistry.patientOf("/topic/patient/PAC001"));
+        assertNull(CompactSubscriptionRegistry.patientOf("/topic/patient//compact"));
+        assertNull(CompactSubscriptionRegistry.patientOf(null));
+    }
+
+    @Test
+    void perReadingMode_shouldSubmitEveryReadingWithCoalesceKey() {
+        VitalSignWebSocketService service = new VitalSignWebSocketService(dispatcher, encoder, subscriptions, "per-reading", true);
+
+        service.sendToDashboard(reading("PAC001", 70));
+        service.publishDashboardSnapshot();
+
+        verify(dispatcher).submit(eq("PAC001"), eq(VitalSignWebSocketService.DASHBOARD_TOPIC), any(), eq("dashboard:PAC001"));
+        verifyNoMoreInteractions(dispatcher);
+    }
+}